@@ -1,5 +1,11 @@
 package ataxx;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /** A Player that computes its own moves.
  *  @author tapan.jasthi
@@ -23,27 +29,218 @@ class AI extends Player {
         super(game, myColor);
     }
 
+    @Override
+    String kind() {
+        return "ai";
+    }
+
     @Override
     Move myMove() {
         Move move;
         if (!board().canMove(myColor())) {
             return Move.pass();
         } else {
-            move = findMove();
+            move = findMove(new Board(board().snapshot()));
         }
         return move;
     }
 
     /**
-     * Return a move for me from the current position, assuming there
-     * is a move.
+     * Start finding my move from the current position on a search
+     * thread, returning the move to come.  The board is copied before
+     * this returns, so the game may go on changing it meanwhile.
      */
-    private Move findMove() {
-        Board b = new Board(board());
-        if (myColor() == board().whoseMove()) {
-            findMove(b, MAX_DEPTH, true, 1, -INFTY, INFTY);
-        } else {
-            findMove(b, MAX_DEPTH, true, -1, -INFTY, INFTY);
+    CompletableFuture<Move> startMove() {
+        stopPondering();
+        _stopSearch = false;
+        if (!board().canMove(myColor())) {
+            return CompletableFuture.completedFuture(Move.pass());
+        }
+        BoardSnapshot position = board().snapshot();
+        Move pondered = _pondered.get(position);
+        if (pondered != null) {
+            for (int i = searchRandoms(); i > 0; i -= 1) {
+                game().nextRandom(Integer.MAX_VALUE);
+            }
+            return CompletableFuture.completedFuture(pondered);
+        }
+        return startMove(new Board(position));
+    }
+
+    /**
+     * Start finding my move from position B, which I may modify, on a
+     * search thread, returning the move to come.
+     */
+    CompletableFuture<Move> startMove(Board b) {
+        stopPondering();
+        _stopSearch = false;
+        return CompletableFuture.supplyAsync(() -> findMove(b), SEARCHES);
+    }
+
+    /**
+     * Start searching, on a search thread, for my replies to my
+     * opponent's possible moves from the current position, while my
+     * opponent decides on one.  startMove answers at once from this
+     * work if my opponent makes a move whose reply has been found.
+     */
+    void startPondering() {
+        stopPondering();
+        _pondered.clear();
+        _stopSearch = false;
+        Board b = new Board(board().snapshot());
+        _pondering = CompletableFuture.runAsync(() -> ponder(b), SEARCHES);
+    }
+
+    /**
+     * Stop any pondering, returning once it has stopped.
+     */
+    void stopPondering() {
+        if (_pondering != null) {
+            _stopSearch = true;
+            _pondering.join();
+            _pondering = null;
+        }
+    }
+
+    /**
+     * Find and record in _pondered my replies to my opponent's moves
+     * from position B, most promising (for my opponent) first, until
+     * stopped.
+     */
+    private void ponder(Board b) {
+        ArrayList<Move> moves = Board.getMoveArray(b, b.whoseMove());
+        moves.sort(Comparator.comparingInt((Move m) -> -captures(b, m)));
+        for (Move m : moves) {
+            if (searchStopped()) {
+                return;
+            }
+            b.makeMove(m);
+            BoardSnapshot position = b.snapshot();
+            b.undo();
+            Board reply = new Board(position);
+            if (_pondered.containsKey(position) || reply.gameOver()
+                || !reply.canMove(myColor())) {
+                continue;
+            }
+            _ponderSearch = true;
+            Move found;
+            try {
+                found = findMove(reply);
+            } finally {
+                _ponderSearch = false;
+            }
+            if (!searchStopped()) {
+                _pondered.put(position, found);
+            }
+        }
+    }
+
+    /**
+     * Return a pseudo-random number in 0 .. Integer.MAX_VALUE - 1 with
+     * which a search from position B may seed its choices: the next of
+     * my Game's random numbers, except while pondering, when it is
+     * derived from B, so that the numbers my Game draws do not depend
+     * on how long my opponent takes to move.
+     */
+    int searchRandom(Board b) {
+        if (_ponderSearch) {
+            return b.snapshot().hashCode() & Integer.MAX_VALUE;
+        }
+        return game().nextRandom(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Return the number of times findMove calls searchRandom.  A move
+     * found by pondering draws as many of my Game's random numbers when
+     * it is played as finding it then would have.
+     */
+    int searchRandoms() {
+        return 0;
+    }
+
+    /**
+     * Return the number of pieces that MOVE would capture on B.
+     */
+    private static int captures(Board b, Move move) {
+        int n;
+        n = 0;
+        for (int dc = -1; dc <= 1; dc += 1) {
+            for (int dr = -1; dr <= 1; dr += 1) {
+                int sq = Board.neighbor(move.toIndex(), dc, dr);
+                if (b.get(sq) == b.whoseMove().opposite()) {
+                    n += 1;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * My replies found by pondering, indexed by the positions they
+     * answer.
+     */
+    private final Map<BoardSnapshot, Move> _pondered =
+        new ConcurrentHashMap<>();
+
+    /**
+     * True while findMove is called by pondering.  Used only on the
+     * searching thread.
+     */
+    private boolean _ponderSearch;
+
+    /**
+     * Pondering in progress, or null.
+     */
+    private CompletableFuture<Void> _pondering;
+
+    /**
+     * Cut short any search in progress, which then promptly yields the
+     * best move found so far.
+     */
+    void stopSearch() {
+        _stopSearch = true;
+    }
+
+    /**
+     * Let my searches from now on budget their time by TIME, or by their
+     * own limits if TIME is null.  Subtypes that search for a time
+     * rather than to a fixed depth consult timeManager().
+     */
+    void useTime(TimeManager time) {
+        _time = time;
+    }
+
+    /**
+     * Return the TimeManager set by useTime, or null.
+     */
+    TimeManager timeManager() {
+        return _time;
+    }
+
+    /**
+     * Return true iff the search in progress has been told to stop.
+     */
+    boolean searchStopped() {
+        return _stopSearch;
+    }
+
+    /**
+     * Return a move for me from position B, which I may modify,
+     * assuming there is a move.  Subtypes that search differently
+     * override this, checking searchStopped() as they go.
+     */
+    Move findMove(Board b) {
+        _lastFoundMove = null;
+        try {
+            if (myColor() == b.whoseMove()) {
+                findMove(b, MAX_DEPTH, true, 1, -INFTY, INFTY);
+            } else {
+                findMove(b, MAX_DEPTH, true, -1, -INFTY, INFTY);
+            }
+        } catch (SearchStopped excp) {
+            if (_lastFoundMove == null) {
+                _lastFoundMove = Board.getMoveArray(b, myColor()).get(0);
+            }
         }
         return _lastFoundMove;
     }
@@ -53,6 +250,45 @@ class AI extends Player {
      */
     private Move _lastFoundMove;
 
+    /**
+     * Budgets the time of my searches, or null.
+     */
+    private volatile TimeManager _time;
+
+    /**
+     * Set to stop the search in progress.
+     */
+    private volatile boolean _stopSearch;
+
+    /**
+     * Thrown to unwind a search that has been stopped.
+     */
+    static class SearchStopped extends RuntimeException {
+        /**
+         * A SearchStopped without a stack trace.
+         */
+        SearchStopped() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * The single instance of SearchStopped.
+     */
+    static final SearchStopped STOPPED = new SearchStopped();
+
+    /**
+     * Runs the searches started by startMove for all AIs.  Its threads
+     * are daemons, so that an abandoned search does not keep the
+     * program alive.
+     */
+    private static final ExecutorService SEARCHES =
+        Executors.newCachedThreadPool((r) -> {
+            Thread t = new Thread(r, "ataxx-search");
+            t.setDaemon(true);
+            return t;
+        });
+
     /**
      * Find a move from position BOARD and return its value, recording
      * the move found in _lastFoundMove iff SAVEMOVE. The move
@@ -62,6 +298,9 @@ class AI extends Player {
      */
     private int findMove(Board board, int depth, boolean saveMove, int sense,
                          int alpha, int beta) {
+        if (_stopSearch) {
+            throw STOPPED;
+        }
         if (depth == 0 || board.gameOver()) {
             return staticScore(board);
         } else if (sense == 1) {
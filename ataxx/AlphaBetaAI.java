@@ -0,0 +1,665 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static ataxx.PlayoutBoard.PASS;
+
+/** An AI that chooses its moves by iterative-deepening alpha-beta
+ *  (principal variation) search on PlayoutBoards, scoring positions by
+ *  an Evaluation (by default, material) or by the sum of the values of
+ *  local patterns in a PatternTable, kept up to date incrementally on
+ *  the boards as the search plays moves.  Scores are in units of
+ *  1/Evaluation.SCALE piece.  It searches one ply deeper at
+ *  a time until it reaches its depth limit or runs out of time, and
+ *  plays the best move of the deepest search completed (or of the one
+ *  cut short, if that has already found a better move).
+ *
+ *  Three selective features, each of which may be turned off, let it
+ *  search deeper in the same time:
+ *  <ul>
+ *  <li> LATE_MOVE_REDUCTIONS: moves that capture nothing and come late
+ *       in the move ordering are searched a ply or two shallower first,
+ *       and searched fully only if they then look better than the
+ *       best so far.
+ *  <li> FUTILITY: near the horizon, moves whose material gain cannot
+ *       raise the score (plus a margin) to the best so far are not
+ *       searched.
+ *  <li> PROBCUT: at deep nodes, a much shallower search whose result
+ *       exceeds beta by a margin is taken to predict a cutoff.
+ *  </ul>
+ *  Given a TranspositionTable (see useTable), which may be shared with
+ *  other AIs searching at the same time, it stores the result of each
+ *  interior node there, and uses the results it finds to cut off
+ *  searches or, failing that, to try the best move found first.  Its
+ *  keys are salted by its evaluation's weights (and whether they are
+ *  applied through patterns), so that AIs scoring positions differently
+ *  do not use each other's results, while AIs in different programs
+ *  scoring them alike can use results saved to a file.
+ *
+ *  Given a TimeManager (see AI.useTime), it searches to the depth its
+ *  budget allows rather than for a fixed time: it starts an iteration
+ *  only while the budget (stretched when the best move has lately
+ *  changed) allows, and never runs past the budget's hard limit.
+ *
+ *  At a difficulty level (see useLevel), it instead visits no more than
+ *  a fixed number of positions per move and searches no deeper than a
+ *  fixed depth, and may add to each static value a pseudo-random noise
+ *  derived from the position and a seed drawn from its Game's random
+ *  numbers.  Since this depends on neither the speed of the machine nor
+ *  the time, the same seed gives the same moves on any machine, at a
+ *  predictable cost.
+ *
+ *  Asked to rank several moves (see rankLines), as for analysis, it
+ *  searches each move from the root with a window bounded by the score
+ *  of the Kth best so far rather than the best, so that the scores of
+ *  the K best moves are exact.
+ *
+ *  nodes() and depth() report the work done by the last search, so
+ *  that the features can be compared (see SearchBench).
+ *  @author tapan.jasthi
+ */
+class AlphaBetaAI extends AI {
+
+    /** The selective search features. */
+    enum Feature {
+        LATE_MOVE_REDUCTIONS, FUTILITY, PROBCUT
+    }
+
+    /** Default limit on the depth of search, in plies. */
+    static final int MAX_DEPTH = 16;
+
+    /** Default limit on the time for one move, in milliseconds. */
+    static final long TIME_LIMIT = 1000;
+
+    /** Number of difficulty levels, numbered from 1 (the weakest). */
+    static final int LEVELS = 8;
+
+    /** Score of a won position (for the side on move): far above any
+     *  static value, and small enough to fit a TranspositionTable. */
+    static final int WIN_SCORE = 16000;
+
+    /** A new AI for GAME that will play MYCOLOR, using all the selective
+     *  features, and searching to MAX_DEPTH or for TIME_LIMIT. */
+    AlphaBetaAI(Game game, PieceColor myColor) {
+        this(game, myColor, EnumSet.allOf(Feature.class), MAX_DEPTH,
+             TIME_LIMIT);
+    }
+
+    /** A new AI for GAME that will play MYCOLOR, using all the selective
+     *  features, searching to MAX_DEPTH or for TIME_LIMIT, and scoring
+     *  positions by EVALUATION. */
+    AlphaBetaAI(Game game, PieceColor myColor, Evaluation evaluation) {
+        this(game, myColor);
+        _evaluation = evaluation;
+    }
+
+    /** A new AI for GAME that will play MYCOLOR, using all the selective
+     *  features, searching to MAX_DEPTH or for TIME_LIMIT, and scoring
+     *  positions by the values of their patterns in PATTERNS. */
+    AlphaBetaAI(Game game, PieceColor myColor, PatternTable patterns) {
+        this(game, myColor);
+        _patterns = patterns;
+        for (PlayoutBoard board : _boards) {
+            board.usePatterns(patterns);
+        }
+    }
+
+    /** A new AI for GAME that will play MYCOLOR, using the selective
+     *  FEATURES, and searching no deeper than MAXDEPTH plies and for no
+     *  longer than TIMELIMIT milliseconds (no limit if 0). */
+    AlphaBetaAI(Game game, PieceColor myColor, Set<Feature> features,
+                int maxDepth, long timeLimit) {
+        super(game, myColor);
+        _reductions = features.contains(Feature.LATE_MOVE_REDUCTIONS);
+        _futility = features.contains(Feature.FUTILITY);
+        _probCut = features.contains(Feature.PROBCUT);
+        _maxDepth = _depthLimit = maxDepth;
+        _timeLimit = timeLimit;
+        _boards = new PlayoutBoard[maxDepth + 2];
+        for (int i = 0; i < _boards.length; i += 1) {
+            _boards[i] = new PlayoutBoard();
+        }
+        _moves = new int[maxDepth + 1][PlayoutBoard.MAX_MOVES];
+        _gains = new int[maxDepth + 1][PlayoutBoard.MAX_MOVES];
+    }
+
+    /** Score positions by EVALUATION, unless I score them by patterns.
+     *  Since the keys of my TranspositionTable depend on it, this is to
+     *  precede useTable. */
+    void useEvaluation(Evaluation evaluation) {
+        _evaluation = evaluation;
+    }
+
+    /** Store and look up search results in TABLE, or in none if TABLE
+     *  is null. */
+    void useTable(TranspositionTable table) {
+        _table = table;
+        _salt = (_patterns != null ? ~_patterns.evaluation().hashCode()
+                 : _evaluation.hashCode()) * SALT_MULTIPLIER;
+    }
+
+    /** Play at difficulty LEVEL, 1 <= LEVEL <= LEVELS: visiting at most
+     *  LEVEL_NODES[LEVEL - 1] positions and searching at most
+     *  LEVEL_DEPTHS[LEVEL - 1] plies deep per move, with no time limit
+     *  (other than one set by useTime), and adding noise of magnitude at
+     *  most LEVEL_NOISE[LEVEL - 1] pieces to static values.  Since the noise
+     *  differs between moves, a TranspositionTable should not be used
+     *  with it. */
+    void useLevel(int level) {
+        _nodeBudget = LEVEL_NODES[level - 1];
+        _depthLimit = Math.min(_maxDepth, LEVEL_DEPTHS[level - 1]);
+        _noise = LEVEL_NOISE[level - 1] * Evaluation.SCALE;
+        _timeLimit = 0;
+    }
+
+    /** Let my searches from now on search at most DEPTH plies deep (and
+     *  no deeper than my own limit) and visit at most NODES positions per
+     *  move, as well as keeping to any time limit. */
+    void limit(int depth, long nodes) {
+        _depthLimit = Math.min(_maxDepth, depth);
+        _nodeBudget = nodes;
+    }
+
+    /** Let my searches rank my K >= 1 best moves from the root, rather
+     *  than just the best (see lines()). */
+    void rankLines(int k) {
+        _lines = k;
+    }
+
+    /** Tell LISTENER (if not null) of each iteration of my searches as
+     *  it completes, on the searching thread, when depth(), score(),
+     *  nodes(), and principalVariation() describe it. */
+    void listen(Consumer<AlphaBetaAI> listener) {
+        _listener = listener;
+    }
+
+    /** As for AI.useTime, but also applying TIME's hard limit to a search
+     *  already in progress, as when a search started without a limit
+     *  (pondering) is to finish in time for a move. */
+    @Override
+    void useTime(TimeManager time) {
+        super.useTime(time);
+        if (time != null) {
+            _deadline = time.deadline();
+        }
+    }
+
+    @Override
+    String kind() {
+        return _patterns != null ? "pat" : "ab";
+    }
+
+    @Override
+    int searchRandoms() {
+        return _noise > 0 && game() != null ? 2 : 0;
+    }
+
+    @Override
+    Move findMove(Board b) {
+        PlayoutBoard root = _boards[0];
+        root.copy(b);
+        _nodes = _tableHits = 0;
+        _depth = _ranked = 0;
+        _score = 0;
+        TimeManager time = timeManager();
+        if (_noise > 0) {
+            _noiseSeed = game() == null ? 0
+                : (long) searchRandom(b) << 31 ^ searchRandom(b);
+        }
+        _deadline = time != null ? time.deadline()
+            : _timeLimit == 0 ? Long.MAX_VALUE
+            : System.nanoTime() + _timeLimit * 1000000;
+        int n = root.moves(_moves[0]);
+        if (n == 0) {
+            return Move.pass();
+        }
+        order(root, _moves[0], _gains[0], n);
+        int instability = 0;
+        try {
+            for (int depth = 1; depth <= _depthLimit; depth += 1) {
+                int previous = _moves[0][0];
+                _score = searchRoot(depth, n);
+                _depth = depth;
+                _ranked = Math.min(_lines, n);
+                if (_listener != null) {
+                    _listener.accept(this);
+                }
+                if (Math.abs(_score) >= WIN_SCORE - _depthLimit) {
+                    break;
+                }
+                instability = _moves[0][0] != previous && depth > 1
+                    ? instability + 1 : instability / 2;
+                time = timeManager();
+                if (time != null && !time.startNext(instability)) {
+                    break;
+                }
+            }
+        } catch (SearchStopped excp) {
+            /* Keep the best move found so far, which is first. */
+        }
+        return PlayoutBoard.toMove(_moves[0][0]);
+    }
+
+    /** Return the number of positions visited by my last search. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the number of positions my last search found in its
+     *  TranspositionTable with a usable result. */
+    long tableHits() {
+        return _tableHits;
+    }
+
+    /** Return the depth of the deepest search my last search completed. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the score of the move found by my last search completed,
+     *  for me, in units of 1/Evaluation.SCALE piece. */
+    int score() {
+        return _score;
+    }
+
+    /** Return the number of moves ranked by my last search completed:
+     *  the K of rankLines (1 by default), or fewer if there are fewer
+     *  moves. */
+    int lines() {
+        return _ranked;
+    }
+
+    /** Return the score for me of the Ith best move (numbered from 0)
+     *  ranked by my last search, 0 <= I < lines(). */
+    int lineScore(int i) {
+        return _rootScores[i];
+    }
+
+    /** Return the expected line of play from my last search's root: its
+     *  best move, and then, while my TranspositionTable (if any) holds
+     *  a legal best move from the position reached, that move, up to
+     *  the depth searched. */
+    List<Move> principalVariation() {
+        return principalVariation(0);
+    }
+
+    /** As for principalVariation(), but starting with the Kth best move
+     *  ranked by my last search, 0 <= K < max(1, lines()). */
+    List<Move> principalVariation(int k) {
+        List<Move> line = new ArrayList<>();
+        PlayoutBoard pos = new PlayoutBoard();
+        pos.copy(_boards[0]);
+        int[] moves = new int[PlayoutBoard.MAX_MOVES];
+        int move = pos.moves(moves) == 0 ? PASS : _moves[0][k];
+        while (move != PASS && line.size() < Math.max(1, _depth)) {
+            line.add(PlayoutBoard.toMove(move));
+            pos.play(move);
+            long data = _table == null ? 0
+                : _table.probe(pos.key() ^ _salt);
+            move = PASS;
+            for (int i = 0, n = data == 0 ? 0 : pos.moves(moves); i < n;
+                 i += 1) {
+                if (moves[i] == TranspositionTable.move(data)) {
+                    move = moves[i];
+                    break;
+                }
+            }
+        }
+        return line;
+    }
+
+    /** Search the N moves in _moves[0] from _boards[0] to DEPTH plies,
+     *  leaving the best min(_lines, N) first, best first, with their
+     *  scores in _rootScores, and return the score of the best. */
+    private int searchRoot(int depth, int n) {
+        int[] moves = _moves[0], scores = _rootScores;
+        int lines = Math.min(_lines, n);
+        for (int i = 0; i < n; i += 1) {
+            _boards[1].copy(_boards[0]);
+            _boards[1].play(moves[i]);
+            int score, alpha = i < lines ? -INFTY : scores[lines - 1];
+            if (i < lines) {
+                score = -search(1, depth - 1, -INFTY, INFTY);
+            } else {
+                score = -search(1, depth - 1, -alpha - 1, -alpha);
+                if (score > alpha) {
+                    score = -search(1, depth - 1, -INFTY, -alpha);
+                }
+            }
+            if (score > alpha) {
+                int move = moves[i], last = Math.min(i, lines - 1), j;
+                for (j = last; j > 0 && scores[j - 1] < score; j -= 1) {
+                    continue;
+                }
+                System.arraycopy(moves, j, moves, j + 1, i - j);
+                System.arraycopy(scores, j, scores, j + 1, last - j);
+                moves[j] = move;
+                scores[j] = score;
+            }
+        }
+        return scores[0];
+    }
+
+    /** Return the value of _boards[PLY], searched to DEPTH more plies,
+     *  for the side on move.  Values <= ALPHA or >= BETA are bounds
+     *  rather than exact. */
+    private int search(int ply, int depth, int alpha, int beta) {
+        _nodes += 1;
+        if (searchStopped() || _nodes > _nodeBudget
+            || ((_nodes & CLOCK_MASK) == 0 && System.nanoTime() > _deadline)) {
+            throw STOPPED;
+        }
+        PlayoutBoard pos = _boards[ply];
+        byte me = pos.toMove(), other = PlayoutBoard.opposite(me);
+        if (pos.numJumps() == Board.JUMP_LIMIT || pos.count(me) == 0
+            || pos.count(other) == 0) {
+            return outcome(pos, ply);
+        } else if (depth <= 0) {
+            return pos.gameOver() ? outcome(pos, ply) : evaluate(pos);
+        }
+
+        int alpha0 = alpha, tableMove = PASS;
+        if (_table != null) {
+            long data = _table.probe(pos.key() ^ _salt);
+            if (data != 0) {
+                tableMove = TranspositionTable.move(data);
+                int score = fromTable(TranspositionTable.score(data), ply),
+                    bound = TranspositionTable.bound(data);
+                if (TranspositionTable.depth(data) >= depth
+                    && (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER
+                            && score >= beta)
+                        || (bound == TranspositionTable.UPPER
+                            && score <= alpha))) {
+                    _tableHits += 1;
+                    return score;
+                }
+            }
+        }
+
+        if (_probCut && depth >= PROBCUT_DEPTH && beta < WIN_SCORE - ply
+            && beta > -WIN_SCORE + ply) {
+            int bound = beta + PROBCUT_MARGIN;
+            int score = search(ply, depth - PROBCUT_REDUCTION,
+                               bound - 1, bound);
+            if (score >= bound) {
+                return beta;
+            }
+        }
+
+        int[] moves = _moves[ply], gains = _gains[ply];
+        PlayoutBoard next = _boards[ply + 1];
+        int n = pos.moves(moves);
+        if (n == 0) {
+            if (!pos.canMove(other)) {
+                return outcome(pos, ply);
+            }
+            next.copy(pos);
+            next.play(PASS);
+            return -search(ply + 1, depth - 1, -beta, -alpha);
+        }
+        order(pos, moves, gains, n);
+        for (int i = 1; i < n && tableMove != PASS; i += 1) {
+            if (moves[i] == tableMove) {
+                int gain = gains[i];
+                System.arraycopy(moves, 0, moves, 1, i);
+                System.arraycopy(gains, 0, gains, 1, i);
+                moves[0] = tableMove;
+                gains[0] = gain;
+                break;
+            }
+        }
+
+        int eval = evaluate(pos), margin = -1;
+        if (_futility && depth <= FUTILITY_MARGINS.length
+            && beta - alpha == 1 && pos.count(PlayoutBoard.EMPTY) > 1
+            && pos.numJumps() + 1 < Board.JUMP_LIMIT) {
+            margin = futilityMargin(depth);
+        }
+
+        int best = -INFTY, bestMove = moves[0];
+        for (int i = 0; i < n; i += 1) {
+            int bound = eval + gains[i] * Evaluation.SCALE + margin;
+            if (i > 0 && margin >= 0 && bound <= alpha
+                && 2 * pos.count(other) > gains[i]) {
+                best = Math.max(best, bound);
+                break;
+            }
+            next.copy(pos);
+            next.play(moves[i]);
+            int score;
+            if (i == 0) {
+                score = -search(ply + 1, depth - 1, -beta, -alpha);
+            } else {
+                int r = 0;
+                if (_reductions && i >= LMR_MOVES && depth >= LMR_DEPTH
+                    && gains[i] <= 1) {
+                    r = i >= 2 * LMR_MOVES && depth > LMR_DEPTH ? 2 : 1;
+                }
+                score = -search(ply + 1, depth - 1 - r, -alpha - 1, -alpha);
+                if (score > alpha && r > 0) {
+                    score = -search(ply + 1, depth - 1, -alpha - 1, -alpha);
+                }
+                if (score > alpha && score < beta) {
+                    score = -search(ply + 1, depth - 1, -beta, -alpha);
+                }
+            }
+            if (score > best) {
+                best = score;
+                bestMove = moves[i];
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (_table != null) {
+            _table.store(pos.key() ^ _salt, bestMove, toTable(best, ply),
+                         Math.min(depth, MAX_TABLE_DEPTH),
+                         best <= alpha0 ? TranspositionTable.UPPER
+                         : best >= beta ? TranspositionTable.LOWER
+                         : TranspositionTable.EXACT,
+                         pos.count(PlayoutBoard.EMPTY));
+        }
+        return best;
+    }
+
+    /** Return SCORE, found PLY plies from the root, as stored in a
+     *  TranspositionTable: with wins and losses counted from the
+     *  position rather than the root, so that the score holds wherever
+     *  the position is reached. */
+    private static int toTable(int score, int ply) {
+        return score > WIN_THRESHOLD ? score + ply
+            : score < -WIN_THRESHOLD ? score - ply : score;
+    }
+
+    /** Return the score for PLY plies from the root of SCORE, taken from
+     *  a TranspositionTable. */
+    private static int fromTable(int score, int ply) {
+        return score > WIN_THRESHOLD ? score - ply
+            : score < -WIN_THRESHOLD ? score + ply : score;
+    }
+
+    /** Return the margin, in units of 1/Evaluation.SCALE piece, allowed
+     *  for what the side on move may gain beyond a move's immediate
+     *  material gain with DEPTH plies left.  The gain is exact with one
+     *  ply left only if static values are material alone: an evaluation
+     *  that weighs more than pieces, or noise, can change by more. */
+    private int futilityMargin(int depth) {
+        Evaluation eval =
+            _patterns != null ? _patterns.evaluation() : _evaluation;
+        int margin = FUTILITY_MARGINS[depth - 1] * Evaluation.SCALE
+            + 2 * _noise;
+        if (!eval.equals(Evaluation.MATERIAL)) {
+            margin += POSITIONAL_MARGIN;
+        }
+        return margin;
+    }
+
+    /** Sort the N encoded MOVES from POS into decreasing order of their
+     *  immediate material gain for the side on move, storing the gains
+     *  in GAINS. */
+    private static void order(PlayoutBoard pos, int[] moves, int[] gains,
+                              int n) {
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i],
+                gain = 2 * pos.captures(move)
+                    + (PlayoutBoard.isJump(move) ? 0 : 1);
+            int j;
+            for (j = i; j > 0 && gains[j - 1] < gain; j -= 1) {
+                moves[j] = moves[j - 1];
+                gains[j] = gains[j - 1];
+            }
+            moves[j] = move;
+            gains[j] = gain;
+        }
+    }
+
+    /** Return the static value of POS for the side on move, with noise
+     *  if playing at a level that has it. */
+    private int evaluate(PlayoutBoard pos) {
+        int value = staticValue(pos);
+        if (_noise == 0) {
+            return value;
+        }
+        long h = (pos.key() ^ _noiseSeed) * SALT_MULTIPLIER;
+        return value + Math.floorMod((int) (h >>> 32), 2 * _noise + 1)
+            - _noise;
+    }
+
+    /** Return the static value of POS for the side on move, in units of
+     *  1/Evaluation.SCALE piece. */
+    private int staticValue(PlayoutBoard pos) {
+        if (_patterns != null) {
+            return pos.patternValue();
+        } else if (_evaluation == Evaluation.MATERIAL) {
+            return material(pos) * Evaluation.SCALE;
+        }
+        byte me = pos.toMove();
+        return _evaluation.evaluate(pos.mask(me),
+                                    pos.mask(PlayoutBoard.opposite(me)),
+                                    pos.mask(PlayoutBoard.BLOCKED),
+                                    _features);
+    }
+
+    /** Return the material balance of POS for the side on move, in
+     *  pieces. */
+    private static int material(PlayoutBoard pos) {
+        byte me = pos.toMove();
+        return pos.count(me) - pos.count(PlayoutBoard.opposite(me));
+    }
+
+    /** Return the score of POS, a finished game PLY plies from the root,
+     *  for the side on move: preferring quicker wins and slower
+     *  losses. */
+    private static int outcome(PlayoutBoard pos, int ply) {
+        return Integer.signum(material(pos)) * (WIN_SCORE - ply);
+    }
+
+    /** A magnitude greater than any score. */
+    private static final int INFTY = WIN_SCORE + 1;
+
+    /** Scores of larger magnitude denote won or lost games. */
+    private static final int WIN_THRESHOLD = WIN_SCORE / 2;
+
+    /** Spreads the bits of salts. */
+    private static final long SALT_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    /** Largest depth recordable in a TranspositionTable. */
+    private static final int MAX_TABLE_DEPTH = 255;
+
+    /** Most positions visited per move at each difficulty level. */
+    private static final long[] LEVEL_NODES = {
+        200, 1000, 4000, 15000, 50000, 150000, 500000, 2000000,
+    };
+    /** Deepest search at each difficulty level. */
+    private static final int[] LEVEL_DEPTHS = { 1, 2, 3, 4, 6, 8, 12, 16 };
+    /** Largest magnitude of noise at each difficulty level, in
+     *  pieces. */
+    private static final int[] LEVEL_NOISE = { 6, 4, 3, 2, 1, 0, 0, 0 };
+
+    /** The time is checked once per CLOCK_MASK + 1 nodes. */
+    private static final int CLOCK_MASK = 1023;
+
+    /** Moves searched at full depth before reductions begin. */
+    private static final int LMR_MOVES = 4;
+    /** Least remaining depth at which moves are reduced. */
+    private static final int LMR_DEPTH = 3;
+
+    /** FUTILITY_MARGINS[D - 1] is the margin, in pieces, allowed for what
+     *  the side on move may gain beyond a move's immediate material gain
+     *  with D plies left, when static values are material alone.  With
+     *  one ply left, the immediate gain is then exact. */
+    private static final int[] FUTILITY_MARGINS = { 0, 6 };
+    /** Margin added to those of FUTILITY_MARGINS for evaluations other
+     *  than material, in units of 1/Evaluation.SCALE piece. */
+    private static final int POSITIONAL_MARGIN = 2 * Evaluation.SCALE;
+
+    /** Least remaining depth at which ProbCut is tried. */
+    private static final int PROBCUT_DEPTH = 5;
+    /** Reduction in depth of ProbCut's predicting search. */
+    private static final int PROBCUT_REDUCTION = 4;
+    /** Margin beyond beta that ProbCut's prediction must reach. */
+    private static final int PROBCUT_MARGIN = 4 * Evaluation.SCALE;
+
+    /** True iff the corresponding features are in use. */
+    private final boolean _reductions, _futility, _probCut;
+    /** Limit on the depth of search. */
+    private final int _maxDepth;
+    /** Limit on the time for one move (milliseconds), or 0. */
+    private long _timeLimit;
+    /** Most positions visited per move. */
+    private long _nodeBudget = Long.MAX_VALUE;
+    /** Limit on the depth of search, at most _maxDepth. */
+    private int _depthLimit;
+    /** Largest magnitude of the noise added to static values, or 0. */
+    private int _noise;
+    /** Seed of the noise for the current search. */
+    private long _noiseSeed;
+
+    /** _boards[P] holds the position P plies from the root. */
+    private final PlayoutBoard[] _boards;
+    /** _moves[P] and _gains[P] hold the ordered moves from _boards[P]
+     *  and their immediate gains. */
+    private final int[][] _moves, _gains;
+
+    /** Scores positions. */
+    private Evaluation _evaluation = Evaluation.MATERIAL;
+    /** Table of search results, or null. */
+    private TranspositionTable _table;
+    /** Exclusive-or'ed with keys into _table. */
+    private long _salt;
+    /** Number of usable results found in _table by the last search. */
+    private long _tableHits;
+
+    /** Scores positions instead of _evaluation, if not null. */
+    private PatternTable _patterns;
+    /** Work area for _evaluation. */
+    private final int[] _features = new int[Evaluation.NUM_FEATURES];
+
+    /** Number of moves from the root to rank. */
+    private int _lines = 1;
+    /** Number of moves ranked by the last search completed. */
+    private int _ranked;
+    /** _rootScores[I] is the score of the Ith best move from the root
+     *  (_moves[0][I]), for I < min(_lines, number of moves). */
+    private final int[] _rootScores = new int[PlayoutBoard.MAX_MOVES];
+
+    /** Number of positions visited by the last search. */
+    private long _nodes;
+    /** Depth of the deepest search completed. */
+    private int _depth;
+    /** Score of the move chosen. */
+    private int _score;
+    /** Time (System.nanoTime) at which the current search must stop.
+     *  Another thread may change it (see useTime). */
+    private volatile long _deadline;
+    /** Told of each iteration completed, or null. */
+    private Consumer<AlphaBetaAI> _listener;
+}
@@ -0,0 +1,150 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Finds the best few moves from a position, each with its score and
+ *  principal variation (the line of play expected to follow it), for
+ *  the 'analyze' command.  The moves are ranked by an AlphaBetaAI
+ *  (see AlphaBetaAI.rankLines) scoring positions by a given Evaluation,
+ *  without selective features, so that their scores are exact to its
+ *  depth.  Results are cached by position and evaluation, so repeating
+ *  a query (as a GUI redrawing its hints would) costs no search.
+ *  @author tapan.jasthi
+ */
+class Analyzer {
+
+    /** Number of lines reported when none is specified. */
+    static final int DEFAULT_LINES = 3;
+
+    /** Depth of search, in plies. */
+    static final int DEPTH = 4;
+
+    /** Number of positions whose analyses are kept. */
+    private static final int CACHE_SIZE = 1024;
+
+    /** Size of the TranspositionTable of a search, in megabytes. */
+    private static final int TABLE_MEGABYTES = 1;
+
+    /** One line of analysis: a move, its score for the side making it,
+     *  and the principal variation that starts with it. */
+    static class Line {
+
+        /** A line starting with PV.get(0) and scoring SCORE.  It prints
+         *  as its score followed by its principal variation. */
+        Line(List<Move> pv, int score) {
+            _pv = Collections.unmodifiableList(pv);
+            _score = score;
+        }
+
+        /** Return the move that starts me. */
+        Move move() {
+            return _pv.get(0);
+        }
+
+        /** Return my score, from the point of view of the side making
+         *  move(): positive if good for that side, in units of
+         *  1/Evaluation.SCALE piece (as for AlphaBetaAI). */
+        int score() {
+            return _score;
+        }
+
+        /** Return my principal variation. */
+        List<Move> pv() {
+            return _pv;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            if (Math.abs(_score) > AlphaBetaAI.WIN_SCORE / 2) {
+                out.append(_score > 0 ? "win" : "loss");
+            } else {
+                out.append(String.format("%+.2f",
+                                         (double) _score / Evaluation.SCALE));
+            }
+            for (Move m : _pv) {
+                out.append(' ').append(m);
+            }
+            return out.toString();
+        }
+
+        /** The principal variation. */
+        private final List<Move> _pv;
+        /** The score. */
+        private final int _score;
+    }
+
+    /** Return the (up to) K best lines from the position on BOARD, best
+     *  first, searching to depth DEPTH and scoring positions by
+     *  material.  BOARD is not changed.  Returns an empty list if the
+     *  game is over or the side on move must pass. */
+    static List<Line> analyze(Board board, int k) {
+        return analyze(board, k, Evaluation.MATERIAL);
+    }
+
+    /** As for analyze(BOARD, K), but scoring positions by
+     *  EVALUATION. */
+    static List<Line> analyze(Board board, int k, Evaluation evaluation) {
+        BoardSnapshot position = board.snapshot();
+        List<Object> key = Arrays.asList(position, evaluation);
+        synchronized (CACHE) {
+            List<Line> cached = CACHE.get(key);
+            if (cached != null && (cached.size() >= k
+                                   || cached.size() == numMoves(board))) {
+                return cached.subList(0, Math.min(k, cached.size()));
+            }
+        }
+        List<Line> lines = Collections.unmodifiableList(
+            search(new Board(position), k, evaluation));
+        synchronized (CACHE) {
+            CACHE.put(key, lines);
+        }
+        return lines;
+    }
+
+    /** Return the number of moves available to the side on move on
+     *  BOARD. */
+    private static int numMoves(Board board) {
+        return Board.getMoveArray(board, board.whoseMove()).size();
+    }
+
+    /** Return the K best lines from BOARD, scoring positions by
+     *  EVALUATION. */
+    private static List<Line> search(Board board, int k,
+                                     Evaluation evaluation) {
+        List<Line> best = new ArrayList<>();
+        if (board.gameOver() || numMoves(board) == 0) {
+            return best;
+        }
+        AlphaBetaAI ai =
+            new AlphaBetaAI(null, board.whoseMove(),
+                            EnumSet.noneOf(AlphaBetaAI.Feature.class),
+                            DEPTH, 0);
+        ai.useEvaluation(evaluation);
+        ai.useTable(new TranspositionTable(TABLE_MEGABYTES));
+        ai.rankLines(k);
+        ai.findMove(board);
+        for (int i = 0; i < ai.lines(); i += 1) {
+            best.add(new Line(ai.principalVariation(i), ai.lineScore(i)));
+        }
+        return best;
+    }
+
+    /** Analyses of recently analyzed positions, keyed by the position
+     *  and the evaluation used, most recently used last. */
+    private static final Map<List<Object>, List<Line>> CACHE =
+        new LinkedHashMap<List<Object>, List<Line>>(CACHE_SIZE, 0.75f,
+                                                    true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>,
+                                                List<Line>> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+}
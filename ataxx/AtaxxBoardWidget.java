@@ -2,10 +2,18 @@ package ataxx;
 
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.DisplayMode;
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.Timer;
 
 import ucb.gui2.Pad;
 
@@ -29,46 +37,79 @@ class AtaxxBoardWidget extends Pad implements Observer {
     private static final Color BLANK_COLOR = Color.WHITE;
     /** Stroke for lines. */
     private static final BasicStroke LINE_STROKE = new BasicStroke(1.0f);
+    /** Frames per second assumed when the display does not say. */
+    private static final int DEFAULT_REFRESH_RATE = 60;
 
     /** Dimension of current drawing surface in pixels. */
     private int _dim;
 
     /** Model being displayed. */
-    private static Board _model;
+    private final Board _model;
+
+    /** The model's contents as of the last update.  Painting uses this
+     *  immutable snapshot rather than the model, which the game thread
+     *  may be changing. */
+    private volatile BoardSnapshot _shown;
+
+    /** Bit K is set iff square K (as numbered by BoardSnapshot) has
+     *  changed since it was last scheduled for repainting. */
+    private final AtomicLong _dirty = new AtomicLong();
+
+    /** Pre-rendered images of one square holding a red piece, a blue
+     *  piece or a block, each SQDIM pixels on a side. */
+    private final EnumMap<PieceColor, BufferedImage> _sprites =
+        new EnumMap<>(PieceColor.class);
+
+    /** Fires once per display frame after changes, so that a burst of
+     *  moves costs at most one repaint per frame. */
+    private final Timer _frameTimer;
 
     /** A new widget displaying MODEL. */
     AtaxxBoardWidget(Board model) {
         _model = model;
         setMouseHandler("click", this::readMove);
-        _model.addObserver(this);
         _dim = SQDIM * SIDE;
         setPreferredSize(_dim, _dim + SQDIM);
+
+        _sprites.put(PieceColor.RED, sprite(PieceColor.RED));
+        _sprites.put(PieceColor.BLUE, sprite(PieceColor.BLUE));
+        _sprites.put(PieceColor.BLOCKED, sprite(PieceColor.BLOCKED));
+        _frameTimer = new Timer(framePeriod(), (e) -> flushDirty());
+        _frameTimer.setRepeats(false);
+
+        copyModel();
+        _model.addObserver(this);
     }
 
     @Override
     /** Whenever there are GUI changes, the paintComponent
-     * is automatically called and it always fetches the latest
-     * board (game) (model).
+     * is automatically called.  It repaints only the squares that
+     * intersect the clip region, using the contents recorded by
+     * the last update.
      */
-    public synchronized void paintComponent(Graphics2D g) {
+    public void paintComponent(Graphics2D g) {
+        BoardSnapshot shown = _shown;
+        Rectangle clip = new Rectangle(0, 0, _dim, _dim);
+        if (g.getClipBounds() != null) {
+            clip = clip.intersection(g.getClipBounds());
+        }
         g.setColor(BLANK_COLOR);
-        g.fillRect(0, 0, _dim, _dim);
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
 
+        g.setColor(Color.RED);
+        g.setStroke(LINE_STROKE);
         for (int k = 0; k <= Board.SIDE; k += 1) {
-            g.setColor(Color.RED);
-            g.setStroke(LINE_STROKE);
             g.drawLine(0, k * SQDIM , _dim, k * SQDIM);
             g.drawLine(k * SQDIM, 0, k * SQDIM, _dim);
         }
 
-        char col = 'a', row = '1';
-        for (int square = 1; square <= SIDE * SIDE;  square += 1) {
-            drawTheSquare(g, col, row);
-            if (square % 7 != 0) {
-                col += 1;
-            } else {
-                col = 'a';
-                row += 1;
+        int c0 = Math.max(0, clip.x / SQDIM),
+            c1 = Math.min(SIDE - 1, (clip.x + clip.width) / SQDIM),
+            r0 = Math.max(0, clip.y / SQDIM),
+            r1 = Math.min(SIDE - 1, (clip.y + clip.height) / SQDIM);
+        for (int r = r0; r <= r1; r += 1) {
+            for (int c = c0; c <= c1; c += 1) {
+                drawTheSquare(g, shown, (char) ('a' + c), (char) ('7' - r));
             }
         }
     }
@@ -78,21 +119,75 @@ class AtaxxBoardWidget extends Pad implements Observer {
      *  @param col is the column of the pixel placement.
      *  @param row is the row of the pixel placement.
      *  @param g defines the graphic of the painting.
+     *  @param shown is the board contents being drawn.
      *  */
-    void drawTheSquare(Graphics2D g, char col, char row) {
-        int cp = getColumnPixel(col, row);
-        int rp = getRowPixel(col, row);
+    void drawTheSquare(Graphics2D g, BoardSnapshot shown, char col,
+                       char row) {
+        BufferedImage sprite = _sprites.get(shown.get(col, row));
+        if (sprite != null) {
+            int offset = SQDIM / 2;
+            g.drawImage(sprite, getColumnPixel(col, row) - offset,
+                        getRowPixel(col, row) - offset, null);
+        }
+    }
 
-        switch (_model.get(col, row)) {
-        case EMPTY: break;
-        case BLOCKED: this.drawBlock(g, cp, rp);
+    /** Return an image of one square containing CONTENTS (RED, BLUE, or
+     *  BLOCKED) on a transparent background, drawn as drawPiece and
+     *  drawBlock would draw it on the board. */
+    private BufferedImage sprite(PieceColor contents) {
+        BufferedImage img =
+            new BufferedImage(SQDIM, SQDIM, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        int center = SQDIM / 2;
+        switch (contents) {
+        case BLOCKED: drawBlock(g, center, center);
             break;
-        case RED: this.drawPiece(g, cp, rp, RED_COLOR);
+        case RED: drawPiece(g, center, center, RED_COLOR);
             break;
-        case BLUE: this.drawPiece(g, cp, rp, BLUE_COLOR);
+        case BLUE: drawPiece(g, center, center, BLUE_COLOR);
             break;
         default: break;
         }
+        g.dispose();
+        return img;
+    }
+
+    /** Record the model's current contents in _shown, marking the squares
+     *  that differ as dirty.  Return true iff any did. */
+    private boolean copyModel() {
+        BoardSnapshot now = _model.snapshot();
+        long changed = now.diff(_shown);
+        _shown = now;
+        _dirty.getAndAccumulate(changed, (x, y) -> x | y);
+        return changed != 0;
+    }
+
+    /** Request repainting of just the squares changed since the last
+     *  call. */
+    private void flushDirty() {
+        long dirty = _dirty.getAndSet(0);
+        for (int k = 0; dirty != 0; k += 1, dirty >>>= 1) {
+            if ((dirty & 1) != 0) {
+                int x = (k % SIDE) * SQDIM, y = (SIDE - 1 - k / SIDE) * SQDIM;
+                me.repaint(x, y, SQDIM + 1, SQDIM + 1);
+            }
+        }
+    }
+
+    /** Return the period of one frame of the default display in
+     *  milliseconds, assuming 60 frames per second if that is unknown. */
+    private static int framePeriod() {
+        int rate = DisplayMode.REFRESH_RATE_UNKNOWN;
+        try {
+            rate = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        } catch (HeadlessException excp) {
+            rate = DisplayMode.REFRESH_RATE_UNKNOWN;
+        }
+        if (rate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+            rate = DEFAULT_REFRESH_RATE;
+        }
+        return Math.max(1, 1000 / rate);
     }
 
     /** Given a column and row, return the center of the column in pixels
@@ -190,9 +285,13 @@ class AtaxxBoardWidget extends Pad implements Observer {
 
     @Override
     /** Whenever the model changes, it fires the update method
-     * in this Observer and the GUI gets updated.
+     * in this Observer, which notes the squares that changed (the
+     * source and destination of a move and any pieces it flipped) and
+     * schedules their repainting at the next frame.
      */
-    public synchronized void update(Observable model, Object arg) {
-        repaint();
+    public void update(Observable model, Object arg) {
+        if (copyModel() && !_frameTimer.isRunning()) {
+            _frameTimer.start();
+        }
     }
 }
@@ -40,6 +40,7 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
     AtaxxGUI(String title, Board model, Writer outCommands) {
         super(title, true);
 
+        addMenuButton("Game->Analyze", this::analyze);
         addMenuButton("Game->Clear", this::clear);
         addMenuButton("Game->Dump", this::dump);
         addMenuButton("Game->Help", this::help);
@@ -51,6 +52,7 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
         addMenuButton("Options->auto...", this::auto);
         addMenuButton("Options->manual...", this::manual);
         addMenuButton("Options->Seed...", this::setSeed);
+        addMenuButton("Options->ponder...", this::ponder);
         addMenuButton("Options->block...", this::block);
 
         _model = model;
@@ -92,6 +94,17 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
         _out.printf("block %s%n", resp);
     }
 
+    /** Execute the "ponder" button function. */
+    private synchronized void ponder(String unused) {
+        String resp =
+                getTextInput("Should the AI ponder (on or off)?",
+                        "ponder", "question", "");
+        if (resp == null) {
+            return;
+        }
+        _out.printf("ponder %s%n", resp);
+    }
+
     /** Execute the "load" button function. */
     private synchronized void load(String unused) {
         String resp =
@@ -118,6 +131,11 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
         _out.printf("dump%n");
     }
 
+    /** Execute the "Analyze" button function. */
+    private synchronized void analyze(String unused) {
+        _out.printf("analyze%n");
+    }
+
     /** Execute the "Clear" button function. */
     private synchronized void clear(String unused) {
         _out.printf("clear%n");
@@ -220,6 +238,7 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
             System.exit(1);
         }
         game.process(false);
+        System.exit(0);
     }
 
     /** Size of the buffer for reading commands from a GUI (bytes). */
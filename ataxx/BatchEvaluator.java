@@ -0,0 +1,182 @@
+package ataxx;
+
+/** Evaluates a PositionBatch at a time, computing the features of an
+ *  Evaluation (and hence its scores) or the values of a PatternTable
+ *  for every position into primitive arrays.
+ *
+ *  The features are computed without loops over pieces: the squares
+ *  within one of a set of squares are found by shifting its bitboard
+ *  one column and one row each way (see grow), so that each position
+ *  takes the same fixed, branch-free sequence of shifts, masks, and
+ *  population counts.  Running that sequence over the parallel arrays
+ *  of a batch is the data-parallel form the JIT compiler can turn into
+ *  SIMD instructions where the hardware has them, and is ordinary
+ *  scalar code where it does not.
+ *  @author tapan.jasthi
+ */
+final class BatchEvaluator {
+
+    /** An evaluator that scores positions by EVAL. */
+    BatchEvaluator(Evaluation eval) {
+        _eval = eval;
+    }
+
+    /** Store feature F of position I of BATCH in OUT[F][I], for every F
+     *  and every I < BATCH.size(), giving the same results as
+     *  Evaluation.features. */
+    static void features(PositionBatch batch, int[][] out) {
+        long[] mine = batch.mineArray(), theirs = batch.theirsArray(),
+            blocks = batch.blocksArray();
+        int[] material = out[Evaluation.MATERIAL_FEATURE],
+            frontier = out[Evaluation.FRONTIER],
+            reach = out[Evaluation.REACH], exposed = out[Evaluation.EXPOSED],
+            edges = out[Evaluation.EDGES], corners = out[Evaluation.CORNERS],
+            tempo = out[Evaluation.TEMPO];
+        for (int i = 0, n = batch.size(); i < n; i += 1) {
+            long m = mine[i], t = theirs[i],
+                empty = ALL & ~(m | t | blocks[i]);
+            long near1 = grow(m), near2 = grow(near1),
+                far1 = grow(t), far2 = grow(far1);
+            long myAdjacent = near1 & empty, theirAdjacent = far1 & empty,
+                myTargets = near2 & empty, theirTargets = far2 & empty;
+            material[i] = Long.bitCount(m) - Long.bitCount(t);
+            frontier[i] =
+                Long.bitCount(myAdjacent) - Long.bitCount(theirAdjacent);
+            reach[i] = Long.bitCount(myTargets & ~near1)
+                - Long.bitCount(theirTargets & ~far1);
+            exposed[i] = Long.bitCount(m & grow(theirTargets))
+                - Long.bitCount(t & grow(myTargets));
+            edges[i] = Long.bitCount(m & EDGE) - Long.bitCount(t & EDGE);
+            corners[i] =
+                Long.bitCount(m & CORNER) - Long.bitCount(t & CORNER);
+            tempo[i] = 1;
+        }
+    }
+
+    /** Store my score for position I of BATCH in SCORES[I], for each
+     *  I < BATCH.size(), as given by Evaluation.evaluate. */
+    void evaluate(PositionBatch batch, int[] scores) {
+        long[] mine = batch.mineArray(), theirs = batch.theirsArray(),
+            blocks = batch.blocksArray();
+        double wMaterial = _eval.weight(Evaluation.MATERIAL_FEATURE),
+            wFrontier = _eval.weight(Evaluation.FRONTIER),
+            wReach = _eval.weight(Evaluation.REACH),
+            wExposed = _eval.weight(Evaluation.EXPOSED),
+            wEdges = _eval.weight(Evaluation.EDGES),
+            wCorners = _eval.weight(Evaluation.CORNERS),
+            wTempo = _eval.weight(Evaluation.TEMPO);
+        for (int i = 0, n = batch.size(); i < n; i += 1) {
+            long m = mine[i], t = theirs[i],
+                empty = ALL & ~(m | t | blocks[i]);
+            long near1 = grow(m), near2 = grow(near1),
+                far1 = grow(t), far2 = grow(far1);
+            long myTargets = near2 & empty, theirTargets = far2 & empty;
+            double value = wMaterial * (Long.bitCount(m) - Long.bitCount(t))
+                + wFrontier * (Long.bitCount(near1 & empty)
+                               - Long.bitCount(far1 & empty))
+                + wReach * (Long.bitCount(myTargets & ~near1)
+                            - Long.bitCount(theirTargets & ~far1))
+                + wExposed * (Long.bitCount(m & grow(theirTargets))
+                              - Long.bitCount(t & grow(myTargets)))
+                + wEdges * (Long.bitCount(m & EDGE) - Long.bitCount(t & EDGE))
+                + wCorners * (Long.bitCount(m & CORNER)
+                              - Long.bitCount(t & CORNER))
+                + wTempo;
+            scores[i] = (int) Math.round(value * Evaluation.SCALE);
+        }
+    }
+
+    /** Store the value by TABLE of position I of BATCH for the side to
+     *  move, in units of 1/PatternTable.SCALE piece, in SCORES[I], for
+     *  each I < BATCH.size(), as given by an AlphaBetaAI using TABLE.
+     *  Each row of a position is first encoded as its cells in base 4
+     *  (see PatternTable), with blocked cells beyond each end, so that
+     *  the three cells of the row above, at, and below a square that
+     *  form its pattern are a shift and mask away. */
+    static void patterns(PositionBatch batch, PatternTable table,
+                         int[] scores) {
+        long[] mine = batch.mineArray(), theirs = batch.theirsArray(),
+            blocks = batch.blocksArray();
+        int side = BoardSnapshot.SIDE;
+        int[] rows = new int[side + 2];
+        rows[0] = rows[side + 1] = BLOCKED_ROW;
+        for (int i = 0, n = batch.size(); i < n; i += 1) {
+            long m = mine[i], t = theirs[i], b = blocks[i];
+            for (int r = 0; r < side; r += 1) {
+                int shift = r * side;
+                int low = (int) (((b | t) >>> shift) & ROW_MASK),
+                    high = (int) (((m | t) >>> shift) & ROW_MASK);
+                rows[r + 1] = (SPREAD[low] | SPREAD[high] << 1) << 2
+                    | ROW_ENDS;
+            }
+            int sum = table.tempo();
+            for (int r = 1; r <= side; r += 1) {
+                int below = rows[r - 1], at = rows[r], above = rows[r + 1];
+                for (int c = 0; c < 2 * side; c += 2) {
+                    sum += table.value((below >>> c & WINDOW)
+                                       | (at >>> c & WINDOW) << 6
+                                       | (above >>> c & WINDOW) << 12);
+                }
+            }
+            scores[i] = sum;
+        }
+    }
+
+    /** Return the squares at most one away from a square in X. */
+    static long grow(long x) {
+        long row = x | ((x << 1) & NOT_FIRST_COLUMN)
+            | ((x >>> 1) & NOT_LAST_COLUMN);
+        return (row | (row << BoardSnapshot.SIDE)
+                | (row >>> BoardSnapshot.SIDE)) & ALL;
+    }
+
+    /** Number of squares. */
+    private static final int NUM_SQUARES =
+        BoardSnapshot.SIDE * BoardSnapshot.SIDE;
+    /** Mask of the bits of one row of a bitboard. */
+    private static final long ROW_MASK = (1 << BoardSnapshot.SIDE) - 1;
+    /** Mask of three cells of a row encoded in base 4. */
+    private static final int WINDOW = 63;
+    /** Encoded blocked cells just beyond the ends of a row. */
+    private static final int ROW_ENDS =
+        PlayoutBoard.BLOCKED | PlayoutBoard.BLOCKED << 2 * (Board.SIDE + 1);
+    /** An encoded row of blocked cells, for beyond the board. */
+    private static final int BLOCKED_ROW;
+    /** SPREAD[X] has bit 2J set iff X has bit J set. */
+    private static final int[] SPREAD = new int[1 << BoardSnapshot.SIDE];
+    /** All squares. */
+    private static final long ALL = (1L << NUM_SQUARES) - 1;
+    /** Squares not in the first and last columns, edge squares, and
+     *  corners. */
+    private static final long NOT_FIRST_COLUMN, NOT_LAST_COLUMN, EDGE,
+        CORNER;
+
+    static {
+        int side = BoardSnapshot.SIDE;
+        long first, last, edge, corner;
+        first = last = edge = corner = 0;
+        for (int k = 0; k < NUM_SQUARES; k += 1) {
+            int c = k % side, r = k / side;
+            first |= c == 0 ? 1L << k : 0;
+            last |= c == side - 1 ? 1L << k : 0;
+            boolean cEdge = c == 0 || c == side - 1,
+                rEdge = r == 0 || r == side - 1;
+            edge |= cEdge || rEdge ? 1L << k : 0;
+            corner |= cEdge && rEdge ? 1L << k : 0;
+        }
+        for (int x = 0; x < SPREAD.length; x += 1) {
+            for (int j = 0; j < side; j += 1) {
+                SPREAD[x] |= ((x >>> j) & 1) << 2 * j;
+            }
+        }
+        BLOCKED_ROW = (SPREAD[SPREAD.length - 1] << 2 | ROW_ENDS)
+            * PlayoutBoard.BLOCKED;
+        NOT_FIRST_COLUMN = ALL & ~first;
+        NOT_LAST_COLUMN = ALL & ~last;
+        EDGE = edge;
+        CORNER = corner;
+    }
+
+    /** Weights of the features. */
+    private final Evaluation _eval;
+}
@@ -2,8 +2,6 @@ package ataxx;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Stack;
-import java.util.HashMap;
-import java.util.Formatter;
 import java.util.Observable;
 import static ataxx.PieceColor.*;
 
@@ -38,10 +36,12 @@ class Board extends Observable {
     /** Number of non-extending moves before game ends. */
     static final int JUMP_LIMIT = 25;
 
-    /** A new, cleared board at the start of the game. */
+    /** A new, cleared board at the start of the game.  It publishes a
+     *  snapshot of itself after every change (see snapshot()). */
     Board() {
         _board = new PieceColor[EXTENDED_SIDE * EXTENDED_SIDE];
         Arrays.fill(_board, PieceColor.BLOCKED);
+        _publishing = true;
         clear();
     }
 
@@ -52,7 +52,25 @@ class Board extends Observable {
         this.numMoves = b.numMoves();
         this.numJumps = b.numJumps();
         this.moveStack = (Stack) b.moveStack.clone();
-        this.moveMap = (HashMap<Move, ArrayList<String>>) b.moveMap.clone();
+        this.changeStack = (Stack) b.changeStack.clone();
+        this._publishing = false;
+    }
+
+    /** A board with the contents recorded in SNAPSHOT and no history of
+     *  moves to undo.  This is a cheap private copy of a board for a
+     *  search, which may make and undo moves of its own. */
+    Board(BoardSnapshot snapshot) {
+        _board = new PieceColor[EXTENDED_SIDE * EXTENDED_SIDE];
+        Arrays.fill(_board, PieceColor.BLOCKED);
+        for (int k = 0; k < SIDE * SIDE; k += 1) {
+            _board[BoardSnapshot.boardIndex(k)] = snapshot.get(k);
+        }
+        _whoseMove = snapshot.whoseMove();
+        numMoves = snapshot.numMoves();
+        numJumps = snapshot.numJumps();
+        moveStack = new Stack<>();
+        changeStack = new Stack<>();
+        _publishing = false;
     }
 
     /** Return the linearized index of square COL ROW. */
@@ -102,7 +120,42 @@ class Board extends Observable {
         numMoves = 0;
         numJumps = 0;
         moveStack = new Stack<>();
-        moveMap = new HashMap<>();
+        changeStack = new Stack<>();
+        announce();
+    }
+
+    /** Set my contents to those recorded in SNAPSHOT, with no history
+     *  of moves to undo. */
+    void setPosition(BoardSnapshot snapshot) {
+        for (int k = 0; k < SIDE * SIDE; k += 1) {
+            _board[BoardSnapshot.boardIndex(k)] = snapshot.get(k);
+        }
+        _whoseMove = snapshot.whoseMove();
+        numMoves = snapshot.numMoves();
+        numJumps = snapshot.numJumps();
+        moveStack = new Stack<>();
+        changeStack = new Stack<>();
+        announce();
+    }
+
+    /** Return an immutable copy of my current contents.  A board made
+     *  by Board() publishes such a copy after each change, and this
+     *  returns the latest one without locking, so any thread may call it
+     *  on such a board.  For other boards, this makes a new copy, and
+     *  only the thread changing the board should call it. */
+    BoardSnapshot snapshot() {
+        if (_publishing) {
+            return _snapshot;
+        }
+        return new BoardSnapshot(this);
+    }
+
+    /** Publish my new contents, if I do that, and notify my observers
+     *  of the change. */
+    private void announce() {
+        if (_publishing) {
+            _snapshot = new BoardSnapshot(this);
+        }
         setChanged();
         notifyObservers();
     }
@@ -278,10 +331,9 @@ class Board extends Observable {
         }
         ArrayList<String> changedSquared = changeColor(move);
         moveStack.push(move);
-        moveMap.put(move, changedSquared);
+        changeStack.push(changedSquared);
         _whoseMove = _whoseMove.opposite();
-        setChanged();
-        notifyObservers();
+        announce();
     }
 
     /** Change color of surrounding piece after doing Move m.
@@ -289,16 +341,10 @@ class Board extends Observable {
      * @param m is the move that is being made. */
     ArrayList<String> changeColor(Move m) {
         ArrayList<String> changedSquares = new ArrayList<>();
-        for (int x = -1; x <= 1; x += 1) {
-            for (int y = -1; y <= 1; y += 1) {
-                int rMove = m.row1() + x;
-                int cMove = m.col1() + y;
-                int spot = index((char) cMove, (char) rMove);
-                if ((get(spot) != _whoseMove) && (get(spot).isPiece())
-                        && (y != 0 || x != 0)) {
-                    set(spot, whoseMove());
-                    changedSquares.add((char) cMove + "" + (char) rMove);
-                }
+        for (int spot : m.neighbors()) {
+            if ((get(spot) != _whoseMove) && (get(spot).isPiece())) {
+                set(spot, whoseMove());
+                changedSquares.add(colInd(spot) + "" + rowInd(spot));
             }
         }
         return changedSquares;
@@ -309,8 +355,7 @@ class Board extends Observable {
     void pass() {
         if (!canMove(_whoseMove)) {
             _whoseMove = _whoseMove.opposite();
-            setChanged();
-            notifyObservers();
+            announce();
         }
     }
 
@@ -326,15 +371,13 @@ class Board extends Observable {
             numMoves -= 1;
             set(lastMove.col1(), lastMove.row1(), EMPTY);
         }
-        ArrayList<String> changedColors = moveMap.get(lastMove);
+        ArrayList<String> changedColors = changeStack.pop();
         for (String x : changedColors) {
             set(x.charAt(0), x.charAt(1), _whoseMove);
         }
 
         _whoseMove = _whoseMove.opposite();
-        moveMap.remove(lastMove);
-        setChanged();
-        notifyObservers();
+        announce();
     }
 
     /** Return true iff it is legal to place a block at C R. */
@@ -369,8 +412,7 @@ class Board extends Observable {
         set(c, rCharReflect, BLOCKED);
         set(cCharReflect, rCharReflect, BLOCKED);
 
-        setChanged();
-        notifyObservers();
+        announce();
         return true;
     }
 
@@ -426,7 +468,7 @@ class Board extends Observable {
         if (other._whoseMove.equals(this._whoseMove)) {
             if ((other.numMoves == this.numMoves)
                     && (other.numJumps == this.numJumps)) {
-                if ((other.moveMap.equals(this.moveMap))
+                if ((other.changeStack.equals(this.changeStack))
                         && (other.moveStack.equals(this.moveStack))) {
                     return Arrays.equals(this._board, other._board);
                 }
@@ -441,45 +483,31 @@ class Board extends Observable {
     }
 
     /** Return a text depiction of the board (not a dump).  If LEGEND,
-     *  supply row and column numbers around the edges. */
+     *  supply row and column numbers around the edges.  The text is
+     *  built in a buffer that I reuse. */
     String toString(boolean legend) {
-        Formatter out = new Formatter();
-        out.format("===");
-        char col = 'a', row = '7';
-        for (int square = 0; square < SIDE * SIDE; square += 1) {
-            String spot;
-            if (get(col, row) == EMPTY) {
-                spot = "-";
-            } else if (get(col, row) == BLUE) {
-                spot = "b";
-            } else if (get(col, row) == RED) {
-                spot = "r";
-            } else {
-                spot = "X";
+        if (_text == null) {
+            _text = new StringBuilder(TEXT_LENGTH);
+        }
+        StringBuilder out = _text;
+        out.setLength(0);
+        out.append("===");
+        for (char row = '7'; row >= '1'; row -= 1) {
+            out.append("\n  ");
+            if (legend) {
+                out.append(row).append(' ');
             }
-
-            if (square % 7 == 0) {
-                if (legend) {
-                    out.format("\n  " + row + " ");
-                } else {
-                    out.format("\n  ");
+            for (char col = 'a'; col <= 'g'; col += 1) {
+                if (col > 'a') {
+                    out.append(' ');
                 }
-                out.format(spot + " ");
-                col += 1;
-            } else if (square % 7 == 6) {
-                out.format(spot);
-                row -= 1;
-                col = 'a';
-            } else {
-                out.format(spot + " ");
-                col += 1;
+                out.append(SQUARE_CHARS.charAt(get(col, row).ordinal()));
             }
         }
         if (legend) {
-            out.format("\n    a b c d e f g");
+            out.append("\n    a b c d e f g");
         }
-        out.format("\n===");
-        return out.toString();
+        return out.append("\n===").toString();
     }
 
     /** Returns moveStack of the board. */
@@ -487,9 +515,9 @@ class Board extends Observable {
         return moveStack;
     }
 
-    /** Returns moveMap of the board. */
-    public HashMap<Move, ArrayList<String>> getMoveMap() {
-        return moveMap;
+    /** Returns changeStack of the board. */
+    public Stack<ArrayList<String>> getChangeStack() {
+        return changeStack;
     }
 
     /** For reasons of efficiency in copying the board,
@@ -518,12 +546,30 @@ class Board extends Observable {
     /** Returns the number of jumps made. */
     private int numJumps;
 
-    /** Hashmap object containing moves and changed colors. */
-    private HashMap<Move, ArrayList<String>> moveMap;
+    /** Stack of the squares whose colors were changed by each move on
+     *  moveStack.  (The same Move may be on moveStack more than once, made
+     *  by different players, so these are not indexed by Move.) */
+    private Stack<ArrayList<String>> changeStack;
 
     /** Store moves made in game to support Undo(). */
     private Stack<Move> moveStack;
 
+    /** Buffer in which toString builds its text, or null if not yet
+     *  needed. */
+    private StringBuilder _text;
+
+    /** Characters depicting each PieceColor in toString, indexed by
+     *  ordinal. */
+    private static final String SQUARE_CHARS = "-Xrb";
+    /** Length of the longest text from toString. */
+    private static final int TEXT_LENGTH = 160;
+
     /** String object to store error messages. */
     private String infoMessage;
+
+    /** True iff I publish a snapshot after each change. */
+    private final boolean _publishing;
+
+    /** The snapshot published after my latest change, if _publishing. */
+    private volatile BoardSnapshot _snapshot;
 }
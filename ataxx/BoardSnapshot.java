@@ -0,0 +1,265 @@
+package ataxx;
+
+import java.util.Arrays;
+
+import static ataxx.PieceColor.*;
+
+/** An immutable copy of the contents of a Board at some moment: its
+ *  squares, packed one byte each, plus whose move it is and the piece
+ *  and move counts.  Since it never changes, it may be shared freely
+ *  between threads.  Squares are numbered from 0 to SIDE * SIDE - 1 in
+ *  row-major order starting at a1.
+ *
+ *  A snapshot also has a one-line text form (see parse and appendTo):
+ *  the rows from 7 down to 1, separated by '/', each giving its squares
+ *  from a to g as 'r' (red), 'b' (blue), or 'X' (blocked), with a digit
+ *  standing for that many empty squares (never two digits in a row);
+ *  then, after a blank, whose move it is ('r' or 'b'); then, after a
+ *  blank, the board's jump count (the number of jumps made, which ends
+ *  the game on reaching Board.JUMP_LIMIT).  The starting position is
+ *  "r5b/7/7/7/7/7/b5r r 0".
+ *  @author tapan.jasthi
+ */
+final class BoardSnapshot {
+
+    /** Number of squares on a side of the board. */
+    static final int SIDE = Board.SIDE;
+
+    /** A copy of the current contents of BOARD. */
+    BoardSnapshot(Board board) {
+        _squares = new byte[SIDE * SIDE];
+        int red, blue;
+        red = blue = 0;
+        for (int k = 0; k < _squares.length; k += 1) {
+            PieceColor p = board.get(boardIndex(k));
+            _squares[k] = (byte) p.ordinal();
+            if (p == RED) {
+                red += 1;
+            } else if (p == BLUE) {
+                blue += 1;
+            }
+        }
+        _redPieces = red;
+        _bluePieces = blue;
+        _whoseMove = board.whoseMove();
+        _numMoves = board.numMoves();
+        _numJumps = board.numJumps();
+    }
+
+    /** A snapshot with contents SQUARES (PieceColor ordinals, which it
+     *  takes over), WHOSEMOVE on move, and NUMJUMPS jumps, with no
+     *  extensions yet made. */
+    private BoardSnapshot(byte[] squares, PieceColor whoseMove,
+                          int numJumps) {
+        int red, blue;
+        red = blue = 0;
+        for (byte p : squares) {
+            red += p == RED.ordinal() ? 1 : 0;
+            blue += p == BLUE.ordinal() ? 1 : 0;
+        }
+        _squares = squares;
+        _redPieces = red;
+        _bluePieces = blue;
+        _whoseMove = whoseMove;
+        _numMoves = 0;
+        _numJumps = numJumps;
+    }
+
+    /** Return the position whose text form (see above) is TEXT.  Throws
+     *  a GameException if TEXT is not such a form. */
+    static BoardSnapshot parse(CharSequence text) {
+        byte[] squares = new byte[SIDE * SIDE];
+        int n = text.length(), i, c, r;
+        for (i = c = 0, r = SIDE - 1; i < n && text.charAt(i) != ' ';
+             i += 1) {
+            char ch = text.charAt(i);
+            if (ch == '/' && c == SIDE && r > 0) {
+                c = 0;
+                r -= 1;
+            } else if (ch > '0' && ch <= '0' + SIDE - c
+                       && (i == 0 || !Character.isDigit(text.charAt(i - 1)))) {
+                c += ch - '0';
+            } else if (c < SIDE && textColor(ch) > EMPTY.ordinal()) {
+                squares[r * SIDE + c] = (byte) textColor(ch);
+                c += 1;
+            } else {
+                throw badPosition(text);
+            }
+        }
+        if (c != SIDE || r != 0 || i + 2 >= n || text.charAt(i + 2) != ' ') {
+            throw badPosition(text);
+        }
+        int who = textColor(text.charAt(i + 1)), jumps = 0;
+        if (who != RED.ordinal() && who != BLUE.ordinal()) {
+            throw badPosition(text);
+        }
+        for (i += 3; i < n; i += 1) {
+            char ch = text.charAt(i);
+            if (ch < '0' || ch > '9' || jumps > Board.JUMP_LIMIT) {
+                throw badPosition(text);
+            }
+            jumps = 10 * jumps + ch - '0';
+        }
+        if (text.charAt(n - 1) == ' ' || jumps > Board.JUMP_LIMIT) {
+            throw badPosition(text);
+        }
+        return new BoardSnapshot(squares, COLORS[who], jumps);
+    }
+
+    /** Append my text form (see above) to OUT, and return OUT. */
+    StringBuilder appendTo(StringBuilder out) {
+        for (int r = SIDE - 1; r >= 0; r -= 1) {
+            int empty = 0;
+            for (int k = r * SIDE; k < (r + 1) * SIDE; k += 1) {
+                if (_squares[k] == EMPTY.ordinal()) {
+                    empty += 1;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                out.append(TEXT_CHARS.charAt(_squares[k]));
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            out.append(r > 0 ? '/' : ' ');
+        }
+        return out.append(TEXT_CHARS.charAt(_whoseMove.ordinal()))
+            .append(' ').append(_numJumps);
+    }
+
+    /** Return my text form (see above). */
+    String toText() {
+        return appendTo(new StringBuilder(TEXT_LENGTH)).toString();
+    }
+
+    /** Return the ordinal of the PieceColor denoted by CH in text forms,
+     *  or -1 if none. */
+    private static int textColor(char ch) {
+        return TEXT_CHARS.indexOf(ch);
+    }
+
+    /** Return the exception reporting that TEXT is not a position. */
+    private static GameException badPosition(CharSequence text) {
+        return GameException.error("bad position: %s", text);
+    }
+
+    /** Return the number of square C R, where 'a' <= C <= 'g' and
+     *  '1' <= R <= '7'. */
+    static int square(char c, char r) {
+        return (r - '1') * SIDE + (c - 'a');
+    }
+
+    /** Return the Board's linearized index of square K. */
+    static int boardIndex(int k) {
+        return Board.index((char) ('a' + k % SIDE), (char) ('1' + k / SIDE));
+    }
+
+    /** Return the contents of square C R, where 'a' <= C <= 'g' and
+     *  '1' <= R <= '7'. */
+    PieceColor get(char c, char r) {
+        return get(square(c, r));
+    }
+
+    /** Return the contents of square K. */
+    PieceColor get(int k) {
+        return COLORS[_squares[k]];
+    }
+
+    /** Return the number of COLOR pieces. */
+    int numPieces(PieceColor color) {
+        switch (color) {
+        case RED:
+            return _redPieces;
+        case BLUE:
+            return _bluePieces;
+        default:
+            int n = 0;
+            for (byte p : _squares) {
+                if (p == color.ordinal()) {
+                    n += 1;
+                }
+            }
+            return n;
+        }
+    }
+
+    /** Return number of red pieces. */
+    int redPieces() {
+        return _redPieces;
+    }
+
+    /** Return number of blue pieces. */
+    int bluePieces() {
+        return _bluePieces;
+    }
+
+    /** Return the color of the player who has the next move. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return the Board's numMoves(). */
+    int numMoves() {
+        return _numMoves;
+    }
+
+    /** Return the Board's numJumps(). */
+    int numJumps() {
+        return _numJumps;
+    }
+
+    /** Return a mask with bit K set iff square K differs between me and
+     *  OTHER.  All bits are set if OTHER is null. */
+    long diff(BoardSnapshot other) {
+        if (other == null) {
+            return (1L << (SIDE * SIDE)) - 1;
+        }
+        long mask = 0;
+        for (int k = 0; k < _squares.length; k += 1) {
+            if (_squares[k] != other._squares[k]) {
+                mask |= 1L << k;
+            }
+        }
+        return mask;
+    }
+
+    /** Snapshots are equal iff they describe the same position: the same
+     *  contents, player on move, and number of jumps. */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BoardSnapshot)) {
+            return false;
+        }
+        BoardSnapshot other = (BoardSnapshot) obj;
+        return _whoseMove == other._whoseMove
+            && _numJumps == other._numJumps
+            && Arrays.equals(_squares, other._squares);
+    }
+
+    @Override
+    public int hashCode() {
+        return (Arrays.hashCode(_squares) * 31 + _whoseMove.ordinal()) * 31
+            + _numJumps;
+    }
+
+    /** Characters denoting PieceColors in text forms, indexed by
+     *  ordinal. */
+    private static final String TEXT_CHARS = "-Xrb";
+    /** Usual greatest length of a text form. */
+    private static final int TEXT_LENGTH = 64;
+
+    /** All PieceColors, indexed by ordinal. */
+    private static final PieceColor[] COLORS = PieceColor.values();
+
+    /** Contents of each square, as PieceColor ordinals. */
+    private final byte[] _squares;
+    /** Piece counts. */
+    private final int _redPieces, _bluePieces;
+    /** Player on move. */
+    private final PieceColor _whoseMove;
+    /** Move counts, as for Board. */
+    private final int _numMoves, _numJumps;
+}
@@ -0,0 +1,274 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A checkpoint of the game in progress in a Game, kept in a file so
+ *  that the game may be resumed (by 'restore') after the program hosting
+ *  it stops.  The file is written when the game starts and then only
+ *  appended to, a few bytes per move, so that keeping many games
+ *  checkpointed is cheap; a move whose record was cut short by a crash
+ *  is simply lost.  The file holds (in big-endian order, as for
+ *  DataOutput):
+ *  <ul>
+ *  <li> the byte MARK and the byte VERSION;
+ *  <li> a byte N and N ASCII characters: the position at the start (in
+ *       the text form of BoardSnapshot);
+ *  <li> two bytes giving the kinds of the red and blue players (indices
+ *       in GameRecord.KINDS) and a byte giving the difficulty level of
+ *       their AIs (0 for full strength);
+ *  <li> two longs: the seed of the game's random numbers, and the number
+ *       drawn from them (see Game) so far;
+ *  <li> four longs: the base time and increment of the clocks, and the
+ *       time left on Red's and Blue's, in milliseconds (all -1 if the
+ *       game is untimed);
+ *  <li> for each move, a short holding its dense index (Move.index()),
+ *       a long giving the random numbers drawn so far, and a long giving
+ *       the time left on the clock of the side that moved (or -1).
+ *  </ul>
+ *  @author tapan.jasthi
+ */
+class Checkpoint implements Closeable {
+
+    /** The byte that starts a checkpoint. */
+    static final byte MARK = (byte) 0xC7;
+
+    /** The version of the format. */
+    static final byte VERSION = 1;
+
+    /** A game read from a checkpoint. */
+    static final class Saved {
+
+        /** Return the position at the start of the game. */
+        BoardSnapshot position() {
+            return _position;
+        }
+
+        /** Return the kind of player (as for Player.kind()) playing
+         *  COLOR. */
+        String kind(PieceColor color) {
+            return _kinds[color.ordinal()];
+        }
+
+        /** Return the difficulty level of the AIs, or 0. */
+        int level() {
+            return _level;
+        }
+
+        /** Return the seed of the game's random numbers. */
+        long seed() {
+            return _seed;
+        }
+
+        /** Return the number of random numbers drawn after the last
+         *  move. */
+        long draws() {
+            return _draws;
+        }
+
+        /** Return the clocks' base time, or -1 if the game is
+         *  untimed. */
+        long base() {
+            return _base;
+        }
+
+        /** Return the clocks' increment. */
+        long increment() {
+            return _increment;
+        }
+
+        /** Return the time left on COLOR's clock after the last move. */
+        long remaining(PieceColor color) {
+            return _remaining[color.ordinal()];
+        }
+
+        /** Return the moves made from position(). */
+        List<Move> moves() {
+            return _moves;
+        }
+
+        /** Return the length of the checkpoint up to the end of its
+         *  last whole move. */
+        long length() {
+            return _length;
+        }
+
+        /** The starting position. */
+        private BoardSnapshot _position;
+        /** The player kinds, indexed by PieceColor ordinal. */
+        private final String[] _kinds =
+            new String[PieceColor.values().length];
+        /** The clock times, indexed by PieceColor ordinal. */
+        private final long[] _remaining =
+            new long[PieceColor.values().length];
+        /** The AIs' difficulty level. */
+        private int _level;
+        /** The values of seed(), draws(), base(), increment(), and
+         *  length(). */
+        private long _seed, _draws, _base, _increment, _length;
+        /** The moves made. */
+        private final List<Move> _moves = new ArrayList<>();
+    }
+
+    /** A checkpoint kept in FILE, replacing its contents when a game
+     *  starts. */
+    Checkpoint(Path file) throws IOException {
+        this(file, 0);
+    }
+
+    /** A checkpoint kept in FILE, whose first LENGTH bytes (as found by
+     *  read(FILE)) hold the game in progress, to which further moves are
+     *  appended.  Any bytes after those are discarded.  LENGTH is 0 if
+     *  no game is in progress. */
+    Checkpoint(Path file, long length) throws IOException {
+        _channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                    StandardOpenOption.WRITE);
+        if (length > 0) {
+            _channel.truncate(length);
+            _channel.position(length);
+            _inGame = true;
+        }
+    }
+
+    /** Return true iff I am checkpointing a game. */
+    boolean inGame() {
+        return _inGame;
+    }
+
+    /** Start checkpointing a game from POSITION, played by players of
+     *  kinds RED and BLUE at difficulty LEVEL, drawing random numbers
+     *  from a generator seeded with SEED, of which DRAWS have been drawn
+     *  so far, and timed by CLOCK (null if untimed). */
+    void startGame(BoardSnapshot position, String red, String blue,
+                   int level, long seed, long draws, Clock clock)
+        throws IOException {
+        byte[] text = position.toText().getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + text.length);
+        header.put(MARK).put(VERSION).put((byte) text.length).put(text);
+        header.put(GameRecord.kindCode(red)).put(GameRecord.kindCode(blue));
+        header.put((byte) level).putLong(seed).putLong(draws);
+        if (clock == null) {
+            header.putLong(-1).putLong(-1).putLong(-1).putLong(-1);
+        } else {
+            header.putLong(clock.base()).putLong(clock.increment())
+                .putLong(clock.remaining(PieceColor.RED))
+                .putLong(clock.remaining(PieceColor.BLUE));
+        }
+        header.flip();
+        _inGame = false;
+        _channel.truncate(0);
+        _channel.position(0);
+        write(header);
+        _inGame = true;
+    }
+
+    /** Append MOVE, just made, after which DRAWS random numbers have
+     *  been drawn in all and the mover's clock shows REMAINING
+     *  milliseconds (-1 if untimed). */
+    void move(Move move, long draws, long remaining) throws IOException {
+        assert _inGame;
+        _record.clear();
+        _record.putShort((short) move.index()).putLong(draws)
+            .putLong(remaining).flip();
+        write(_record);
+    }
+
+    /** Stop checkpointing the current game, leaving the checkpoint as it
+     *  is. */
+    void endGame() {
+        _inGame = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _inGame = false;
+        _channel.close();
+    }
+
+    /** Write all of DATA at the end of the checkpoint. */
+    private void write(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            _channel.write(data);
+        }
+    }
+
+    /** Return the game checkpointed in FILE, ignoring a last move that
+     *  was not completely written.  Throws IOException if FILE cannot be
+     *  read or is not a checkpoint of a legal game. */
+    static Saved read(Path file) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        Saved saved = new Saved();
+        Board board;
+        try {
+            if (data.get() != MARK || data.get() != VERSION) {
+                throw badCheckpoint(file);
+            }
+            byte[] text = new byte[data.get() & 0xff];
+            data.get(text);
+            saved._position =
+                BoardSnapshot.parse(new String(text,
+                                               StandardCharsets.US_ASCII));
+            saved._kinds[PieceColor.RED.ordinal()] = kind(data.get());
+            saved._kinds[PieceColor.BLUE.ordinal()] = kind(data.get());
+            saved._level = data.get();
+            saved._seed = data.getLong();
+            saved._draws = data.getLong();
+            saved._base = data.getLong();
+            saved._increment = data.getLong();
+            saved._remaining[PieceColor.RED.ordinal()] = data.getLong();
+            saved._remaining[PieceColor.BLUE.ordinal()] = data.getLong();
+        } catch (BufferUnderflowException | GameException excp) {
+            throw badCheckpoint(file);
+        }
+        board = new Board(saved._position);
+        while (data.remaining() >= MOVE_SIZE) {
+            int index = data.getShort();
+            if (index < 0 || index >= Move.NUM_MOVES) {
+                throw badCheckpoint(file);
+            }
+            Move move = Move.move(index);
+            if (move.isPass() ? board.canMove(board.whoseMove())
+                : !board.legalMove(move)) {
+                throw badCheckpoint(file);
+            }
+            saved._draws = data.getLong();
+            saved._remaining[board.whoseMove().ordinal()] = data.getLong();
+            board.makeMove(move);
+            saved._moves.add(move);
+        }
+        saved._length = data.position();
+        return saved;
+    }
+
+    /** Return the player kind whose code is CODE. */
+    private static String kind(byte code) {
+        return code >= 0 && code < GameRecord.KINDS.length
+            ? GameRecord.KINDS[code] : GameRecord.KINDS[0];
+    }
+
+    /** Return an exception reporting that FILE is not a checkpoint. */
+    private static IOException badCheckpoint(Path file) {
+        return new IOException("bad checkpoint: " + file);
+    }
+
+    /** Size of the fixed fields of the header. */
+    private static final int HEADER_SIZE = 3 + 3 + 8 * 6;
+    /** Size of the record of a move. */
+    private static final int MOVE_SIZE = 2 + 8 + 8;
+
+    /** The file being written. */
+    private final FileChannel _channel;
+    /** Buffer holding the record of a move. */
+    private final ByteBuffer _record = ByteBuffer.allocate(MOVE_SIZE);
+    /** True iff I am checkpointing a game. */
+    private boolean _inGame;
+}
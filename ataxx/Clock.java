@@ -0,0 +1,132 @@
+package ataxx;
+
+import java.util.function.LongSupplier;
+
+/** A pair of game clocks, one for each side, counting down from a base
+ *  time, with an increment added to a side's clock after each of its
+ *  moves (unless it has run out).  At most one clock runs at a time.
+ *  Times are in milliseconds.
+ *  @author tapan.jasthi
+ */
+final class Clock {
+
+    /** Clocks starting at BASE milliseconds, each gaining INCREMENT
+     *  milliseconds after each move of its side. */
+    Clock(long base, long increment) {
+        this(base, increment, System::nanoTime);
+    }
+
+    /** Clocks as for Clock(BASE, INCREMENT), but reading the time, in
+     *  nanoseconds, from NANOS. */
+    Clock(long base, long increment, LongSupplier nanos) {
+        _base = base;
+        _increment = increment;
+        _nanos = nanos;
+        reset();
+    }
+
+    /** Set both clocks to the base time, and stop them. */
+    void reset() {
+        _remaining[PieceColor.RED.ordinal()] = _base;
+        _remaining[PieceColor.BLUE.ordinal()] = _base;
+        _running = null;
+    }
+
+    /** Start SIDE's clock, stopping the other's (without an increment).
+     *  Has no effect if SIDE's clock is already running. */
+    void start(PieceColor side) {
+        if (_running == side) {
+            return;
+        }
+        charge();
+        _running = side;
+        _started = _nanos.getAsLong();
+    }
+
+    /** Stop the running clock, if any, after a move by its side, adding
+     *  the increment unless it has run out. */
+    void stop() {
+        PieceColor side = _running;
+        charge();
+        if (side != null && !flagged(side)) {
+            _remaining[side.ordinal()] += _increment;
+        }
+    }
+
+    /** Return the time left on SIDE's clock, which is negative if it has
+     *  run out. */
+    long remaining(PieceColor side) {
+        long left = _remaining[side.ordinal()];
+        if (side == _running) {
+            left -= (_nanos.getAsLong() - _started) / NANOS_PER_MILLI;
+        }
+        return left;
+    }
+
+    /** Return true iff SIDE's clock has run out. */
+    boolean flagged(PieceColor side) {
+        return remaining(side) < 0;
+    }
+
+    /** Set SIDE's clock, which must not be running, to REMAINING
+     *  milliseconds. */
+    void set(PieceColor side, long remaining) {
+        assert side != _running;
+        _remaining[side.ordinal()] = remaining;
+    }
+
+    /** Return the base time. */
+    long base() {
+        return _base;
+    }
+
+    /** Return the increment. */
+    long increment() {
+        return _increment;
+    }
+
+    /** Return the side whose clock is running, or null. */
+    PieceColor running() {
+        return _running;
+    }
+
+    /** Stop the running clock, if any, charging it with the time since
+     *  it started. */
+    private void charge() {
+        if (_running != null) {
+            _remaining[_running.ordinal()] = remaining(_running);
+            _running = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Red %s, Blue %s",
+                             format(remaining(PieceColor.RED)),
+                             format(remaining(PieceColor.BLUE)));
+    }
+
+    /** Return MILLIS milliseconds as minutes, seconds and tenths. */
+    private static String format(long millis) {
+        long tenths = Math.max(0, millis) / 100;
+        return String.format("%d:%02d.%d", tenths / 600, tenths / 10 % 60,
+                             tenths % 10);
+    }
+
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /** Starting time of each clock. */
+    private final long _base;
+    /** Time added after each move. */
+    private final long _increment;
+    /** Source of the time. */
+    private final LongSupplier _nanos;
+    /** Time left on each side's clock when it last stopped, indexed by
+     *  PieceColor ordinal. */
+    private final long[] _remaining = new long[PieceColor.values().length];
+    /** The side whose clock is running, or null. */
+    private PieceColor _running;
+    /** Time (from _nanos) at which the running clock started. */
+    private long _started;
+}
@@ -13,7 +13,7 @@ class Command {
      *  All other commands are upper-case versions of what the
      *  programmer writes. */
     enum Type {
-        AUTO("(?i)auto\\s+(red|blue)"),
+        AUTO("(?i)auto\\s+((?:red|blue)(?:\\s+(?:ai|mcts|uct|ab|pat))?)"),
         BLOCK("(?i)block\\s([a-g][1-7])"),
         MANUAL("(?i)manual\\s+(red|blue)"),
         SEED("(?i)seed\\s+(-?[0-9]+)"),
@@ -21,6 +21,20 @@ class Command {
         PASS("(?i)pass|-"),
         PIECEMOVE("([a-g])([1-7])-([a-g])([1-7])$"),
         LOAD("(?i)load\\s+(([\\w]+(\\/|\\-)*[\\w]+)+\\.[\\w]+$)"),
+        PONDER("(?i)ponder\\s+(on|off)"),
+        RECORD("(?i)record\\s+(\\S+)"),
+        WEIGHTS("(?i)weights\\s+(\\S+)"),
+        CACHE("(?i)cache\\s+(\\S+)"),
+        SETPOS("(?i)setpos\\s+(\\S+\\s+\\S+\\s+\\S+)"),
+        GETPOS("(?i)getpos"),
+        CLOCK("(?i)clock\\s+(off|[0-9]+(?:\\.[0-9]*)?)"
+              + "(?:\\s+([0-9]+(?:\\.[0-9]*)?))?"),
+        TIME("(?i)time"),
+        LEVEL("(?i)level\\s+(off|[0-9]{1,2})"),
+        CHECKPOINT("(?i)checkpoint\\s+(\\S+)"),
+        RESTORE("(?i)restore\\s+(\\S+)"),
+        EXPLORE("(?i)explore(?:\\s+(\\S+))?"),
+        ANALYZE("(?i)analyze(?:\\s+([1-9][0-9]*))?"),
         QUIT, CLEAR, DUMP, HELP,
         /** Syntax error in command. */
         ERROR(".*"),
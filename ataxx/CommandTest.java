@@ -31,6 +31,10 @@ public class CommandTest {
     @Test public void testAUTO() {
         check("auto red", AUTO, "red");
         check("auto blue", AUTO, "blue");
+        check("auto red mcts", AUTO, "red mcts");
+        check("auto blue uct", AUTO, "blue uct");
+        check("auto blue ab", AUTO, "blue ab");
+        check("auto red pat", AUTO, "red pat");
         checkError("auto green");
         checkError("auto");
         checkError("auto red foo");
@@ -69,6 +73,76 @@ public class CommandTest {
         checkError("clear foo");
     }
 
+    @Test public void testPONDER() {
+        check("ponder on", PONDER, "on");
+        check("ponder off", PONDER, "off");
+        checkError("ponder");
+        checkError("ponder maybe");
+    }
+
+    @Test public void testRECORD() {
+        check("record games.atx", RECORD, "games.atx");
+        check("record off", RECORD, "off");
+        checkError("record");
+    }
+
+    @Test public void testWEIGHTS() {
+        check("weights weights.txt", WEIGHTS, "weights.txt");
+        check("weights off", WEIGHTS, "off");
+        checkError("weights");
+    }
+
+    @Test public void testSETPOS() {
+        check("setpos r5b/7/7/7/7/7/b5r r 0", SETPOS,
+              "r5b/7/7/7/7/7/b5r r 0");
+        check("SETPOS  7/7/7/3X3/7/7/7 b 12", SETPOS, "7/7/7/3X3/7/7/7 b 12");
+        checkError("setpos r5b/7/7/7/7/7/b5r");
+        check("getpos", GETPOS);
+    }
+
+    @Test public void testCLOCK() {
+        check("clock 300 2", CLOCK, "300", "2");
+        check("clock 0.5", CLOCK, "0.5", null);
+        check("clock off", CLOCK, "off", null);
+        checkError("clock");
+        checkError("clock 5 off");
+        check("time", TIME);
+    }
+
+    @Test public void testCHECKPOINT() {
+        check("checkpoint game.ckpt", CHECKPOINT, "game.ckpt");
+        check("checkpoint off", CHECKPOINT, "off");
+        check("restore /tmp/game.ckpt", RESTORE, "/tmp/game.ckpt");
+        checkError("checkpoint");
+        checkError("restore");
+    }
+
+    @Test public void testLEVEL() {
+        check("level 3", LEVEL, "3");
+        check("Level off", LEVEL, "off");
+        checkError("level");
+        checkError("level high");
+    }
+
+    @Test public void testCACHE() {
+        check("cache search.cache", CACHE, "search.cache");
+        check("cache off", CACHE, "off");
+        checkError("cache");
+    }
+
+    @Test public void testEXPLORE() {
+        check("explore", EXPLORE, (String) null);
+        check("explore games.idx", EXPLORE, "games.idx");
+        checkError("exploregames.idx");
+    }
+
+    @Test public void testANALYZE() {
+        check("analyze", ANALYZE, (String) null);
+        check("analyze 5", ANALYZE, "5");
+        checkError("analyze 0");
+        checkError("analyze foo");
+    }
+
     @Test public void testMOVE() {
         check("a3-b3", PIECEMOVE, "a", "3", "b", "3");
         checkError("a3b3");
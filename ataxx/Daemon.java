@@ -0,0 +1,235 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/** Serves sessions of Ataxx on a Unix-domain socket from a JVM that
+ *  stays running, so that a game need not wait for a JVM to start, load
+ *  its classes, and compile its searches.  Each connection is a session
+ *  of its own (see SessionHost), which reads commands from the
+ *  connection and writes its messages to it, just as 'java ataxx.Main'
+ *  does on the standard input and output, and the connection is closed
+ *  when the session ends.  A thin client such as
+ *  testing/ataxx-client.py connects the two.  A connection whose first
+ *  line is 'status' is instead answered with one line describing the
+ *  sessions (see SessionHost.toString): how many are resident and how
+ *  many hibernating, and how often they have been hibernated and
+ *  resumed.  Usage:
+ *      java ataxx.Main --daemon SOCKET
+ *  @author tapan.jasthi
+ */
+class Daemon implements Closeable {
+
+    /** Milliseconds for which a session may be idle before it is
+     *  hibernated. */
+    static final long IDLE_MILLIS = 60000;
+
+    /** A daemon listening on the socket named SOCKET, which must not be
+     *  in use by another daemon.  Throws IOException if it cannot. */
+    Daemon(Path socket) throws IOException {
+        _socket = socket;
+        if (inUse(socket)) {
+            throw new IOException("socket in use: " + socket);
+        }
+        Files.deleteIfExists(socket);
+        _server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        _server.bind(address(socket));
+    }
+
+    /** Play games between AIs of each kind in a session of its own,
+     *  returning when they end, so that the code of a game and of each
+     *  engine's search is loaded and compiled before the first
+     *  connection.  The games are short: the alpha-beta engines play at
+     *  a low difficulty level, and all sides play on a clock. */
+    void warmUp() {
+        Semaphore over = new Semaphore(0);
+        SessionHost.Session session = _host.open(new Reporter() {
+            @Override
+            public void errMsg(String format, Object... args) {
+            }
+
+            @Override
+            public void outcomeMsg(String format, Object... args) {
+                over.release();
+            }
+
+            @Override
+            public void moveMsg(String format, Object... args) {
+            }
+        });
+        for (String line : WARM_UP_SETUP) {
+            session.send(line);
+        }
+        for (int i = 0; i < WARM_UP_ENGINES.length; i += 2) {
+            session.send("clear");
+            session.send("auto red " + WARM_UP_ENGINES[i]);
+            session.send("auto blue " + WARM_UP_ENGINES[i + 1]);
+            session.send("start");
+            over.acquireUninterruptibly();
+        }
+        session.close();
+        session.done().join();
+    }
+
+    /** Accept and serve connections until closed. */
+    void serve() throws IOException {
+        while (_server.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = _server.accept();
+            } catch (IOException excp) {
+                if (!_server.isOpen()) {
+                    break;
+                }
+                throw excp;
+            }
+            CONNECTIONS.execute(() -> connect(channel));
+        }
+    }
+
+    /** Serve CHANNEL, a new connection, with a session of its own until
+     *  the session ends, which it does after the client closes its end
+     *  and the session has carried out the commands it sent.  CHANNEL is
+     *  closed only then, so that the session's last messages reach the
+     *  client.  If the first line from CHANNEL is STATUS, answer it with
+     *  status() instead. */
+    private void connect(SocketChannel channel) {
+        PrintWriter out =
+            new PrintWriter(Channels.newWriter(channel,
+                                               StandardCharsets.UTF_8));
+        BufferedReader in =
+            new BufferedReader(Channels.newReader(channel,
+                                                  StandardCharsets.UTF_8));
+        String first;
+        try {
+            first = in.readLine();
+        } catch (IOException excp) {
+            first = null;
+        }
+        if (first == null || first.trim().equals(STATUS)) {
+            if (first != null) {
+                out.println(status());
+                out.flush();
+            }
+            close(channel);
+            return;
+        }
+        SessionHost.Session session = _host.open(new Reporter() {
+            @Override
+            public void errMsg(String format, Object... args) {
+                send(format, args);
+            }
+
+            @Override
+            public void outcomeMsg(String format, Object... args) {
+                send(format, args);
+            }
+
+            @Override
+            public void moveMsg(String format, Object... args) {
+                send(format, args);
+            }
+
+            /** Send the line formed from FORMAT and ARGS to the
+             *  client. */
+            private void send(String format, Object... args) {
+                synchronized (out) {
+                    out.printf(format, args);
+                    out.println();
+                    out.flush();
+                }
+            }
+        });
+        session.done().thenRun(() -> close(channel));
+        try {
+            for (String line = first; line != null; line = in.readLine()) {
+                session.send(line);
+            }
+        } catch (IOException | GameException excp) {
+            /* The client or the session has gone. */
+        }
+        session.close();
+    }
+
+    /** Return a line describing my sessions. */
+    String status() {
+        return _host.toString();
+    }
+
+    /** Close CHANNEL, ignoring errors. */
+    private static void close(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException excp) {
+            /* Ignore. */
+        }
+    }
+
+    /** Stop accepting connections, end all sessions, and remove the
+     *  socket. */
+    @Override
+    public void close() throws IOException {
+        _server.close();
+        _host.close();
+        Files.deleteIfExists(_socket);
+    }
+
+    /** Return true iff a daemon is listening on SOCKET. */
+    private static boolean inUse(Path socket) {
+        if (!Files.exists(socket)) {
+            return false;
+        }
+        try {
+            SocketChannel.open(address(socket)).close();
+            return true;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Return the address of the Unix-domain socket named SOCKET. */
+    private static UnixDomainSocketAddress address(Path socket) {
+        return UnixDomainSocketAddress.of(socket);
+    }
+
+    /** The first line of a connection asking for status(). */
+    static final String STATUS = "status";
+
+    /** Commands that set up the warm-up games. */
+    private static final String[] WARM_UP_SETUP = {
+        "seed 0", "level 4", "clock 2",
+    };
+    /** The engines playing Red and Blue in each warm-up game, in
+     *  turn. */
+    private static final String[] WARM_UP_ENGINES = {
+        "ai", "mcts", "ab", "pat",
+    };
+
+    /** Serves connections. */
+    private static final ExecutorService CONNECTIONS =
+        Executors.newCachedThreadPool((r) -> {
+            Thread t = new Thread(r, "ataxx-connection");
+            t.setDaemon(true);
+            return t;
+        });
+
+    /** The socket's name. */
+    private final Path _socket;
+    /** The listening socket. */
+    private final ServerSocketChannel _server;
+    /** The sessions. */
+    private final SessionHost _host = new SessionHost(IDLE_MILLIS);
+}
@@ -0,0 +1,320 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/** A line-based protocol, after the Universal Chess Interface, by which
+ *  another program (a graphical front end or a match manager) may drive
+ *  an AlphaBetaAI.  The controlling program sends commands one per line,
+ *  and the engine answers with lines of its own:
+ *  <dl>
+ *  <dt> ataxx-engine <dd> Answered by 'id name ...', 'id author ...',
+ *       and 'engineok'.
+ *  <dt> isready <dd> Answered by 'readyok' (even while searching).
+ *  <dt> newgame <dd> Forget the results of earlier searches.
+ *  <dt> position (startpos | pos P S J) [moves M ...] <dd> Set up the
+ *       starting position, or the one whose text form (see
+ *       BoardSnapshot) is 'P S J', and then make moves M (such as
+ *       a7-b6, or - to pass).
+ *  <dt> go [depth D] [nodes N] [movetime T] [rtime T] [btime T]
+ *       [rinc T] [binc T] [infinite] [ponder] <dd> Search the position,
+ *       to at most D plies, visiting at most N positions, for T
+ *       milliseconds, or within the time given by the clocks of Red and
+ *       Blue and their increments (see TimeManager); with none of these,
+ *       or 'infinite', until stopped.  After each iteration of the
+ *       search, the engine reports
+ *           info depth D score S nodes N nps R time T pv M ...
+ *       (the score being in units of 1/64 piece, as for AlphaBetaAI,
+ *       for the side on move), and at the end, 'bestmove M [ponder
+ *       M2]'.  With 'ponder', the position is the one expected after
+ *       the engine's move and its opponent's expected reply, and the
+ *       search goes on without regard to time until 'ponderhit' or
+ *       'stop'.
+ *  <dt> stop <dd> End the search in progress, which then reports its
+ *       best move at once.
+ *  <dt> ponderhit <dd> The expected reply was made: go on searching,
+ *       now within the time given to 'go'.
+ *  <dt> quit <dd> Stop any search and exit.
+ *  </dl>
+ *  A command that cannot be carried out is answered by 'info string'
+ *  and a message.  Commands are read while a search runs, so it may be
+ *  stopped at any time.  Usage:
+ *      java ataxx.Main --engine
+ *  @author tapan.jasthi
+ */
+class EngineProtocol {
+
+    /** A protocol session reading commands from INPUT and writing
+     *  replies to OUTPUT, using TABLE (if not null) to store search
+     *  results. */
+    EngineProtocol(Reader input, Writer output, TranspositionTable table) {
+        _input = new BufferedReader(input);
+        _output = new PrintWriter(output);
+        _table = table;
+        _ai = new AlphaBetaAI(null, PieceColor.RED,
+                              EnumSet.allOf(AlphaBetaAI.Feature.class),
+                              AlphaBetaAI.MAX_DEPTH, 0);
+        _ai.useTable(table);
+        _ai.listen(this::info);
+        _board = new Board(new Board().snapshot());
+    }
+
+    /** Process commands until 'quit' or the end of input. */
+    void run() throws IOException {
+        for (String line = _input.readLine(); line != null;
+             line = _input.readLine()) {
+            String[] words = line.trim().split("\\s+");
+            try {
+                if (!command(words)) {
+                    break;
+                }
+            } catch (GameException excp) {
+                send("info string %s", excp.getMessage());
+            }
+        }
+        stop();
+    }
+
+    /** Carry out the command whose words are WORDS, and return false iff
+     *  it is 'quit'. */
+    private boolean command(String[] words) {
+        switch (words[0]) {
+        case "ataxx-engine":
+            send("id name ataxx");
+            send("id author tapan.jasthi");
+            send("engineok");
+            break;
+        case "isready":
+            send("readyok");
+            break;
+        case "newgame":
+            stop();
+            if (_table != null) {
+                _table.clear();
+            }
+            break;
+        case "position":
+            stop();
+            position(words);
+            break;
+        case "go":
+            stop();
+            go(words);
+            break;
+        case "stop":
+            stop();
+            break;
+        case "ponderhit":
+            ponderhit();
+            break;
+        case "quit":
+            return false;
+        case "":
+            break;
+        default:
+            send("info string unknown command: %s", words[0]);
+        }
+        return true;
+    }
+
+    /** Set up the position given by WORDS, the words of a 'position'
+     *  command. */
+    private void position(String[] words) {
+        int i;
+        Board b;
+        if (words.length >= 2 && words[1].equals("startpos")) {
+            b = new Board(new Board().snapshot());
+            i = 2;
+        } else if (words.length >= 5 && words[1].equals("pos")) {
+            b = new Board(BoardSnapshot.parse(words[2] + " " + words[3]
+                                              + " " + words[4]));
+            i = 5;
+        } else {
+            throw GameException.error("bad position command");
+        }
+        if (i < words.length && !words[i].equals("moves")) {
+            throw GameException.error("bad position command");
+        }
+        for (i += 1; i < words.length; i += 1) {
+            Move move = Move.parse(words[i]);
+            if (move == null
+                || (move.isPass() ? b.canMove(b.whoseMove())
+                    : !b.legalMove(move))) {
+                throw GameException.error("illegal move: %s", words[i]);
+            }
+            b.makeMove(move);
+        }
+        _board = b;
+    }
+
+    /** Start searching the current position as directed by WORDS, the
+     *  words of a 'go' command. */
+    private void go(String[] words) {
+        int depth = AlphaBetaAI.MAX_DEPTH;
+        long nodes = Long.MAX_VALUE, moveTime = -1;
+        long[] clocks = { -1, -1 }, increments = { 0, 0 };
+        boolean ponder = false;
+        for (int i = 1; i < words.length; i += 1) {
+            switch (words[i]) {
+            case "depth":
+                depth = (int) Math.min(number(words, i += 1),
+                                       AlphaBetaAI.MAX_DEPTH);
+                break;
+            case "nodes":
+                nodes = number(words, i += 1);
+                break;
+            case "movetime":
+                moveTime = number(words, i += 1);
+                break;
+            case "rtime":
+                clocks[0] = number(words, i += 1);
+                break;
+            case "btime":
+                clocks[1] = number(words, i += 1);
+                break;
+            case "rinc":
+                increments[0] = number(words, i += 1);
+                break;
+            case "binc":
+                increments[1] = number(words, i += 1);
+                break;
+            case "infinite":
+                break;
+            case "ponder":
+                ponder = true;
+                break;
+            default:
+                throw GameException.error("bad go option: %s", words[i]);
+            }
+        }
+        int side = _board.whoseMove() == PieceColor.RED ? 0 : 1;
+        long clock = clocks[side], increment = increments[side],
+            fixed = moveTime;
+        int empties = _board.numPieces(PieceColor.EMPTY);
+        _timing = fixed >= 0 ? () -> TimeManager.fixed(fixed)
+            : clock >= 0 ? () -> new TimeManager(clock, increment, empties)
+            : null;
+        _pondering = ponder;
+        _ai.limit(depth, nodes);
+        _ai.useTime(ponder || _timing == null ? null : _timing.get());
+        _start = System.nanoTime();
+        CompletableFuture<Move> search =
+            _ai.startMove(new Board(_board.snapshot()));
+        _search = search;
+        search.thenAccept((move) -> searched(search, move));
+    }
+
+    /** Return WORDS[I], which should be a non-negative integer, as a
+     *  long. */
+    private static long number(String[] words, int i) {
+        if (i >= words.length || !words[i].matches("[0-9]{1,18}")) {
+            throw GameException.error("bad go command");
+        }
+        return Long.parseLong(words[i]);
+    }
+
+    /** Switch the search in progress from pondering to searching within
+     *  the time given to 'go'. */
+    private synchronized void ponderhit() {
+        if (!_pondering) {
+            return;
+        }
+        _pondering = false;
+        if (_timing != null) {
+            _ai.useTime(_timing.get());
+        }
+        if (_search != null && _search.isDone()) {
+            bestMove(_search.join());
+        }
+    }
+
+    /** Stop the search in progress, if any, returning once it has
+     *  reported its best move. */
+    private void stop() {
+        CompletableFuture<Move> search = _search;
+        if (search == null) {
+            return;
+        }
+        synchronized (this) {
+            _pondering = false;
+        }
+        _ai.stopSearch();
+        Move move = search.join();
+        synchronized (this) {
+            if (_search == search) {
+                bestMove(move);
+            }
+        }
+    }
+
+    /** Report MOVE, just found by SEARCH, as the best move, unless the
+     *  search is pondering, in which case hold it until 'ponderhit' or
+     *  'stop'.  Nothing is reported if SEARCH is no longer the search in
+     *  progress, having been stopped (and reported) already. */
+    private synchronized void searched(CompletableFuture<Move> search,
+                                       Move move) {
+        if (_search == search && !_pondering) {
+            bestMove(move);
+        }
+    }
+
+    /** Report MOVE as the best move of the search, once. */
+    private synchronized void bestMove(Move move) {
+        if (_search == null) {
+            return;
+        }
+        _search = null;
+        List<Move> line = _ai.principalVariation();
+        if (line.size() > 1 && line.get(0).equals(move)) {
+            send("bestmove %s ponder %s", move, line.get(1));
+        } else {
+            send("bestmove %s", move);
+        }
+    }
+
+    /** Report the iteration just completed by SEARCHER. */
+    private void info(AlphaBetaAI searcher) {
+        long micros = Math.max(1, (System.nanoTime() - _start) / 1000);
+        StringBuilder pv = new StringBuilder();
+        for (Move move : searcher.principalVariation()) {
+            pv.append(' ').append(move);
+        }
+        send("info depth %d score %d nodes %d nps %d time %d pv%s",
+             searcher.depth(), searcher.score(), searcher.nodes(),
+             searcher.nodes() * 1000000 / micros, micros / 1000, pv);
+    }
+
+    /** Send a line formed from FORMAT and ARGS, as for String.format. */
+    private synchronized void send(String format, Object... args) {
+        _output.printf(format + "%n", args);
+        _output.flush();
+    }
+
+    /** Source of commands. */
+    private final BufferedReader _input;
+    /** Destination of replies. */
+    private final PrintWriter _output;
+    /** Table of search results, or null. */
+    private final TranspositionTable _table;
+    /** The engine. */
+    private final AlphaBetaAI _ai;
+    /** The current position. */
+    private Board _board;
+    /** The search in progress whose best move is yet to be reported, or
+     *  null. */
+    private volatile CompletableFuture<Move> _search;
+    /** True iff the search in progress is pondering. */
+    private boolean _pondering;
+    /** Supplies the time budget of the search in progress, from the
+     *  moment it is asked, or null if it has none. */
+    private Supplier<TimeManager> _timing;
+    /** Time (System.nanoTime) at which the search in progress began. */
+    private long _start;
+}
@@ -0,0 +1,140 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Measures the throughput of position evaluation: one position at a
+ *  time from BoardSnapshots (as a search reading a Board would),
+ *  one position at a time from bitboards (as an AlphaBetaAI does), and a
+ *  PositionBatch at a time by a BatchEvaluator, both by features and by
+ *  pattern tables.  The positions come from random games.  Each method
+ *  first runs a quarter of its rounds untimed, so that it is compiled.
+ *  Usage:
+ *      java ataxx.EvalBench [ -n POSITIONS ] [ -r ROUNDS ] [ -w WEIGHTS ]
+ *  @author tapan.jasthi
+ */
+public class EvalBench {
+
+    /** Default number of positions. */
+    private static final int POSITIONS = 1 << 15;
+    /** Default number of times each is evaluated by each method. */
+    private static final int ROUNDS = 20;
+
+    /** Run the benchmark as directed by ARGS (see above). */
+    public static void main(String... args) {
+        int n = POSITIONS, rounds = ROUNDS;
+        Evaluation eval = new Evaluation(WEIGHTS);
+        try {
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                switch (args[i]) {
+                case "-n":
+                    n = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-r":
+                    rounds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-w":
+                    eval = Evaluation.load(Paths.get(args[i + 1]));
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+                }
+            }
+        } catch (IOException | IllegalArgumentException excp) {
+            System.err.println("Usage: java ataxx.EvalBench [ -n POSITIONS ]"
+                               + " [ -r ROUNDS ] [ -w WEIGHTS ]");
+            System.exit(1);
+        }
+
+        List<BoardSnapshot> positions = positions(n, new Random(1));
+        PositionBatch batch = new PositionBatch(n);
+        for (BoardSnapshot position : positions) {
+            batch.add(position);
+        }
+        BatchEvaluator evaluator = new BatchEvaluator(eval);
+        PatternTable table = new PatternTable(eval);
+        int[] scores = new int[n], features = new int[Evaluation.NUM_FEATURES];
+        long check = 0;
+
+        System.out.printf("%-22s %14s %10s%n", "method", "positions/sec",
+                          "ratio");
+        double base = 0;
+        for (int pass = 0; pass < METHODS.length * 2; pass += 1) {
+            int method = pass / 2;
+            int k = pass % 2 == 0 ? Math.max(1, rounds / 4) : rounds;
+            long start = System.nanoTime();
+            for (int r = 0; r < k; r += 1) {
+                switch (method) {
+                case 0:
+                    for (int i = 0; i < n; i += 1) {
+                        PositionBatch one = new PositionBatch(1);
+                        one.add(positions.get(i));
+                        scores[i] = eval.evaluate(one.mine(0), one.theirs(0),
+                                                  one.blocks(0), features);
+                    }
+                    break;
+                case 1:
+                    for (int i = 0; i < n; i += 1) {
+                        scores[i] = eval.evaluate(batch.mine(i),
+                                                  batch.theirs(i),
+                                                  batch.blocks(i), features);
+                    }
+                    break;
+                case 2:
+                    evaluator.evaluate(batch, scores);
+                    break;
+                default:
+                    BatchEvaluator.patterns(batch, table, scores);
+                    break;
+                }
+                check += scores[r % n];
+            }
+            if (pass % 2 == 0) {
+                continue;
+            }
+            double rate = (double) n * rounds * 1e9
+                / (System.nanoTime() - start);
+            base = method == 0 ? rate : base;
+            System.out.printf("%-22s %14.0f %10.2f%n", METHODS[method], rate,
+                              rate / base);
+        }
+        if (check == Long.MIN_VALUE) {
+            System.out.println();
+        }
+    }
+
+    /** Return N positions from random games, chosen using RANDOM. */
+    private static List<BoardSnapshot> positions(int n, Random random) {
+        List<BoardSnapshot> result = new ArrayList<>();
+        PlayoutBoard pos = new PlayoutBoard();
+        int[] moves = new int[PlayoutBoard.MAX_MOVES];
+        while (result.size() < n) {
+            Board b = new Board(new Board().snapshot());
+            pos.copy(b);
+            while (!pos.gameOver() && result.size() < n) {
+                int k = pos.moves(moves);
+                int move = k == 0 ? PlayoutBoard.PASS
+                    : moves[random.nextInt(k)];
+                pos.play(move);
+                if (move == PlayoutBoard.PASS) {
+                    b.pass();
+                } else {
+                    b.makeMove(PlayoutBoard.toMove(move));
+                }
+                result.add(b.snapshot());
+            }
+        }
+        return result;
+    }
+
+    /** Names of the methods measured. */
+    private static final String[] METHODS = {
+        "per board", "per position", "batch features", "batch patterns",
+    };
+
+    /** Default weights, which exercise every feature. */
+    private static final double[] WEIGHTS = { 1, 0.4, 0.4, -0.5, 1, 0.1, 2 };
+}
@@ -0,0 +1,222 @@
+package ataxx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/** A static evaluation of positions: a weighted sum of features of the
+ *  position, each the difference between its value for the side to
+ *  move and for the opponent (except TEMPO, which is always 1).  The
+ *  weights are in units of pieces; MATERIAL counts just the pieces.
+ *  Values are in units of 1/SCALE piece, so that fractional weights
+ *  still tell positions apart.
+ *  Positions are given as bitboards, with bit K standing for square K
+ *  as numbered by BoardSnapshot, so that evaluation allocates nothing.
+ *
+ *  Weights are read from and written to text files holding one line
+ *  per feature: its name and weight.  Lines starting with '#' are
+ *  comments, and missing features have weight 0.
+ *  @author tapan.jasthi
+ */
+final class Evaluation {
+
+    /** Names of the features, in order: pieces; empty squares adjacent
+     *  to pieces (which can be cloned into); empty squares two away from
+     *  pieces and not adjacent to them (which can only be jumped to);
+     *  pieces next to an empty square the opponent can reach; pieces on
+     *  the edge; pieces in corners; and being on move. */
+    static final String[] FEATURES = {
+        "material", "frontier", "reach", "exposed", "edges", "corners",
+        "tempo",
+    };
+
+    /** Units of values per piece. */
+    static final int SCALE = 64;
+
+    /** Number of features. */
+    static final int NUM_FEATURES = FEATURES.length;
+
+    /** Indices of the features. */
+    static final int MATERIAL_FEATURE = 0, FRONTIER = 1, REACH = 2,
+        EXPOSED = 3, EDGES = 4, CORNERS = 5, TEMPO = 6;
+
+    /** The evaluation that counts just pieces. */
+    static final Evaluation MATERIAL =
+        new Evaluation(new double[] { 1, 0, 0, 0, 0, 0, 0 });
+
+    /** An evaluation with weights WEIGHTS[i] for feature i. */
+    Evaluation(double[] weights) {
+        assert weights.length == NUM_FEATURES;
+        _weights = weights.clone();
+    }
+
+    /** Return the weight of feature I. */
+    double weight(int i) {
+        return _weights[i];
+    }
+
+    /** Return my value, in units of 1/SCALE piece, of the position in
+     *  which the side to move occupies MINE, its opponent THEIRS, and blocks
+     *  BLOCKS, using FEATURES (of length NUM_FEATURES) as a work area. */
+    int evaluate(long mine, long theirs, long blocks, int[] features) {
+        features(mine, theirs, blocks, features);
+        double value = 0;
+        for (int i = 0; i < NUM_FEATURES; i += 1) {
+            value += _weights[i] * features[i];
+        }
+        return (int) Math.round(value * SCALE);
+    }
+
+    /** Store the features of the position in which the side to move
+     *  occupies MINE, its opponent THEIRS, and blocks BLOCKS in
+     *  OUT[0 .. NUM_FEATURES - 1]. */
+    static void features(long mine, long theirs, long blocks, int[] out) {
+        long empty = ALL & ~(mine | theirs | blocks);
+        long myAdjacent = spread(mine, ADJACENT),
+            theirAdjacent = spread(theirs, ADJACENT),
+            myReach = spread(mine, RING) & ~myAdjacent,
+            theirReach = spread(theirs, RING) & ~theirAdjacent;
+        out[MATERIAL_FEATURE] = Long.bitCount(mine) - Long.bitCount(theirs);
+        out[FRONTIER] = Long.bitCount(myAdjacent & empty)
+            - Long.bitCount(theirAdjacent & empty);
+        out[REACH] = Long.bitCount(myReach & empty)
+            - Long.bitCount(theirReach & empty);
+        out[EXPOSED] =
+            exposed(mine, (theirAdjacent | theirReach) & empty)
+            - exposed(theirs, (myAdjacent | myReach) & empty);
+        out[EDGES] = Long.bitCount(mine & EDGE) - Long.bitCount(theirs & EDGE);
+        out[CORNERS] =
+            Long.bitCount(mine & CORNER) - Long.bitCount(theirs & CORNER);
+        out[TEMPO] = 1;
+    }
+
+    /** Return the evaluation whose weights are in the file FILE. */
+    static Evaluation load(Path file) throws IOException {
+        double[] weights = new double[NUM_FEATURES];
+        List<String> names = Arrays.asList(FEATURES);
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] words = line.split("\\s+");
+            int i = names.indexOf(words[0]);
+            if (words.length != 2 || i < 0) {
+                throw new IOException("bad weight: " + line);
+            }
+            try {
+                weights[i] = Double.parseDouble(words[1]);
+            } catch (NumberFormatException excp) {
+                throw new IOException("bad weight: " + line);
+            }
+        }
+        return new Evaluation(weights);
+    }
+
+    /** Write my weights to the file FILE, as read by load. */
+    void save(Path file) throws IOException {
+        try (PrintWriter out =
+                 new PrintWriter(new BufferedWriter(Files.newBufferedWriter(
+                                                        file)))) {
+            out.println("# Ataxx evaluation weights, in pieces.");
+            for (int i = 0; i < NUM_FEATURES; i += 1) {
+                out.printf("%s %.6f%n", FEATURES[i], _weights[i]);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Evaluation
+            && Arrays.equals(_weights, ((Evaluation) obj)._weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(_weights);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < NUM_FEATURES; i += 1) {
+            out.append(i == 0 ? "" : " ").append(FEATURES[i]).append('=')
+                .append(String.format("%.3f", _weights[i]));
+        }
+        return out.toString();
+    }
+
+    /** Return the number of squares in PIECES adjacent to a square in
+     *  TARGETS. */
+    private static int exposed(long pieces, long targets) {
+        int n;
+        n = 0;
+        for (long rest = pieces; rest != 0; rest &= rest - 1) {
+            if ((ADJACENT[Long.numberOfTrailingZeros(rest)] & targets) != 0) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Return the union of NEIGHBORS[k] over the squares k in
+     *  SQUARES. */
+    private static long spread(long squares, long[] neighbors) {
+        long result = 0;
+        for (long rest = squares; rest != 0; rest &= rest - 1) {
+            result |= neighbors[Long.numberOfTrailingZeros(rest)];
+        }
+        return result;
+    }
+
+    /** Return the mask of the squares whose distance (in king moves)
+     *  from square K is D. */
+    private static long ring(int k, int d) {
+        int side = BoardSnapshot.SIDE, c = k % side, r = k / side;
+        long mask = 0;
+        for (int k1 = 0; k1 < side * side; k1 += 1) {
+            if (Math.max(Math.abs(k1 % side - c), Math.abs(k1 / side - r))
+                == d) {
+                mask |= 1L << k1;
+            }
+        }
+        return mask;
+    }
+
+    /** Number of squares. */
+    private static final int NUM_SQUARES =
+        BoardSnapshot.SIDE * BoardSnapshot.SIDE;
+    /** All squares. */
+    private static final long ALL = (1L << NUM_SQUARES) - 1;
+    /** Squares adjacent to, and exactly two away from, each square. */
+    private static final long[] ADJACENT = new long[NUM_SQUARES],
+        RING = new long[NUM_SQUARES];
+    /** Edge and corner squares. */
+    private static final long EDGE, CORNER;
+
+    static {
+        long edge, corner;
+        edge = corner = 0;
+        int last = BoardSnapshot.SIDE - 1;
+        for (int k = 0; k < NUM_SQUARES; k += 1) {
+            ADJACENT[k] = ring(k, 1);
+            RING[k] = ring(k, 2);
+            int c = k % BoardSnapshot.SIDE, r = k / BoardSnapshot.SIDE;
+            if (c == 0 || c == last || r == 0 || r == last) {
+                edge |= 1L << k;
+            }
+            if ((c == 0 || c == last) && (r == 0 || r == last)) {
+                corner |= 1L << k;
+            }
+        }
+        EDGE = edge;
+        CORNER = corner;
+    }
+
+    /** Weights of the features. */
+    private final double[] _weights;
+}
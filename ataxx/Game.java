@@ -1,12 +1,25 @@
 package ataxx;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import static ataxx.Game.State.*;
 import static ataxx.Command.Type.*;
@@ -30,22 +43,52 @@ class Game {
         _state = SETUP;
     }
 
-    /** Run a session of Ataxx gaming.  Use an AtaxxGUI iff USEGUI. */
+    /** A Game as for Game(BOARD, BASESOURCE, REPORTER), but resuming
+     *  the session packed in PACKED by pack(). */
+    Game(Board board, CommandSource baseSource, Reporter reporter,
+         byte[] packed) throws IOException {
+        this(board, baseSource, reporter);
+        unpack(packed);
+        _resumed = true;
+    }
+
+    /** Run a session of Ataxx gaming.  Use an AtaxxGUI iff USEGUI.
+     *  Returns once a 'quit' command (or end of input) is processed. */
     void process(boolean useGUI) {
 
         GameLoop:
-        while (true) {
-            doClear(null);
+        while (!_quit) {
+            if (_resumed) {
+                _resumed = false;
+            } else {
+                doClear(null);
+            }
 
             SetupLoop:
-            while (_state.equals(SETUP)) {
+            while (_state.equals(SETUP) && !_quit) {
                 doCommand();
             }
             PlayingLoop:
-            while (!_state.equals(SETUP)) {
+            while (!_state.equals(SETUP) && !_quit) {
                 if (_state.equals(PLAYING)) {
-                    Move move = currentPlayer.myMove();
-                    if ((_state == SETUP)) {
+                    if (_clock != null) {
+                        _clock.start(currentPlayer.myColor());
+                    }
+                    Move move;
+                    if (currentPlayer instanceof AI) {
+                        move = searchWhileReading((AI) currentPlayer);
+                    } else {
+                        Player other = currentPlayer == redPlayer
+                            ? bluePlayer : redPlayer;
+                        if (_ponder && other instanceof AI) {
+                            ((AI) other).startPondering();
+                        }
+                        move = currentPlayer.myMove();
+                        if (other instanceof AI) {
+                            ((AI) other).stopPondering();
+                        }
+                    }
+                    if ((_state == SETUP) || _quit) {
                         continue;
                     }
                     if ((move == null)) {
@@ -68,15 +111,18 @@ class Game {
                     reportWinner();
                     _state = FINISHED;
                 }
-                while (_state.equals(FINISHED)) {
+                while (_state.equals(FINISHED) && !_quit) {
                     doCommand();
                 }
             }
         }
     }
 
-    /** Returns the player depending on the turn. */
+    /** Returns the player depending on the turn.  Stops the clock of
+     *  the player who moved, if running, ending the game if it has run
+     *  out. */
     void switchPlayer() {
+        stopClock();
         if (currentPlayer == redPlayer) {
             currentPlayer =  bluePlayer;
         } else {
@@ -84,17 +130,172 @@ class Game {
         }
     }
 
+    /** Stop the running clock, if any, ending the game in a loss for its
+     *  side if it has run out. */
+    private void stopClock() {
+        if (_clock == null || _clock.running() == null) {
+            return;
+        }
+        PieceColor side = _clock.running();
+        _clock.stop();
+        if (_clock.flagged(side) && _state == PLAYING) {
+            _reporter.outcomeMsg("%s wins on time.", side.opposite());
+            endRecord(side == PieceColor.RED ? GameRecord.BLUE_WINS
+                      : GameRecord.RED_WINS);
+            _state = FINISHED;
+            saveCache();
+        }
+    }
+
     /** Return a view of my game board that should not be modified by
      *  the caller. */
     Board board() {
         return _board;
     }
 
+    /** Return the move that AI finds from the current position, which
+     *  it searches for on another thread while we go on reading
+     *  commands.  A 'clear' or 'quit' command read meanwhile is
+     *  performed at once and cuts the search short, in which case
+     *  return null.  Any other command is held, and no further input
+     *  read, until the move has been made, so that commands take effect
+     *  in the order given.  If there is a clock, AI budgets its time by
+     *  a TimeManager, and is stopped if it reaches the hard limit. */
+    private Move searchWhileReading(AI ai) {
+        TimeManager time = null;
+        if (_clock != null) {
+            time = new TimeManager(_clock.remaining(ai.myColor()),
+                                   _clock.increment(),
+                                   _board.numPieces(PieceColor.EMPTY));
+        }
+        ai.useTime(time);
+        CompletableFuture<Move> search = ai.startMove();
+        if (time != null) {
+            CompletableFuture.delayedExecutor(time.hardLimit(),
+                                              TimeUnit.MILLISECONDS)
+                .execute(() -> {
+                    if (!search.isDone()) {
+                        ai.stopSearch();
+                    }
+                });
+        }
+        if (_pendingLine == null) {
+            _pendingLine = CompletableFuture.supplyAsync(() ->
+                _inputs.getLine("ataxx: "), LINE_READERS);
+        }
+        CompletableFuture.anyOf(search, _pendingLine).join();
+        if (!search.isDone()) {
+            Command cmnd = Command.parseCommand(_pendingLine.join());
+            if (cmnd.commandType() == CLEAR || cmnd.commandType() == QUIT) {
+                _pendingLine = null;
+                ai.stopSearch();
+                _commands.get(cmnd.commandType()).accept(cmnd.operands());
+                return null;
+            }
+        }
+        return search.join();
+    }
+
+    /** Return the next line of input, using PROMPT if appropriate.  This
+     *  is the line already read by searchWhileReading, if any. */
+    private String getLine(String prompt) {
+        _waiting = true;
+        try {
+            if (_pendingLine != null) {
+                String line = _pendingLine.join();
+                _pendingLine = null;
+                return line;
+            }
+            return _inputs.getLine(prompt);
+        } finally {
+            _waiting = false;
+        }
+    }
+
+    /** Return true iff process is waiting for a command (or a manual
+     *  player's move), with no AI searching. */
+    boolean waiting() {
+        return _waiting;
+    }
+
+    /** Return this session packed into a few bytes from which
+     *  Game(..., PACKED) may resume it: the state of play, the position
+     *  (but not the moves that led to it), the players and their AI
+     *  level, the random numbers, and the clocks, whose running clock
+     *  goes on running while the session is packed.  Return null if the
+     *  session cannot be packed: if it keeps files open ('record',
+     *  'checkpoint', 'explore', or 'cache'), uses other evaluation
+     *  weights than material, or ponders.  Only to be called while
+     *  waiting(). */
+    byte[] pack() {
+        if (_record != null || _checkpoint != null || _archive != null
+            || _cache != null || _evaluation != Evaluation.MATERIAL
+            || _ponder) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(_state.ordinal());
+            out.writeBoolean(canBlock);
+            out.writeUTF(_board.snapshot().toText());
+            out.writeByte(GameRecord.kindCode(redPlayer.kind()));
+            out.writeByte(GameRecord.kindCode(bluePlayer.kind()));
+            out.writeByte(_level);
+            out.writeLong(_randoms.seed());
+            out.writeLong(_randoms.draws());
+            out.writeBoolean(_clock != null);
+            if (_clock != null) {
+                out.writeLong(_clock.base());
+                out.writeLong(_clock.increment());
+                out.writeLong(_clock.remaining(PieceColor.RED));
+                out.writeLong(_clock.remaining(PieceColor.BLUE));
+                out.writeByte(_clock.running() == null ? -1
+                              : _clock.running().ordinal());
+                out.writeLong(System.currentTimeMillis());
+            }
+        } catch (IOException excp) {
+            throw new Error("internal error: cannot pack game", excp);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Resume the session packed in PACKED by pack(), charging the time
+     *  since then to the clock that was running. */
+    private void unpack(byte[] packed) throws IOException {
+        DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(packed));
+        _state = State.values()[in.readByte()];
+        canBlock = in.readBoolean();
+        _board.setPosition(BoardSnapshot.parse(in.readUTF()));
+        String red = GameRecord.KINDS[in.readByte()],
+            blue = GameRecord.KINDS[in.readByte()];
+        _level = in.readByte();
+        _randoms = new Randoms(in.readLong());
+        _randoms.skip(in.readLong());
+        if (in.readBoolean()) {
+            _clock = new Clock(in.readLong(), in.readLong());
+            for (PieceColor side : PLAYERS) {
+                _clock.set(side, in.readLong());
+            }
+            int running = in.readByte();
+            long packedAt = in.readLong();
+            if (running >= 0) {
+                PieceColor side = PieceColor.values()[running];
+                _clock.set(side, _clock.remaining(side)
+                           - (System.currentTimeMillis() - packedAt));
+            }
+        }
+        redPlayer = newPlayer(red, PieceColor.RED);
+        bluePlayer = newPlayer(blue, PieceColor.BLUE);
+        currentPlayer = _board.whoseMove() == PieceColor.RED ? redPlayer
+            : bluePlayer;
+    }
+
     /** Perform the next command from our input source. */
     void doCommand() {
         try {
             Command cmnd =
-                    Command.parseCommand(_inputs.getLine("ataxx: "));
+                    Command.parseCommand(getLine("ataxx: "));
             _commands.get(cmnd.commandType()).accept(cmnd.operands());
         } catch (GameException excp) {
             _reporter.errMsg(excp.getMessage());
@@ -107,9 +308,9 @@ class Game {
      *  of playing mode. If appropriate to the current input source, use
      *  PROMPT to prompt for input. */
     Command getMoveCmnd(String prompt) {
-        while (_state.equals(PLAYING)) {
+        while (_state.equals(PLAYING) && !_quit) {
             try {
-                Command cmnd = Command.parseCommand(_inputs.getLine(prompt));
+                Command cmnd = Command.parseCommand(getLine(prompt));
                 if (cmnd.commandType().equals(PIECEMOVE)
                         || cmnd.commandType().equals(PASS)) {
                     return cmnd;
@@ -129,6 +330,46 @@ class Game {
         return _randoms.nextInt(max);
     }
 
+    /** A source of pseudo-random numbers that counts the numbers it
+     *  draws, so that its state may be saved (as its seed and that
+     *  count) and restored. */
+    private static class Randoms extends Random {
+
+        /** A source seeded with SEED. */
+        Randoms(long seed) {
+            super(seed);
+            _seed = seed;
+        }
+
+        /** Return my seed. */
+        long seed() {
+            return _seed;
+        }
+
+        /** Return the number of numbers drawn since I was seeded. */
+        long draws() {
+            return _draws;
+        }
+
+        /** Draw and discard numbers until DRAWS have been drawn. */
+        void skip(long draws) {
+            while (_draws < draws) {
+                next(Integer.SIZE);
+            }
+        }
+
+        @Override
+        protected int next(int bits) {
+            _draws += 1;
+            return super.next(bits);
+        }
+
+        /** My seed. */
+        private final long _seed;
+        /** Number of numbers drawn. */
+        private long _draws;
+    }
+
     /** Report a move, using a message formed from FORMAT and ARGS as
      *  for String.format. */
     void reportMove(String format, Object... args) {
@@ -142,26 +383,64 @@ class Game {
     }
 
     /* Command Processors */
-    /** Perform the command 'auto OPERANDS[0]'. */
+    /** Perform the command 'auto OPERANDS[0]', where the operand is a
+     *  color optionally followed by the engine to use: 'ai' (the
+     *  default) for an AI, 'mcts' for a MonteCarloAI, 'uct' for a
+     *  MonteCarloAI without priors, 'ab' for an AlphaBetaAI, or 'pat'
+     *  for an AlphaBetaAI using a PatternTable. */
     void doAuto(String[] operands) {
         checkState("auto", SETUP);
-        if ("red".equals(operands[0])) {
+        String[] words = operands[0].split("\\s+");
+        String engine = words.length > 1 ? words[1].toLowerCase() : "ai";
+        if ("red".equals(words[0])) {
             if (currentPlayer.equals(redPlayer)) {
-                redPlayer = new AI(this, PieceColor.RED);
+                redPlayer = newAI(engine, PieceColor.RED);
                 currentPlayer = redPlayer;
             } else {
-                redPlayer = new AI(this, PieceColor.RED);
+                redPlayer = newAI(engine, PieceColor.RED);
             }
         } else {
             if (currentPlayer.equals(bluePlayer)) {
-                bluePlayer = new AI(this, PieceColor.BLUE);
+                bluePlayer = newAI(engine, PieceColor.BLUE);
                 currentPlayer = bluePlayer;
             } else {
-                bluePlayer = new AI(this, PieceColor.BLUE);
+                bluePlayer = newAI(engine, PieceColor.BLUE);
+            }
+        }
+    }
+
+    /** Return a new automated player of kind ENGINE ('ai', 'mcts',
+     *  'uct', 'ab', or 'pat') playing COLOR. */
+    private AI newAI(String engine, PieceColor color) {
+        switch (engine) {
+        case "mcts":
+            return new MonteCarloAI(this, color, true);
+        case "uct":
+            return new MonteCarloAI(this, color, false);
+        case "ab":
+            return prepare(new AlphaBetaAI(this, color, _evaluation));
+        case "pat":
+            if (_patterns == null) {
+                _patterns = new PatternTable(_evaluation);
             }
+            return prepare(new AlphaBetaAI(this, color, _patterns));
+        default:
+            return new AI(this, color);
         }
     }
 
+    /** Return AI, having set it to play at the current difficulty
+     *  level, if any, and otherwise to use the transposition table shared
+     *  by all games. */
+    private AI prepare(AlphaBetaAI ai) {
+        if (_level > 0) {
+            ai.useLevel(_level);
+        } else {
+            ai.useTable(TranspositionTable.shared());
+        }
+        return ai;
+    }
+
     /** Perform a 'help' command. */
     void doHelp(String[] unused) {
         InputStream helpIn =
@@ -217,15 +496,23 @@ class Game {
         }
     }
 
-    /** Exit the program. */
+    /** End this session: process returns after the current command. */
     void doQuit(String[] unused) {
-        System.exit(0);
+        saveCache();
+        stopRecording();
+        closeArchive();
+        stopCheckpointing();
+        _quit = true;
     }
 
     /** Perform the command 'start'. */
     void doStart(String[] unused) {
         checkState("start", SETUP);
         _state = PLAYING;
+        if (_clock != null) {
+            _clock.reset();
+        }
+        startCheckpoint();
         if (board().gameOver()) {
             reportWinner();
             _state = FINISHED;
@@ -246,6 +533,7 @@ class Game {
             return;
         }
         if (board().legalMove(m)) {
+            record(m);
             this.board().makeMove(m);
         } else {
             _reporter.errMsg(board().getInfoMessage());
@@ -255,6 +543,7 @@ class Game {
             _reporter.moveMsg(currentPlayer + " moves " + m + ".");
         }
         switchPlayer();
+        checkpoint(m);
         canBlock = false;
     }
 
@@ -262,11 +551,13 @@ class Game {
     void doPass(String[] unused) {
         checkState("pass", PLAYING, SETUP);
         if (!board().canMove(board().whoseMove())) {
+            record(Move.pass());
             _board.pass();
             if (currentPlayer instanceof AI) {
                 _reporter.moveMsg(currentPlayer + " passes.");
             }
             switchPlayer();
+            checkpoint(Move.pass());
         } else {
             _reporter.errMsg("cannot pass at this time.");
         }
@@ -274,26 +565,172 @@ class Game {
 
     /** Perform the command 'clear'. */
     void doClear(String[] unused) {
+        endRecord(GameRecord.UNFINISHED);
+        if (_checkpoint != null) {
+            _checkpoint.endGame();
+        }
         redPlayer = new Manual(this, PieceColor.RED);
         bluePlayer = new AI(this, PieceColor.BLUE);
         currentPlayer = redPlayer;
         _board.clear();
+        if (_clock != null) {
+            _clock.reset();
+        }
         _state = SETUP;
         canBlock = true;
     }
 
+    /** Perform the command 'analyze [OPERANDS[0]]', reporting the best
+     *  OPERANDS[0] moves (by default, Analyzer.DEFAULT_LINES) for the
+     *  side on move, with their scores and expected continuations, as
+     *  judged by the evaluation of 'ab' AIs. */
+    void doAnalyze(String[] operands) {
+        int k = operands[0] == null ? Analyzer.DEFAULT_LINES
+            : Integer.parseInt(operands[0]);
+        List<Analyzer.Line> lines = Analyzer.analyze(_board, k, _evaluation);
+        if (lines.isEmpty()) {
+            _reporter.outcomeMsg("Nothing to analyze.");
+        }
+        for (int i = 0; i < lines.size(); i += 1) {
+            _reporter.outcomeMsg("%d. %s", i + 1, lines.get(i));
+        }
+    }
+
+    /** Perform the command 'explore [OPERANDS[0]]', reporting what the
+     *  position archive (see PositionArchive) in the file OPERANDS[0],
+     *  or else the one last explored, records about the current
+     *  position. */
+    void doExplore(String[] operands) {
+        if (operands[0] != null) {
+            closeArchive();
+            try {
+                _archive = new PositionArchive(Paths.get(operands[0]));
+            } catch (IOException excp) {
+                _reporter.errMsg("Cannot open archive %s", operands[0]);
+                return;
+            }
+        }
+        if (_archive == null) {
+            _reporter.errMsg("No position archive open.");
+            return;
+        }
+        PositionArchive.Entry entry = _archive.lookup(_board.snapshot());
+        if (entry == null) {
+            _reporter.outcomeMsg("Position not in archive.");
+            return;
+        }
+        _reporter.outcomeMsg("Seen %d times: Red won %d, Blue won %d,"
+                             + " %d drawn, %d unfinished.",
+                             entry.frequency(), entry.redWins(),
+                             entry.blueWins(), entry.draws(),
+                             entry.unfinished());
+        for (int i = 0; i < entry.numNext() && i < EXPLORE_MOVES; i += 1) {
+            _reporter.outcomeMsg("  %s %d", entry.next(i),
+                                 entry.nextCount(i));
+        }
+    }
+
+    /** Close the position archive, if open. */
+    private void closeArchive() {
+        if (_archive != null) {
+            try {
+                _archive.close();
+            } catch (IOException excp) {
+                /* Ignore: it was only read. */
+            }
+            _archive = null;
+        }
+    }
+
+    /** Perform the command 'ponder OPERANDS[0]', where the operand is
+     *  'on' to let AIs search while their manual opponents think, or
+     *  'off' to stop them. */
+    void doPonder(String[] operands) {
+        _ponder = "on".equalsIgnoreCase(operands[0]);
+    }
+
     /** Perform the command 'dump'. */
     void doDump(String[] unused) {
         _reporter.outcomeMsg(_board.toString(false));
     }
 
+    /** Perform the command 'setpos OPERANDS[0]': set up the position
+     *  given by the operand in the text form of BoardSnapshot, with no
+     *  moves to undo, for a game yet to start. */
+    void doSetpos(String[] operands) {
+        if (!checkState("setpos", SETUP)) {
+            return;
+        }
+        BoardSnapshot position =
+            BoardSnapshot.parse(operands[0].replaceAll("\\s+", " "));
+        endRecord(GameRecord.UNFINISHED);
+        _board.setPosition(position);
+        currentPlayer = position.whoseMove() == PieceColor.RED ? redPlayer
+            : bluePlayer;
+    }
+
+    /** Perform the command 'getpos': print the current position in the
+     *  text form of BoardSnapshot. */
+    void doGetpos(String[] unused) {
+        _reporter.outcomeMsg(_board.snapshot().toText());
+    }
+
+    /** Perform the command 'clock OPERANDS[0] [OPERANDS[1]]': give each
+     *  side OPERANDS[0] seconds for the game, plus OPERANDS[1] (by
+     *  default, 0) seconds after each of its moves, or play without a
+     *  clock if OPERANDS[0] is 'off'. */
+    void doClock(String[] operands) {
+        if (!checkState("clock", SETUP)) {
+            return;
+        }
+        if ("off".equalsIgnoreCase(operands[0])) {
+            _clock = null;
+            return;
+        }
+        _clock = new Clock(millis(operands[0]),
+                           operands[1] == null ? 0 : millis(operands[1]));
+    }
+
+    /** Perform the command 'level OPERANDS[0]': let 'ab' and 'pat' AIs
+     *  created from now on play at the difficulty level given by the
+     *  operand (see AlphaBetaAI.useLevel), or at full strength if it is
+     *  'off'. */
+    void doLevel(String[] operands) {
+        if ("off".equalsIgnoreCase(operands[0])) {
+            _level = 0;
+            return;
+        }
+        int level = Integer.parseInt(operands[0]);
+        if (level < 1 || level > AlphaBetaAI.LEVELS) {
+            _reporter.errMsg("Level must be from 1 to %d.",
+                             AlphaBetaAI.LEVELS);
+        } else {
+            _level = level;
+        }
+    }
+
+    /** Perform the command 'time': report the time left on each side's
+     *  clock. */
+    void doTime(String[] unused) {
+        if (_clock == null) {
+            _reporter.errMsg("No clock.");
+        } else {
+            _reporter.outcomeMsg(_clock.toString());
+        }
+    }
+
+    /** Return SECONDS, a decimal number of seconds, in milliseconds. */
+    private static long millis(String seconds) {
+        return Math.round(Double.parseDouble(seconds) * 1000);
+    }
+
     /** Execute 'seed OPERANDS[0]' command, where the operand is a string
      *  of decimal digits. Silently substitutes another value if
      *  too large. */
     void doSeed(String[] operands) {
         checkState("seed", SETUP);
         long seed = Long.parseLong(operands[0]);
-        _randoms = new Random(seed);
+        _randoms = new Randoms(seed);
     }
 
     /** Execute the command 'block OPERANDS[0]'. */
@@ -318,41 +755,296 @@ class Game {
         String msg;
         if (board().bluePieces() < board().redPieces()) {
             msg = "Red wins.";
+            endRecord(GameRecord.RED_WINS);
         } else if (board().redPieces() < board().bluePieces()) {
             msg = "Blue wins.";
+            endRecord(GameRecord.BLUE_WINS);
         } else {
             msg = "Draw.";
+            endRecord(GameRecord.DRAW);
         }
         _reporter.outcomeMsg(msg);
+        saveCache();
     }
 
-    /** Check that game is currently in one of the states STATES, assuming
-     *  CMND is the command to be executed. */
-    private void checkState(Command cmnd, State... states) {
-        for (State s : states) {
-            if (s.equals(_state)) {
-                return;
+    /** Perform the command 'record OPERANDS[0]': append the games played
+     *  from now on to the file named by the operand, in the format of
+     *  GameRecord, or stop recording if the operand is 'off'.  A game
+     *  already under way when recording starts is not recorded, nor is
+     *  one that does not start from the usual initial position (with any
+     *  blocks), such as one set up by 'setpos' or resumed from a packed
+     *  session, since a record holds only the blocks of its start. */
+    void doRecord(String[] operands) {
+        stopRecording();
+        if (!"off".equalsIgnoreCase(operands[0])) {
+            try {
+                _record = new GameRecordWriter(
+                    new FileOutputStream(operands[0], true));
+            } catch (IOException excp) {
+                _reporter.errMsg("Cannot open file %s", operands[0]);
+            }
+        }
+    }
+
+    /** Perform the command 'weights OPERANDS[0]': let 'ab' and 'pat' AIs
+     *  created from now on use the Evaluation whose weights are in the
+     *  file named by the operand, or material alone if the operand is
+     *  'off'. */
+    void doWeights(String[] operands) {
+        _patterns = null;
+        if ("off".equalsIgnoreCase(operands[0])) {
+            _evaluation = Evaluation.MATERIAL;
+            return;
+        }
+        try {
+            _evaluation = Evaluation.load(Paths.get(operands[0]));
+        } catch (IOException excp) {
+            _reporter.errMsg("Cannot read weights from %s", operands[0]);
+        }
+    }
+
+    /** Perform the command 'cache OPERANDS[0]': add the search results
+     *  saved in the file named by the operand, if it exists, to the
+     *  transposition table shared by 'ab' and 'pat' AIs, and save the
+     *  table's most valuable entries to that file at the end of each game
+     *  and of the session, or stop saving them if the operand is
+     *  'off'. */
+    void doCache(String[] operands) {
+        _cache = null;
+        if ("off".equalsIgnoreCase(operands[0])) {
+            return;
+        }
+        Path file = Paths.get(operands[0]);
+        try {
+            if (Files.exists(file)) {
+                TranspositionTable.shared().load(file);
+            }
+            _cache = file;
+        } catch (IOException excp) {
+            _reporter.errMsg("Cannot read search cache %s", operands[0]);
+        }
+    }
+
+    /** Save the shared transposition table to the search cache file, if
+     *  there is one, ceasing to save it if that fails. */
+    private void saveCache() {
+        if (_cache == null) {
+            return;
+        }
+        try {
+            TranspositionTable.shared().save(_cache, CACHE_DEPTH,
+                                             CACHE_ENTRIES);
+        } catch (IOException excp) {
+            _reporter.errMsg("Cannot write search cache %s", _cache);
+            _cache = null;
+        }
+    }
+
+    /** Perform the command 'checkpoint OPERANDS[0]': keep the game in
+     *  progress (if any) and those played from now on in the file named
+     *  by the operand, as described in Checkpoint, so that they may be
+     *  resumed by 'restore', or stop keeping them if the operand is
+     *  'off'. */
+    void doCheckpoint(String[] operands) {
+        stopCheckpointing();
+        if ("off".equalsIgnoreCase(operands[0])) {
+            return;
+        }
+        try {
+            _checkpoint = new Checkpoint(Paths.get(operands[0]));
+        } catch (IOException excp) {
+            _reporter.errMsg("Cannot open file %s", operands[0]);
+            return;
+        }
+        if (_state == PLAYING) {
+            startCheckpoint();
+        }
+    }
+
+    /** Perform the command 'restore OPERANDS[0]': resume the game kept
+     *  by 'checkpoint' in the file named by the operand, with the same
+     *  position, moves to undo, players, AI level, random numbers, and
+     *  clocks, and go on keeping it there. */
+    void doRestore(String[] operands) {
+        if (!checkState("restore", SETUP)) {
+            return;
+        }
+        Path file = Paths.get(operands[0]);
+        Checkpoint.Saved saved;
+        try {
+            saved = Checkpoint.read(file);
+        } catch (IOException excp) {
+            _reporter.errMsg("Cannot restore game from %s", operands[0]);
+            return;
+        }
+        stopCheckpointing();
+        endRecord(GameRecord.UNFINISHED);
+        _level = saved.level();
+        redPlayer = newPlayer(saved.kind(PieceColor.RED), PieceColor.RED);
+        bluePlayer = newPlayer(saved.kind(PieceColor.BLUE), PieceColor.BLUE);
+        _randoms = new Randoms(saved.seed());
+        _randoms.skip(saved.draws());
+        _clock = null;
+        if (saved.base() >= 0) {
+            _clock = new Clock(saved.base(), saved.increment());
+            for (PieceColor side : PLAYERS) {
+                _clock.set(side, saved.remaining(side));
             }
         }
-        _reporter.errMsg("'%s' command is not allowed now.",
-                cmnd.commandType());
+        _board.setPosition(saved.position());
+        for (Move move : saved.moves()) {
+            _board.makeMove(move);
+        }
+        currentPlayer = _board.whoseMove() == PieceColor.RED ? redPlayer
+            : bluePlayer;
+        canBlock = false;
+        _state = PLAYING;
+        if (_clock != null && (_clock.flagged(PieceColor.RED)
+                               || _clock.flagged(PieceColor.BLUE))) {
+            _state = FINISHED;
+        }
+        try {
+            _checkpoint = new Checkpoint(file, saved.length());
+        } catch (IOException excp) {
+            _reporter.errMsg("Cannot open file %s", operands[0]);
+        }
+    }
+
+    /** Return a new player of kind KIND (as for Player.kind()) playing
+     *  COLOR. */
+    private Player newPlayer(String kind, PieceColor color) {
+        return kind.equals("manual") ? new Manual(this, color)
+            : newAI(kind, color);
+    }
+
+    /** Start keeping the game just started in the checkpoint, if
+     *  any. */
+    private void startCheckpoint() {
+        if (_checkpoint == null) {
+            return;
+        }
+        try {
+            _checkpoint.startGame(_board.snapshot(), redPlayer.kind(),
+                                  bluePlayer.kind(), _level,
+                                  _randoms.seed(), _randoms.draws(),
+                                  _clock);
+        } catch (IOException excp) {
+            checkpointFailed(excp);
+        }
+    }
+
+    /** Add MOVE, just made, to the checkpoint of the current game, if
+     *  any. */
+    private void checkpoint(Move move) {
+        if (_checkpoint == null || !_checkpoint.inGame()) {
+            return;
+        }
+        PieceColor mover = _board.whoseMove().opposite();
+        try {
+            _checkpoint.move(move, _randoms.draws(),
+                             _clock == null ? -1 : _clock.remaining(mover));
+        } catch (IOException excp) {
+            checkpointFailed(excp);
+        }
+    }
+
+    /** Stop keeping games in the checkpoint, if any. */
+    private void stopCheckpointing() {
+        if (_checkpoint != null) {
+            try {
+                _checkpoint.close();
+            } catch (IOException excp) {
+                checkpointFailed(excp);
+            }
+            _checkpoint = null;
+        }
+    }
+
+    /** Report EXCP, an error in writing the checkpoint, and stop
+     *  keeping it. */
+    private void checkpointFailed(IOException excp) {
+        _reporter.errMsg("Cannot write checkpoint: %s", excp.getMessage());
+        _checkpoint = null;
+    }
+
+    /** Add MOVE, which is about to be made, to the record of the current
+     *  game, if recording, starting the record if need be. */
+    private void record(Move move) {
+        if (_record == null) {
+            return;
+        }
+        try {
+            if (!_record.inGame()) {
+                BoardSnapshot start = _board.snapshot();
+                if (!GameRecord.isStart(start)) {
+                    return;
+                }
+                _record.startGame(start);
+            }
+            _record.move(move);
+        } catch (IOException excp) {
+            recordingFailed(excp);
+        }
+    }
+
+    /** End the record of the current game, if any, with RESULT. */
+    private void endRecord(byte result) {
+        if (_record == null || !_record.inGame()) {
+            return;
+        }
+        try {
+            _record.endGame(redPlayer.kind(), bluePlayer.kind(), result);
+        } catch (IOException excp) {
+            recordingFailed(excp);
+        }
+    }
+
+    /** Stop recording games, ending the current record (if any) as
+     *  unfinished. */
+    private void stopRecording() {
+        if (_record != null) {
+            endRecord(GameRecord.UNFINISHED);
+            try {
+                _record.close();
+            } catch (IOException excp) {
+                recordingFailed(excp);
+            }
+            _record = null;
+        }
+    }
+
+    /** Report EXCP, an error in writing game records, and stop
+     *  recording. */
+    private void recordingFailed(IOException excp) {
+        _reporter.errMsg("Cannot record game: %s", excp.getMessage());
+        _record = null;
+    }
+
+    /** Check that game is currently in one of the states STATES, assuming
+     *  CMND is the command to be executed.  Return true iff it is. */
+    private boolean checkState(Command cmnd, State... states) {
+        return checkState(cmnd.commandType().toString(), states);
     }
 
     /** Check that game is currently in one of the states STATES, using
-     *  CMND in error messages as the name of the command to be executed. */
-    private void checkState(String cmnd, State... states) {
+     *  CMND in error messages as the name of the command to be executed.
+     *  Return true iff it is, and otherwise report that CMND is not
+     *  allowed, in which case it must not be carried out. */
+    private boolean checkState(String cmnd, State... states) {
         for (State s : states) {
             if (s.equals(_state)) {
-                return;
+                return true;
             }
         }
         _reporter.errMsg("'%s' command is not allowed now.", cmnd);
+        return false;
     }
 
     /** Mapping of command types to methods that process them. */
     private final HashMap<Command.Type, Consumer<String[]>> _commands =
         new HashMap<>();
     {
+        _commands.put(ANALYZE, this::doAnalyze);
         _commands.put(AUTO, this::doAuto);
         _commands.put(BLOCK, this::doBlock);
         _commands.put(CLEAR, this::doClear);
@@ -361,6 +1053,18 @@ class Game {
         _commands.put(MANUAL, this::doManual);
         _commands.put(PASS, this::doPass);
         _commands.put(PIECEMOVE, this::doMove);
+        _commands.put(PONDER, this::doPonder);
+        _commands.put(RECORD, this::doRecord);
+        _commands.put(WEIGHTS, this::doWeights);
+        _commands.put(CACHE, this::doCache);
+        _commands.put(SETPOS, this::doSetpos);
+        _commands.put(GETPOS, this::doGetpos);
+        _commands.put(CLOCK, this::doClock);
+        _commands.put(TIME, this::doTime);
+        _commands.put(LEVEL, this::doLevel);
+        _commands.put(CHECKPOINT, this::doCheckpoint);
+        _commands.put(RESTORE, this::doRestore);
+        _commands.put(EXPLORE, this::doExplore);
         _commands.put(SEED, this::doSeed);
         _commands.put(START, this::doStart);
         _commands.put(LOAD, this::doLoad);
@@ -372,6 +1076,20 @@ class Game {
     /** Input source. */
     private final CommandSources _inputs = new CommandSources();
 
+    /** The next line of input, if it has been requested while an AI
+     *  searches, else null. */
+    private CompletableFuture<String> _pendingLine;
+
+    /** Reads input for Games while their AIs search.  Its threads are
+     *  daemons, since they may be left waiting for input that never
+     *  comes. */
+    private static final ExecutorService LINE_READERS =
+        Executors.newCachedThreadPool((r) -> {
+            Thread t = new Thread(r, "ataxx-input");
+            t.setDaemon(true);
+            return t;
+        });
+
     /** My board. */
     private Board _board;
     /** Current game state. */
@@ -379,7 +1097,58 @@ class Game {
     /** Used to send messages to the user. */
     private Reporter _reporter;
     /** Source of pseudo-random numbers (used by AIs). */
-    private Random _randoms = new Random();
+    private Randoms _randoms = new Randoms(new Random().nextLong());
+
+    /** True once the session has been ended by 'quit' or end of input. */
+    private boolean _quit;
+
+    /** True iff process is waiting for input (see waiting()). */
+    private volatile boolean _waiting;
+
+    /** True iff the session was resumed from a packed form, and so
+     *  process should not start by clearing the board. */
+    private boolean _resumed;
+
+    /** Largest number of next moves reported by 'explore'. */
+    private static final int EXPLORE_MOVES = 10;
+
+    /** The position archive last explored, or null. */
+    private PositionArchive _archive;
+
+    /** Destination of game records, or null if not recording. */
+    private GameRecordWriter _record;
+
+    /** Evaluation used by 'ab' and 'pat' AIs. */
+    private Evaluation _evaluation = Evaluation.MATERIAL;
+
+    /** Pattern values derived from _evaluation, or null if not yet
+     *  needed. */
+    private PatternTable _patterns;
+
+    /** Difficulty level of 'ab' and 'pat' AIs, or 0 for full
+     *  strength. */
+    private int _level;
+
+    /** Checkpoint of the current game, or null if none. */
+    private Checkpoint _checkpoint;
+
+    /** The two sides. */
+    private static final PieceColor[] PLAYERS = {
+        PieceColor.RED, PieceColor.BLUE
+    };
+
+    /** Clocks of the two sides, or null if games are untimed. */
+    private Clock _clock;
+
+    /** Search cache file, or null if none. */
+    private Path _cache;
+
+    /** Least depth of the searches whose results are saved to the search
+     *  cache, and most entries saved. */
+    private static final int CACHE_DEPTH = 3, CACHE_ENTRIES = 1 << 20;
+
+    /** True iff AIs ponder while manual players choose moves. */
+    private boolean _ponder;
 
     /** Boolean telling is we can set a block. */
     private boolean canBlock = true;
@@ -0,0 +1,92 @@
+package ataxx;
+
+/** The compact binary format of recorded games, as written by
+ *  GameRecordWriter and read by GameRecordReader.  A file of records is
+ *  a sequence of games, each of which is (in DataOutput format):
+ *  <ul>
+ *  <li> the byte GAME_MARK;
+ *  <li> a long whose bit K is set iff square K (numbered as by
+ *       BoardSnapshot) was blocked at the start of the game;
+ *  <li> the moves of the game, as shorts holding their dense indices
+ *       (Move.index()), starting from the usual initial position with
+ *       those blocks and Red to move;
+ *  <li> the short END;
+ *  <li> two bytes giving the kinds of the red and blue players (indices
+ *       in KINDS) when the game ended;
+ *  <li> a byte giving the result: UNFINISHED, RED_WINS, BLUE_WINS, or
+ *       DRAW.
+ *  </ul>
+ *  The players and result follow the moves so that a game may be
+ *  written as it is played.
+ *  @author tapan.jasthi
+ */
+final class GameRecord {
+
+    /** The byte that starts each game. */
+    static final byte GAME_MARK = (byte) 0xA7;
+
+    /** The short that ends the moves of a game. */
+    static final short END = -1;
+
+    /** Results. */
+    static final byte UNFINISHED = 0, RED_WINS = 1, BLUE_WINS = 2, DRAW = 3;
+
+    /** Kinds of players (as returned by Player.kind()), indexed by their
+     *  codes.  Kinds not listed are recorded as "other". */
+    static final String[] KINDS = {
+        "other", "manual", "ai", "mcts", "uct", "ab", "pat",
+    };
+
+    /** Not instantiable. */
+    private GameRecord() {
+    }
+
+    /** Return the code for player kind KIND. */
+    static byte kindCode(String kind) {
+        for (int i = 1; i < KINDS.length; i += 1) {
+            if (KINDS[i].equals(kind)) {
+                return (byte) i;
+            }
+        }
+        return 0;
+    }
+
+    /** Return the mask of the blocked squares in POSITION, as recorded
+     *  at the start of a game. */
+    static long blocks(BoardSnapshot position) {
+        long mask = 0;
+        for (int k = 0; k < BoardSnapshot.SIDE * BoardSnapshot.SIDE; k += 1) {
+            if (position.get(k) == PieceColor.BLOCKED) {
+                mask |= 1L << k;
+            }
+        }
+        return mask;
+    }
+
+    /** Return true iff POSITION is the initial position of a game whose
+     *  block mask is blocks(POSITION), and so may start a record. */
+    static boolean isStart(BoardSnapshot position) {
+        return position.equals(initialBoard(blocks(position)).snapshot());
+    }
+
+    /** Return a new board in the initial position of a game whose block
+     *  mask is BLOCKS.  Like the boards of searches, it does not publish
+     *  snapshots (see Board.snapshot), which replaying a game on it would
+     *  otherwise make after every move. */
+    static Board initialBoard(long blocks) {
+        Board board = new Board(START);
+        for (int k = 0; k < BoardSnapshot.SIDE * BoardSnapshot.SIDE; k += 1) {
+            char c = (char) ('a' + k % BoardSnapshot.SIDE),
+                r = (char) ('1' + k / BoardSnapshot.SIDE);
+            if ((blocks & (1L << k)) != 0
+                && board.get(c, r) == PieceColor.EMPTY) {
+                board.setBlock(c, r);
+            }
+        }
+        return board;
+    }
+
+    /** The initial position of a game without blocks. */
+    private static final BoardSnapshot START =
+        BoardSnapshot.parse("r5b/7/7/7/7/7/b5r r 0");
+}
@@ -0,0 +1,155 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static ataxx.GameRecord.*;
+
+/** Reads games in the format described in GameRecord, one move at a
+ *  time, so that any number of games may be scanned in constant
+ *  space.  Typical use:
+ *  <pre>
+ *      while (reader.nextGame()) {
+ *          Board board = GameRecord.initialBoard(reader.blocks());
+ *          for (Move m = reader.nextMove(); m != null;
+ *               m = reader.nextMove()) {
+ *              board.makeMove(m);
+ *          }
+ *          ... reader.result() ...
+ *      }
+ *  </pre>
+ *  @author tapan.jasthi
+ */
+class GameRecordReader implements Closeable {
+
+    /** A reader of games from IN. */
+    GameRecordReader(InputStream in) {
+        _in = new DataInputStream(new BufferedInputStream(in));
+    }
+
+    /** Advance to the next game, skipping the rest of the current one.
+     *  Return false if there are no more games. */
+    boolean nextGame() throws IOException {
+        while (_inGame) {
+            nextMove();
+        }
+        int mark = _in.read();
+        if (mark == -1) {
+            return false;
+        } else if ((byte) mark != GAME_MARK) {
+            throw new IOException("bad game record");
+        }
+        _blocks = readLong();
+        _inGame = true;
+        _numMoves = 0;
+        _red = _blue = null;
+        _result = UNFINISHED;
+        return true;
+    }
+
+    /** Return the mask of blocks (see GameRecord) of the current game. */
+    long blocks() {
+        return _blocks;
+    }
+
+    /** Return the next move of the current game, or null if there are
+     *  no more, in which case its players and result are available. */
+    Move nextMove() throws IOException {
+        if (!_inGame) {
+            return null;
+        }
+        int index = readShort();
+        if (index == END) {
+            _red = kind(readByte());
+            _blue = kind(readByte());
+            _result = readByte();
+            _inGame = false;
+            return null;
+        } else if (index < 0 || index >= Move.NUM_MOVES) {
+            throw new IOException("bad move in game record");
+        }
+        _numMoves += 1;
+        return Move.move(index);
+    }
+
+    /** Return the number of moves of the current game read so far. */
+    int numMoves() {
+        return _numMoves;
+    }
+
+    /** Return the kind of the red player of the current game, once all
+     *  its moves have been read. */
+    String red() {
+        return _red;
+    }
+
+    /** Return the kind of the blue player of the current game, once all
+     *  its moves have been read. */
+    String blue() {
+        return _blue;
+    }
+
+    /** Return the result (see GameRecord) of the current game, once all
+     *  its moves have been read. */
+    byte result() {
+        return _result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _in.close();
+    }
+
+    /** Return the kind with code CODE. */
+    private static String kind(byte code) throws IOException {
+        if (code < 0 || code >= KINDS.length) {
+            throw new IOException("bad player in game record");
+        }
+        return KINDS[code];
+    }
+
+    /** Return the next byte, short, or long of the current game,
+     *  complaining if the input ends first. */
+    private byte readByte() throws IOException {
+        try {
+            return _in.readByte();
+        } catch (EOFException excp) {
+            throw new IOException("truncated game record");
+        }
+    }
+
+    /** See readByte. */
+    private short readShort() throws IOException {
+        try {
+            return _in.readShort();
+        } catch (EOFException excp) {
+            throw new IOException("truncated game record");
+        }
+    }
+
+    /** See readByte. */
+    private long readLong() throws IOException {
+        try {
+            return _in.readLong();
+        } catch (EOFException excp) {
+            throw new IOException("truncated game record");
+        }
+    }
+
+    /** Source of records. */
+    private final DataInputStream _in;
+    /** True iff the moves of the current game have not all been read. */
+    private boolean _inGame;
+    /** Block mask of the current game. */
+    private long _blocks;
+    /** Number of moves of the current game read. */
+    private int _numMoves;
+    /** Players of the current game, once known. */
+    private String _red, _blue;
+    /** Result of the current game, once known. */
+    private byte _result;
+}
@@ -0,0 +1,69 @@
+package ataxx;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static ataxx.GameRecord.*;
+
+/** Writes games in the format described in GameRecord, one move at a
+ *  time as they are played.
+ *  @author tapan.jasthi
+ */
+class GameRecordWriter implements Closeable {
+
+    /** A writer of games to OUT. */
+    GameRecordWriter(OutputStream out) {
+        _out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    /** Return true iff I have started a game that I have not ended. */
+    boolean inGame() {
+        return _inGame;
+    }
+
+    /** Start a game whose initial position (before any moves) is
+     *  POSITION.  Ends any game in progress as unfinished. */
+    void startGame(BoardSnapshot position) throws IOException {
+        if (_inGame) {
+            endGame("other", "other", UNFINISHED);
+        }
+        _out.writeByte(GAME_MARK);
+        _out.writeLong(blocks(position));
+        _inGame = true;
+    }
+
+    /** Record MOVE as the next move of the current game. */
+    void move(Move move) throws IOException {
+        assert _inGame;
+        _out.writeShort(move.index());
+    }
+
+    /** End the current game, whose players were of kinds RED and BLUE
+     *  (as returned by Player.kind()), with RESULT.  Flushes what I have
+     *  written, so that a reader sees whole games. */
+    void endGame(String red, String blue, byte result) throws IOException {
+        assert _inGame;
+        _out.writeShort(END);
+        _out.writeByte(kindCode(red));
+        _out.writeByte(kindCode(blue));
+        _out.writeByte(result);
+        _out.flush();
+        _inGame = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_inGame) {
+            endGame("other", "other", UNFINISHED);
+        }
+        _out.close();
+    }
+
+    /** Destination of records. */
+    private final DataOutputStream _out;
+    /** True iff a game is in progress. */
+    private boolean _inGame;
+}
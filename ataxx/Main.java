@@ -2,8 +2,11 @@ package ataxx;
 
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PipedReader;
 import java.io.PipedWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.awt.HeadlessException;
 
 /** The main program for Ataxx.
@@ -11,7 +14,11 @@ import java.awt.HeadlessException;
  */
 public class Main {
 
-    /** Run Ataxx game.  Use display if ARGS[k] is '--display'. */
+    /** Run Ataxx game.  Use display if ARGS[k] is '--display'.  If
+     *  ARGS[k] is '--engine', instead speak the engine protocol (see
+     *  EngineProtocol) on the standard input and output.  If ARGS[k] is
+     *  '--daemon', instead serve games on the Unix-domain socket named
+     *  by ARGS[k + 1] (see Daemon). */
     public static void main(String[] args) {
         boolean useGUI;
         useGUI = false;
@@ -20,6 +27,15 @@ public class Main {
             case "--display":
                 useGUI = true;
                 break;
+            case "--engine":
+                runEngine();
+                break;
+            case "--daemon":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                runDaemon(Paths.get(args[i + 1]));
+                break;
             default:
                 usage();
                 break;
@@ -54,12 +70,48 @@ public class Main {
                             new TextReporter());
         }
         game.process(false);
+        System.exit(0);
+    }
+
+    /** Speak the engine protocol on the standard input and output, and
+     *  exit at its end. */
+    static void runEngine() {
+        try {
+            new EngineProtocol(new InputStreamReader(System.in),
+                               new OutputStreamWriter(System.out),
+                               TranspositionTable.shared()).run();
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /** Serve games on the Unix-domain socket SOCKET until killed. */
+    static void runDaemon(Path socket) {
+        try {
+            Daemon daemon = new Daemon(socket);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    daemon.close();
+                } catch (IOException excp) {
+                    /* Exiting anyway. */
+                }
+            }));
+            daemon.warmUp();
+            daemon.serve();
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
     }
 
     /** Give usage message and exit. */
     static void usage() {
         System.err.println("Usage: java ataxx.Main [--display] [--timing]"
-                           + " [--strict]");
+                           + " [--strict] [--engine]"
+                           + " [--daemon SOCKET]");
         System.exit(1);
     }
 
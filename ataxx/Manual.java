@@ -11,6 +11,11 @@ class Manual extends Player {
         super(game, myColor);
     }
 
+    @Override
+    String kind() {
+        return "manual";
+    }
+
     @Override
     Move myMove() {
         Command cmnd = game().getMoveCmnd(myColor() + ": ");
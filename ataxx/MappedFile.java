@@ -0,0 +1,65 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** A read-only file mapped into memory, so that it may be read at any
+ *  position without loading it onto the heap.  Since one mapping may
+ *  cover at most 2GB, larger files are mapped as a series of segments.
+ *  Values read must not straddle segments, which holds if each starts
+ *  at a multiple of its size and the segment size is a multiple of all
+ *  the sizes read (e.g., of 8).
+ *  @author tapan.jasthi
+ */
+class MappedFile implements Closeable {
+
+    /** Largest segment size. */
+    static final int MAX_SEGMENT = 1 << 30;
+
+    /** FILE, mapped in segments of SEGMENT bytes (at most MAX_SEGMENT). */
+    MappedFile(Path file, int segment) throws IOException {
+        assert segment > 0 && segment <= MAX_SEGMENT;
+        _segment = segment;
+        _channel = FileChannel.open(file, StandardOpenOption.READ);
+        _size = _channel.size();
+        _maps = new MappedByteBuffer[(int) ((_size + segment - 1) / segment)];
+        for (int i = 0; i < _maps.length; i += 1) {
+            long start = (long) i * segment;
+            _maps[i] = _channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                    Math.min(segment, _size - start));
+        }
+    }
+
+    /** Return my size in bytes. */
+    long size() {
+        return _size;
+    }
+
+    /** Return the long at byte POS. */
+    long getLong(long pos) {
+        return _maps[(int) (pos / _segment)].getLong((int) (pos % _segment));
+    }
+
+    /** Return the int at byte POS. */
+    int getInt(long pos) {
+        return _maps[(int) (pos / _segment)].getInt((int) (pos % _segment));
+    }
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+
+    /** Size of each segment. */
+    private final int _segment;
+    /** The mapped file. */
+    private final FileChannel _channel;
+    /** Its size. */
+    private final long _size;
+    /** Its segments. */
+    private final MappedByteBuffer[] _maps;
+}
@@ -0,0 +1,331 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static ataxx.PlayoutBoard.PASS;
+
+/** An AI that chooses its moves by Monte Carlo tree search: it grows a
+ *  tree of positions, choosing the branch to explore at each node by
+ *  the UCT rule and evaluating each new leaf by playing a random game
+ *  from it on a PlayoutBoard.  It plays the move it explored most.
+ *
+ *  The tree is held in parallel arrays indexed by node number, and is
+ *  searched by one thread per processor at once (tree parallelism).  A
+ *  thread passing through a node counts VIRTUAL_LOSS lost visits to it
+ *  until its playout's result is known, which steers the other threads
+ *  elsewhere.  The part of the tree below the position reached after my
+ *  move and my opponent's reply is kept for my next search.
+ *  @author tapan.jasthi
+ */
+class MonteCarloAI extends AI {
+
+    /** Number of playouts per move, when not budgeting by time (see
+     *  AI.useTime). */
+    static final int PLAYOUTS = 20000;
+
+    /** A new AI for GAME that will play MYCOLOR, seeding the statistics
+     *  of new nodes from a simple evaluation of their moves iff
+     *  PRIORS. */
+    MonteCarloAI(Game game, PieceColor myColor, boolean priors) {
+        super(game, myColor);
+        _priors = priors;
+    }
+
+    @Override
+    String kind() {
+        return _priors ? "mcts" : "uct";
+    }
+
+    @Override
+    int searchRandoms() {
+        return 1;
+    }
+
+    @Override
+    Move findMove(Board b) {
+        PlayoutBoard position = new PlayoutBoard();
+        position.copy(b);
+        reroot(position);
+        expand(_root, position, new int[PlayoutBoard.MAX_MOVES]);
+
+        TimeManager time = timeManager();
+        AtomicInteger budget =
+            new AtomicInteger(time == null ? PLAYOUTS : Integer.MAX_VALUE);
+        long deadline = time == null ? Long.MAX_VALUE
+            : System.nanoTime() + time.softLimit() * 1000000;
+        long seed = searchRandom(b);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i += 1) {
+            SplittableRandom random = new SplittableRandom(seed + i);
+            workers.add(PLAYERS.submit(() -> work(budget, deadline,
+                                                  random)));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException | ExecutionException excp) {
+                throw new Error("Internal failure: playout failed", excp);
+            }
+        }
+
+        int first = _firstChild.get(_root), best = first;
+        for (int c = first; c < first + _numChildren[_root]; c += 1) {
+            if (_visits.get(c) > _visits.get(best)) {
+                best = c;
+            }
+        }
+        _chosen = best;
+        return PlayoutBoard.toMove(_move[best]);
+    }
+
+    /** Make the root of my tree the node for POSITION, keeping the
+     *  subtree under it if my previous search reached POSITION after my
+     *  chosen move and a reply.  Otherwise start a new tree. */
+    private void reroot(PlayoutBoard position) {
+        if (_chosen > 0 && _used.get() < CAPACITY / 2) {
+            int first = _firstChild.get(_chosen);
+            PlayoutBoard reply = new PlayoutBoard();
+            for (int c = first; first > 0
+                     && c < first + _numChildren[_chosen]; c += 1) {
+                reply.copy(_rootPosition);
+                reply.play(_move[_chosen]);
+                reply.play(_move[c]);
+                if (reply.samePosition(position)) {
+                    _root = c;
+                    _rootPosition.copy(position);
+                    _chosen = 0;
+                    return;
+                }
+            }
+        }
+        _used.set(1);
+        initNode(0, PASS, 0, 0);
+        _root = 0;
+        _rootPosition.copy(position);
+        _chosen = 0;
+    }
+
+    /** Run playouts until BUDGET is exhausted, DEADLINE (System.nanoTime)
+     *  passes, or the search is stopped, using RANDOM to choose moves. */
+    private void work(AtomicInteger budget, long deadline,
+                      SplittableRandom random) {
+        PlayoutBoard pos = new PlayoutBoard();
+        int[] moves = new int[PlayoutBoard.MAX_MOVES];
+        int[] path = new int[MAX_DEPTH];
+        byte[] movers = new byte[MAX_DEPTH];
+        for (int i = 0; !searchStopped() && budget.getAndDecrement() > 0;
+             i += 1) {
+            if ((i & CLOCK_MASK) == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+            iterate(pos, random, moves, path, movers);
+        }
+    }
+
+    /** Perform one iteration of the search: descend from the root to a
+     *  leaf, expand it, play out a game from it with RANDOM and record
+     *  the result along the way back.  POS, MOVES, PATH and MOVERS are
+     *  work areas: the position, a move list, and the nodes passed
+     *  through with the side that moved into each. */
+    private void iterate(PlayoutBoard pos, SplittableRandom random,
+                         int[] moves, int[] path, byte[] movers) {
+        pos.copy(_rootPosition);
+        int node = _root, len;
+        path[0] = node;
+        movers[0] = PlayoutBoard.opposite(pos.toMove());
+        len = 1;
+        _visits.addAndGet(node, VIRTUAL_LOSS);
+        boolean expanded = false;
+        while (len < MAX_DEPTH && !expanded) {
+            int first = _firstChild.get(node);
+            if (first == UNEXPANDED) {
+                first = expand(node, pos, moves);
+                expanded = true;
+            }
+            if (first <= 0) {
+                break;
+            }
+            byte mover = pos.toMove();
+            node = select(node, first, _numChildren[node]);
+            pos.play(_move[node]);
+            path[len] = node;
+            movers[len] = mover;
+            len += 1;
+            _visits.addAndGet(node, VIRTUAL_LOSS);
+        }
+
+        byte winner = playout(pos, random, moves);
+        for (int i = 0; i < len; i += 1) {
+            _visits.addAndGet(path[i], 1 - VIRTUAL_LOSS);
+            _wins.addAndGet(path[i], winner == movers[i] ? 2
+                            : winner == PlayoutBoard.EMPTY ? 1 : 0);
+        }
+    }
+
+    /** Return the child of NODE (numbered FIRST to FIRST + N - 1) that
+     *  maximizes the UCT value, or the first unvisited one. */
+    private int select(int node, int first, int n) {
+        double logVisits = Math.log(Math.max(1, _visits.get(node)));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int c = first; c < first + n; c += 1) {
+            int visits = _visits.get(c);
+            if (visits == 0) {
+                return c;
+            }
+            double value = _wins.get(c) / (2.0 * visits)
+                + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /** Create the children of NODE, whose position is POS, using MOVES as
+     *  a work area.  Return the first child's number, or a value <= 0 if
+     *  NODE has no children (is terminal), another thread is expanding
+     *  it, or the tree is full. */
+    private int expand(int node, PlayoutBoard pos, int[] moves) {
+        if (!_firstChild.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+            return _firstChild.get(node);
+        }
+        if (pos.gameOver()) {
+            _firstChild.set(node, TERMINAL);
+            return TERMINAL;
+        }
+        int n = pos.moves(moves);
+        if (n == 0) {
+            moves[0] = PASS;
+            n = 1;
+        }
+        int first = _used.getAndAdd(n);
+        if (first + n > CAPACITY) {
+            _firstChild.set(node, UNEXPANDED);
+            return UNEXPANDED;
+        }
+        for (int i = 0; i < n; i += 1) {
+            if (_priors) {
+                double p = 0.5 + CAPTURE_PRIOR * pos.captures(moves[i])
+                    - (PlayoutBoard.isJump(moves[i]) ? JUMP_PRIOR : 0.0);
+                p = Math.max(MIN_PRIOR, Math.min(1.0 - MIN_PRIOR, p));
+                initNode(first + i, moves[i], PRIOR_VISITS,
+                         (int) Math.round(2 * PRIOR_VISITS * p));
+            } else {
+                initNode(first + i, moves[i], 0, 0);
+            }
+        }
+        _numChildren[node] = (short) n;
+        _firstChild.set(node, first);
+        return first;
+    }
+
+    /** Initialize node K as an unexpanded node reached by encoded move
+     *  MOVE, with VISITS visits and WINS half-wins. */
+    private void initNode(int k, int move, int visits, int wins) {
+        _move[k] = (short) move;
+        _numChildren[k] = 0;
+        _visits.set(k, visits);
+        _wins.set(k, wins);
+        _firstChild.set(k, UNEXPANDED);
+    }
+
+    /** Play random moves, chosen with RANDOM, from POS until the game
+     *  ends, using MOVES as a work area.  Return the winner (RED or BLUE)
+     *  or EMPTY for a draw. */
+    private static byte playout(PlayoutBoard pos, SplittableRandom random,
+                                int[] moves) {
+        for (int ply = 0; ply < MAX_PLAYOUT; ply += 1) {
+            if (pos.numJumps() == Board.JUMP_LIMIT
+                || pos.count(PlayoutBoard.RED) == 0
+                || pos.count(PlayoutBoard.BLUE) == 0) {
+                break;
+            }
+            int n = pos.moves(moves);
+            if (n > 0) {
+                pos.play(moves[random.nextInt(n)]);
+            } else if (pos.canMove(PlayoutBoard.opposite(pos.toMove()))) {
+                pos.play(PASS);
+            } else {
+                break;
+            }
+        }
+        int red = pos.count(PlayoutBoard.RED),
+            blue = pos.count(PlayoutBoard.BLUE);
+        return red > blue ? PlayoutBoard.RED
+            : blue > red ? PlayoutBoard.BLUE : PlayoutBoard.EMPTY;
+    }
+
+    /** Maximum number of nodes in the tree. */
+    static final int CAPACITY = 1 << 19;
+
+    /** Values of _firstChild for nodes without children. */
+    private static final int UNEXPANDED = 0, EXPANDING = -1, TERMINAL = -2;
+
+    /** Weight of the exploration term of the UCT value. */
+    private static final double EXPLORATION = 0.7;
+    /** Visits charged to a node while a playout through it runs. */
+    private static final int VIRTUAL_LOSS = 3;
+    /** The time is checked once per CLOCK_MASK + 1 playouts. */
+    private static final int CLOCK_MASK = 15;
+    /** Number of visits a prior is worth. */
+    private static final int PRIOR_VISITS = 10;
+    /** Increase in prior win rate for each piece captured. */
+    private static final double CAPTURE_PRIOR = 0.08;
+    /** Decrease in prior win rate for a jump. */
+    private static final double JUMP_PRIOR = 0.1;
+    /** Least prior win (or loss) rate. */
+    private static final double MIN_PRIOR = 0.1;
+    /** Limit on the depth of a path through the tree. */
+    private static final int MAX_DEPTH = 512;
+    /** Limit on the length of a playout (games end sooner). */
+    private static final int MAX_PLAYOUT = 1000;
+
+    /** Number of threads searching at once. */
+    private static final int THREADS =
+        Runtime.getRuntime().availableProcessors();
+
+    /** Runs the searching threads of all MonteCarloAIs. */
+    private static final ExecutorService PLAYERS =
+        Executors.newFixedThreadPool(THREADS, (r) -> {
+            Thread t = new Thread(r, "ataxx-playout");
+            t.setDaemon(true);
+            return t;
+        });
+
+    /** True iff new nodes get prior statistics. */
+    private final boolean _priors;
+
+    /** For each node: the encoded move leading to it. */
+    private final short[] _move = new short[CAPACITY];
+    /** For each node: its first child's number, or a value <= 0 if it has
+     *  none (yet).  The children of a node are numbered consecutively. */
+    private final AtomicIntegerArray _firstChild =
+        new AtomicIntegerArray(CAPACITY);
+    /** For each node: its number of children. */
+    private final short[] _numChildren = new short[CAPACITY];
+    /** For each node: its number of visits (including virtual ones). */
+    private final AtomicIntegerArray _visits =
+        new AtomicIntegerArray(CAPACITY);
+    /** For each node: twice the number of playouts through it won by the
+     *  side that moved into it, plus the number drawn. */
+    private final AtomicIntegerArray _wins = new AtomicIntegerArray(CAPACITY);
+    /** Number of nodes allocated. */
+    private final AtomicInteger _used = new AtomicInteger(1);
+
+    /** The root node. */
+    private int _root;
+    /** The position at the root. */
+    private final PlayoutBoard _rootPosition = new PlayoutBoard();
+    /** The child of the root whose move I last chose, or 0. */
+    private int _chosen;
+}
@@ -1,36 +1,66 @@
 package ataxx;
 
+import java.util.Arrays;
+
 /** Represents an Ataxx move. There is one Move object created for
- *  each distinct Move.
+ *  each distinct Move.  Each also has a dense index (see index()), and
+ *  facts about moves that searches need often are kept in tables
+ *  indexed by it.
  *  @author tapan.jasthi
  */
 class Move {
 
-    /** The move COL0 ROW0 - COL1 ROW1.  This must be a legal move. */
-    private Move(int col0, int row0, int col1, int row1) {
-        _col0 = (char) (col0 + 'a' - 2);
-        _row0 = (char) (row0 + '1' - 2);
-        _col1 = (char) (col1 + 'a' - 2);
-        _row1 = (char) (row1 + '1' - 2);
-        _fromIndex = row0 * EXTENDED_SIDE + col0;
-        _toIndex = row1 * EXTENDED_SIDE + col1;
+    /** The move from the square with linearized index FROM to the one
+     *  with linearized index TO, whose dense index is INDEX. */
+    private Move(int index, int from, int to) {
+        _index = index;
+        _col0 = Board.colInd(from);
+        _row0 = Board.rowInd(from);
+        _col1 = Board.colInd(to);
+        _row1 = Board.rowInd(to);
+        _fromIndex = from;
+        _toIndex = to;
+        _jump = Math.abs(_col0 - _col1) == 2 || Math.abs(_row0 - _row1) == 2;
     }
 
     /** A pass. */
     private Move() {
+        _index = PASS_INDEX;
         _col0 = _col1 = _row0 = _row1 = 0;
         _fromIndex = _toIndex = -1;
+        _jump = false;
     }
 
-    /** A factory method that returns a Move from COL0 ROW0 to COL1 ROW1,
-     *  assuming the column and row designations are valid. Returns null
-     *  if no such move is ever possible because it is more than 2 squares
-     *  in some direction.  The moves are on the extended board (i.e., they
-     *  may go into the border layers). */
+    /** A factory method that returns a Move from COL0 ROW0 to COL1 ROW1.
+     *  Returns null if no such move is ever possible because it is more
+     *  than 2 squares in some direction, or starts or ends off the
+     *  board. */
     static Move move(char col0, char row0, char col1, char row1) {
-        return
-            ALL_MOVES[col0 - 'a' + 2][row0 - '1' + 2]
-            [col1 - 'a' + 2][row1 - '1' + 2];
+        int dc = col1 - col0, dr = row1 - row0;
+        if (!onBoard(col0, row0) || !onBoard(col1, row1)
+            || Math.abs(dc) > 2 || Math.abs(dr) > 2) {
+            return null;
+        }
+        return BY_SQUARES[((row0 - '1') * SIDE + col0 - 'a') * SPAN * SPAN
+                          + (dc + 2) * SPAN + dr + 2];
+    }
+
+    /** Returns the Move denoted by TEXT, as written by toString, or null
+     *  if there is none. */
+    static Move parse(String text) {
+        if (text.equals("-")) {
+            return PASS;
+        } else if (text.length() != 5 || text.charAt(2) != '-') {
+            return null;
+        }
+        return move(text.charAt(0), text.charAt(1), text.charAt(3),
+                    text.charAt(4));
+    }
+
+    /** Returns the Move whose dense index is INDEX, where
+     *  0 <= INDEX < NUM_MOVES. */
+    static Move move(int index) {
+        return ALL_MOVES[index];
     }
 
     /** Returns a pass. */
@@ -45,19 +75,12 @@ class Move {
 
     /** Return true if this is an extension (move to adjacent square). */
     boolean isExtend() {
-        int colDif = Math.abs(this.col0() - this.col1());
-        int rowDif = Math.abs(this.row0() - this.row1());
-        if ((colDif > 1) || (rowDif > 1)) {
-            return false;
-        }
-        return !((colDif == 0) && (rowDif == 0));
+        return !_jump && this != PASS;
     }
 
     /** Return true if this is a jump (move to nonadjacent square). */
     boolean isJump() {
-        int colDif = Math.abs(this.col0() - this.col1());
-        int rowDif = Math.abs(this.row0() - this.row1());
-        return ((colDif == 2) || (rowDif == 2));
+        return _jump;
     }
 
     /** Returns from column.  Undefined if a pass. */
@@ -92,6 +115,54 @@ class Move {
         return _toIndex;
     }
 
+    /** Return my dense index: PASS_INDEX if I am a pass, and otherwise
+     *  a distinct number between 1 and NUM_MOVES - 1.  Tables about
+     *  moves may be arrays indexed by this number. */
+    int index() {
+        return _index;
+    }
+
+    /** Return the linearized indices of the squares on the board
+     *  adjacent to my 'to' square (those whose pieces I capture), or an
+     *  empty array if I am a pass.  The result must not be modified. */
+    int[] neighbors() {
+        return NEIGHBORS[_index];
+    }
+
+    /** Return the mask of the squares adjacent to my 'to' square, with
+     *  bit K set for square K as numbered by BoardSnapshot, or 0 if I am
+     *  a pass. */
+    long captureMask() {
+        return CAPTURE_MASKS[_index];
+    }
+
+    /** Return true iff the move with dense index INDEX is a jump. */
+    static boolean isJump(int index) {
+        return JUMPS[index];
+    }
+
+    /** Return the linearized index of the 'from' square of the move with
+     *  dense index INDEX, or -1 if it is a pass. */
+    static int fromIndex(int index) {
+        return FROM[index];
+    }
+
+    /** Return the linearized index of the 'to' square of the move with
+     *  dense index INDEX, or -1 if it is a pass. */
+    static int toIndex(int index) {
+        return TO[index];
+    }
+
+    /** Return the neighbors() of the move with dense index INDEX. */
+    static int[] neighbors(int index) {
+        return NEIGHBORS[index];
+    }
+
+    /** Return the captureMask() of the move with dense index INDEX. */
+    static long captureMask(int index) {
+        return CAPTURE_MASKS[index];
+    }
+
     @Override
     public String toString() {
         if (this.isPass()) {
@@ -102,40 +173,116 @@ class Move {
         }
     }
 
+    /** Return true iff C R names a square on the board. */
+    private static boolean onBoard(char c, char r) {
+        return c >= 'a' && c < 'a' + SIDE && r >= '1' && r < '1' + SIDE;
+    }
+
     /** Size of a side of the board. */
     static final int SIDE = 7;
 
     /** Size of side of a board plus 2-deep boundary. */
     static final int EXTENDED_SIDE = SIDE + 4;
 
+    /** The dense index of a pass. */
+    static final int PASS_INDEX = 0;
+
+    /** The number of dense move indices: one for each move between two
+     *  squares on the board at most two apart, plus one for pass. */
+    static final int NUM_MOVES;
+
     /** The pass. */
     static final Move PASS = new Move();
 
+    /** Number of columns (or rows) that a move may cover: from 2 back to
+     *  2 ahead. */
+    private static final int SPAN = 5;
+
+    /** Dense index. */
+    private final int _index;
+
     /** Linearized indices. */
     private final int _fromIndex, _toIndex;
 
     /** From and two squares, or 0s if a pass. */
-    private char _col0, _row0, _col1, _row1;
+    private final char _col0, _row0, _col1, _row1;
+
+    /** True iff I am a jump. */
+    private final boolean _jump;
+
+    /** All Moves, indexed by from square (numbered as by BoardSnapshot),
+     *  column difference + 2, and row difference + 2, flattened.  The
+     *  slots for moves off the board are null. */
+    private static final Move[] BY_SQUARES =
+        new Move[SIDE * SIDE * SPAN * SPAN];
 
-    /** The set of all Moves other than pass, indexed by from and to row and
-     *  column positions. */
-    private static final Move[][][][] ALL_MOVES =
-        new Move[EXTENDED_SIDE][EXTENDED_SIDE][EXTENDED_SIDE][EXTENDED_SIDE];
+    /** All Moves (including pass), indexed by dense index. */
+    private static final Move[] ALL_MOVES;
+
+    /** Per-move tables, indexed by dense index: whether the move is a
+     *  jump, its from and to squares (linearized), the squares adjacent
+     *  to its to square (linearized), and those squares as a mask (as
+     *  for captureMask()). */
+    private static final boolean[] JUMPS;
+    /** See JUMPS. */
+    private static final int[] FROM, TO;
+    /** See JUMPS. */
+    private static final int[][] NEIGHBORS;
+    /** See JUMPS. */
+    private static final long[] CAPTURE_MASKS;
 
     /** A "static initializer".  These code sections are run when the class
      * is initialized and are intended to initialize static variables. */
     static {
-        for (int c = 2; c < SIDE + 2; c += 1) {
-            for (int r = 2; r < SIDE + 2; r += 1) {
-                for (int dc = -2; dc <= 2; dc += 1) {
-                    for (int dr = -2; dr <= 2; dr += 1) {
-                        if (dc != 0 || dr != 0) {
-                            ALL_MOVES[c][r][c + dc][r + dr] =
-                                new Move(c, r, c + dc, r + dr);
-                        }
+        int n = 1;
+        for (int k = 0; k < SIDE * SIDE; k += 1) {
+            int c = 'a' + k % SIDE, r = '1' + k / SIDE;
+            for (int dc = -2; dc <= 2; dc += 1) {
+                for (int dr = -2; dr <= 2; dr += 1) {
+                    if ((dc != 0 || dr != 0)
+                        && onBoard((char) (c + dc), (char) (r + dr))) {
+                        BY_SQUARES[k * SPAN * SPAN + (dc + 2) * SPAN + dr + 2]
+                            = new Move(n, Board.index((char) c, (char) r),
+                                       Board.index((char) (c + dc),
+                                                   (char) (r + dr)));
+                        n += 1;
+                    }
+                }
+            }
+        }
+        NUM_MOVES = n;
+        ALL_MOVES = new Move[n];
+        JUMPS = new boolean[n];
+        FROM = new int[n];
+        TO = new int[n];
+        NEIGHBORS = new int[n][];
+        CAPTURE_MASKS = new long[n];
+        ALL_MOVES[PASS_INDEX] = PASS;
+        FROM[PASS_INDEX] = TO[PASS_INDEX] = -1;
+        NEIGHBORS[PASS_INDEX] = new int[0];
+        for (Move m : BY_SQUARES) {
+            if (m == null) {
+                continue;
+            }
+            int i = m._index;
+            ALL_MOVES[i] = m;
+            JUMPS[i] = m._jump;
+            FROM[i] = m._fromIndex;
+            TO[i] = m._toIndex;
+            int[] neighbors = new int[8];
+            int count;
+            count = 0;
+            for (int dc = -1; dc <= 1; dc += 1) {
+                for (int dr = -1; dr <= 1; dr += 1) {
+                    char c = (char) (m._col1 + dc), r = (char) (m._row1 + dr);
+                    if ((dc != 0 || dr != 0) && onBoard(c, r)) {
+                        neighbors[count] = Board.index(c, r);
+                        count += 1;
+                        CAPTURE_MASKS[i] |= 1L << BoardSnapshot.square(c, r);
                     }
                 }
             }
+            NEIGHBORS[i] = Arrays.copyOf(neighbors, count);
         }
     }
 }
@@ -32,6 +32,32 @@ public class MoveTest {
         assertNotNull(m);
         assertFalse("move is pass", m.isPass());
         assertFalse("move is extend", m.isExtend());
+        assertTrue("move not jump", m.isJump());
+    }
+
+    @Test
+    public void testIndex() {
+        assertEquals("bad pass index", PASS_INDEX, pass().index());
+        assertNull("move off board", move('a', '1', 'a', '0'));
+        assertNull("move too long", move('a', '1', 'a', '4'));
+        assertEquals("bad number of moves", 29 * 29 - 49 + 1, NUM_MOVES);
+        for (int i = 0; i < NUM_MOVES; i += 1) {
+            Move m = move(i);
+            assertEquals("bad index", i, m.index());
+            if (i != PASS_INDEX) {
+                assertSame("bad lookup", m,
+                           move(m.col0(), m.row0(), m.col1(), m.row1()));
+                assertEquals("bad jump flag", m.isJump(), isJump(i));
+                assertEquals("bad from", m.fromIndex(), fromIndex(i));
+                assertEquals("bad to", m.toIndex(), toIndex(i));
+                assertEquals("bad mask", m.neighbors().length,
+                             Long.bitCount(captureMask(i)));
+            }
+        }
+        Move m = move('a', '3', 'a', '1');
+        assertEquals("bad corner neighbors", 3, m.neighbors().length);
+        assertEquals("bad corner mask", (1L << 1) | (1L << 7) | (1L << 8),
+                     captureMask(m.index()));
     }
 
 }
@@ -0,0 +1,168 @@
+package ataxx;
+
+/** A table of the values of local patterns: the contents of the 3x3
+ *  neighbourhood of a square, encoded in base 4 as the sum over the
+ *  nine cells of CONTENTS * 4^J, where CONTENTS is a PlayoutBoard
+ *  square content (EMPTY, BLOCKED, RED, or BLUE) and J = 3 * (DR + 1)
+ *  + (DC + 1) for the cell DC columns and DR rows from the center.
+ *  Cells off the board read as BLOCKED, so the same table covers
+ *  edges and corners.  The value of a position for Red is the sum of
+ *  the values of the patterns centered on its squares.
+ *
+ *  A PlayoutBoard given a PatternTable (see usePatterns) keeps the
+ *  pattern index of each square and their total value up to date as
+ *  moves change squares (see update), so that evaluating a position
+ *  costs one addition rather than a scan of the board.
+ *
+ *  Values are in units of 1/SCALE piece, and are derived from the
+ *  weights of an Evaluation: those of its features that can be judged
+ *  from a 3x3 neighbourhood (all but reach) are charged to the
+ *  patterns in which they show.
+ *  @author tapan.jasthi
+ */
+final class PatternTable {
+
+    /** Units of values per piece (as for Evaluation). */
+    static final int SCALE = Evaluation.SCALE;
+
+    /** Number of patterns. */
+    static final int PATTERNS = 1 << 18;
+
+    /** The table of values equal to those of Evaluation.MATERIAL. */
+    static final PatternTable MATERIAL;
+
+    /** A table of values derived from the weights of EVAL. */
+    PatternTable(Evaluation eval) {
+        for (int p = 0; p < PATTERNS; p += 1) {
+            _values[p] = (int) Math.round(value(p, eval) * SCALE);
+        }
+        _tempo = (int) Math.round(eval.weight(Evaluation.TEMPO) * SCALE);
+        _evaluation = eval;
+    }
+
+    /** Return the Evaluation from whose weights I was derived. */
+    Evaluation evaluation() {
+        return _evaluation;
+    }
+
+    /** Return the value of pattern P for Red. */
+    int value(int p) {
+        return _values[p];
+    }
+
+    /** Return the value of being on move. */
+    int tempo() {
+        return _tempo;
+    }
+
+    /** Return the pattern centered on square SQ (a linearized index, as
+     *  for Board) of CELLS (PlayoutBoard square contents). */
+    static int pattern(byte[] cells, int sq) {
+        int p = 0;
+        for (int j = CELLS - 1; j >= 0; j -= 1) {
+            p = 4 * p + cells[sq + OFFSETS[j]];
+        }
+        return p;
+    }
+
+    /** Set INDEX[SQ] to the pattern of each square SQ of CELLS on the
+     *  board, and return the sum of their values for Red. */
+    int reset(byte[] cells, int[] index) {
+        int sum = 0;
+        for (int k = 0; k < NUM_SQUARES; k += 1) {
+            int sq = BoardSnapshot.boardIndex(k);
+            index[sq] = pattern(cells, sq);
+            sum += _values[index[sq]];
+        }
+        return sum;
+    }
+
+    /** Update the patterns in INDEX (as set by reset) for a change of
+     *  square SQ from contents FROM to TO, and return the resulting
+     *  change in the sum of their values. */
+    int update(int[] index, int sq, int from, int to) {
+        int change = 0;
+        for (int j = 0; j < CELLS; j += 1) {
+            int center = sq - OFFSETS[j];
+            if (ON_BOARD[center]) {
+                int p = index[center], q = p + (to - from) * POWERS[j];
+                change += _values[q] - _values[p];
+                index[center] = q;
+            }
+        }
+        return change;
+    }
+
+    /** Return the value for Red, in pieces, of pattern P according to
+     *  the weights of EVAL. */
+    private static double value(int p, Evaluation eval) {
+        int center = cell(p, CELLS / 2);
+        int[] counts = new int[4];
+        for (int j = 0; j < CELLS; j += 1) {
+            if (j != CELLS / 2) {
+                counts[cell(p, j)] += 1;
+            }
+        }
+        switch (center) {
+        case PlayoutBoard.EMPTY:
+            return (counts[PlayoutBoard.RED] > 0 ? 1 : 0)
+                * eval.weight(Evaluation.FRONTIER)
+                - (counts[PlayoutBoard.BLUE] > 0 ? 1 : 0)
+                * eval.weight(Evaluation.FRONTIER);
+        case PlayoutBoard.RED: case PlayoutBoard.BLUE:
+            int blocked = counts[PlayoutBoard.BLOCKED];
+            double v = eval.weight(Evaluation.MATERIAL_FEATURE);
+            if (counts[PlayoutBoard.EMPTY] > 0
+                && counts[PlayoutBoard.opposite((byte) center)] > 0) {
+                v += eval.weight(Evaluation.EXPOSED);
+            }
+            if (blocked >= EDGE_BLOCKS) {
+                v += eval.weight(Evaluation.EDGES);
+            }
+            if (blocked >= CORNER_BLOCKS) {
+                v += eval.weight(Evaluation.CORNERS);
+            }
+            return center == PlayoutBoard.RED ? v : -v;
+        default:
+            return 0;
+        }
+    }
+
+    /** Return the contents of cell J of pattern P. */
+    private static int cell(int p, int j) {
+        return (p / POWERS[j]) % 4;
+    }
+
+    /** Number of cells in a pattern. */
+    private static final int CELLS = 9;
+    /** Number of squares on the board. */
+    private static final int NUM_SQUARES = Board.SIDE * Board.SIDE;
+    /** Least numbers of blocked neighbours of edge and corner squares. */
+    private static final int EDGE_BLOCKS = 3, CORNER_BLOCKS = 5;
+
+    /** OFFSETS[J] is the linearized offset of cell J from the center. */
+    private static final int[] OFFSETS = new int[CELLS];
+    /** POWERS[J] is 4^J. */
+    private static final int[] POWERS = new int[CELLS];
+    /** ON_BOARD[SQ] is true iff linearized square SQ is on the board. */
+    private static final boolean[] ON_BOARD =
+        new boolean[Board.EXTENDED_SIDE * Board.EXTENDED_SIDE];
+
+    static {
+        for (int j = 0; j < CELLS; j += 1) {
+            OFFSETS[j] = Board.neighbor(0, j % 3 - 1, j / 3 - 1);
+            POWERS[j] = j == 0 ? 1 : 4 * POWERS[j - 1];
+        }
+        for (int k = 0; k < NUM_SQUARES; k += 1) {
+            ON_BOARD[BoardSnapshot.boardIndex(k)] = true;
+        }
+        MATERIAL = new PatternTable(Evaluation.MATERIAL);
+    }
+
+    /** Values of the patterns. */
+    private final int[] _values = new int[PATTERNS];
+    /** Value of being on move. */
+    private final int _tempo;
+    /** Source of my values. */
+    private final Evaluation _evaluation;
+}
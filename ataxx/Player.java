@@ -31,6 +31,10 @@ abstract class Player {
      *  board.whoseMove() == myColor and that !board.gameOver(). */
     abstract Move myMove();
 
+    /** Return the kind of player I am, as named in commands: 'manual',
+     *  or the engine given to 'auto'. */
+    abstract String kind();
+
     @Override
     public String toString() {
         if (this.myColor() == PieceColor.RED) {
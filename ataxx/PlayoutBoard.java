@@ -0,0 +1,340 @@
+package ataxx;
+
+import java.util.Arrays;
+
+/** A small, fast Ataxx board for playing out random games.  It uses
+ *  the same 11x11 layout and linearized indices as Board (with two
+ *  layers of blocked border squares), stores squares as bytes holding
+ *  PieceColor ordinals, keeps running piece counts, and does not
+ *  support undoing moves or notifying observers.  The rules are those
+ *  of Board, so a game played out here ends just as it would there.
+ *
+ *  It keeps the Zobrist key of its position (see key) up to date as it
+ *  plays, for use with a TranspositionTable.
+ *  Given a PatternTable (see usePatterns), it also keeps the patterns
+ *  around its squares and their total value up to date as it plays.
+ *
+ *  Moves are encoded as ints: FROM * SIZE + TO for a move between the
+ *  squares with linearized indices FROM and TO, and PASS for a pass.
+ *  @author tapan.jasthi
+ */
+class PlayoutBoard {
+
+    /** Number of squares in the extended board. */
+    static final int SIZE = Board.EXTENDED_SIDE * Board.EXTENDED_SIDE;
+
+    /** Encoded pass. */
+    static final int PASS = -1;
+
+    /** Square contents (PieceColor ordinals). */
+    static final byte EMPTY = 0, BLOCKED = 1, RED = 2, BLUE = 3;
+
+    /** Most moves possible from any position (a generous bound). */
+    static final int MAX_MOVES = Board.SIDE * Board.SIDE * 24;
+
+    /** An empty board, all of whose squares are blocked. */
+    PlayoutBoard() {
+        Arrays.fill(_cells, BLOCKED);
+    }
+
+    /** Make me a copy of BOARD. */
+    void copy(Board board) {
+        Arrays.fill(_count, 0);
+        for (int sq = 0; sq < SIZE; sq += 1) {
+            _cells[sq] = (byte) board.get(sq).ordinal();
+            _count[_cells[sq]] += 1;
+        }
+        _toMove = (byte) board.whoseMove().ordinal();
+        _numJumps = board.numJumps();
+        _key = Zobrist.jumps(_numJumps)
+            ^ (_toMove == BLUE ? Zobrist.blueToMove() : 0);
+        for (int k = 0; k < Board.SIDE * Board.SIDE; k += 1) {
+            int sq = BoardSnapshot.boardIndex(k);
+            _key ^= KEYS[sq][_cells[sq]];
+        }
+        if (_patterns != null) {
+            _patternSum = _patterns.reset(_cells, _patternIndex);
+        }
+    }
+
+    /** Make me a copy of BOARD. */
+    void copy(PlayoutBoard board) {
+        System.arraycopy(board._cells, 0, _cells, 0, SIZE);
+        System.arraycopy(board._count, 0, _count, 0, _count.length);
+        _toMove = board._toMove;
+        _numJumps = board._numJumps;
+        _key = board._key;
+        if (_patterns != null) {
+            System.arraycopy(board._patternIndex, 0, _patternIndex, 0, SIZE);
+            _patternSum = board._patternSum;
+        }
+    }
+
+    /** Keep the patterns of my squares and their total value according to
+     *  PATTERNS up to date from now on, or stop if PATTERNS is null.  All
+     *  boards copied into each other must use the same PatternTable. */
+    void usePatterns(PatternTable patterns) {
+        _patterns = patterns;
+        if (patterns != null) {
+            _patternIndex = new int[SIZE];
+            _patternSum = patterns.reset(_cells, _patternIndex);
+        } else {
+            _patternIndex = null;
+        }
+    }
+
+    /** Return the Zobrist key of my position, which equals that of any
+     *  BoardSnapshot of the same position (see Zobrist). */
+    long key() {
+        return _key;
+    }
+
+    /** Return the value, in units of 1/PatternTable.SCALE piece, of my
+     *  position for the side on move according to my PatternTable. */
+    int patternValue() {
+        return (_toMove == RED ? _patternSum : -_patternSum)
+            + _patterns.tempo();
+    }
+
+    /** Return the contents of square SQ. */
+    byte get(int sq) {
+        return _cells[sq];
+    }
+
+    /** Return the side to move (RED or BLUE). */
+    byte toMove() {
+        return _toMove;
+    }
+
+    /** Return the number of pieces of color P. */
+    int count(byte p) {
+        return _count[p];
+    }
+
+    /** Return the mask of the squares whose contents are P, with bit K
+     *  standing for square K as numbered by BoardSnapshot. */
+    long mask(byte p) {
+        long result = 0;
+        for (int k = 0; k < Board.SIDE * Board.SIDE; k += 1) {
+            if (_cells[BoardSnapshot.boardIndex(k)] == p) {
+                result |= 1L << k;
+            }
+        }
+        return result;
+    }
+
+    /** Return the number of jumps made, as for Board.numJumps. */
+    int numJumps() {
+        return _numJumps;
+    }
+
+    /** Return the opponent of side P. */
+    static byte opposite(byte p) {
+        return (byte) (RED + BLUE - p);
+    }
+
+    /** Return true iff the game is over, by the rules of
+     *  Board.gameOver. */
+    boolean gameOver() {
+        return _numJumps == Board.JUMP_LIMIT
+            || _count[RED] == 0 || _count[BLUE] == 0
+            || (!canMove(RED) && !canMove(BLUE));
+    }
+
+    /** Return true iff side P has a move. */
+    boolean canMove(byte p) {
+        if (_count[EMPTY] == 0) {
+            return false;
+        }
+        for (int sq = FIRST; sq <= LAST; sq += 1) {
+            if (_cells[sq] == p) {
+                for (int d : REACH) {
+                    if (_cells[sq + d] == EMPTY) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Store the moves of the side on move in MOVES and return their
+     *  number.  Extends are listed once per destination (all extends to
+     *  a square have the same effect); jumps once per source and
+     *  destination.  Returns 0 if the side on move must pass. */
+    int moves(int[] moves) {
+        int n;
+        n = 0;
+        _stamp += 1;
+        for (int sq = FIRST; sq <= LAST; sq += 1) {
+            if (_cells[sq] != _toMove) {
+                continue;
+            }
+            for (int d : ADJACENT) {
+                int to = sq + d;
+                if (_cells[to] == EMPTY && _marks[to] != _stamp) {
+                    _marks[to] = _stamp;
+                    moves[n] = sq * SIZE + to;
+                    n += 1;
+                }
+            }
+            for (int d : JUMPS) {
+                if (_cells[sq + d] == EMPTY) {
+                    moves[n] = sq * SIZE + sq + d;
+                    n += 1;
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Return the number of opposing pieces that encoded move MOVE
+     *  would capture (0 for a pass). */
+    int captures(int move) {
+        if (move == PASS) {
+            return 0;
+        }
+        int to = move % SIZE, n;
+        byte other = opposite(_toMove);
+        n = 0;
+        for (int d : ADJACENT) {
+            if (_cells[to + d] == other) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Make encoded move MOVE, which must be legal. */
+    void play(int move) {
+        _key ^= Zobrist.blueToMove();
+        if (move == PASS) {
+            _toMove = opposite(_toMove);
+            return;
+        }
+        int from = move / SIZE, to = move % SIZE;
+        byte me = _toMove, other = opposite(me);
+        if (isJump(move)) {
+            set(from, EMPTY);
+            _key ^= Zobrist.jumps(_numJumps) ^ Zobrist.jumps(_numJumps + 1);
+            _numJumps += 1;
+        } else {
+            _count[EMPTY] -= 1;
+            _count[me] += 1;
+        }
+        set(to, me);
+        for (int d : ADJACENT) {
+            if (_cells[to + d] == other) {
+                set(to + d, me);
+                _count[other] -= 1;
+                _count[me] += 1;
+            }
+        }
+        _toMove = other;
+    }
+
+    /** Set square SQ to P, updating my key, and my patterns if I keep
+     *  them. */
+    private void set(int sq, byte p) {
+        _key ^= KEYS[sq][_cells[sq]] ^ KEYS[sq][p];
+        if (_patterns != null) {
+            _patternSum += _patterns.update(_patternIndex, sq, _cells[sq], p);
+        }
+        _cells[sq] = p;
+    }
+
+    /** Return true iff encoded move MOVE is a jump. */
+    static boolean isJump(int move) {
+        if (move == PASS) {
+            return false;
+        }
+        int from = move / SIZE, to = move % SIZE, side = Board.EXTENDED_SIDE;
+        int dc = Math.abs(from % side - to % side),
+            dr = Math.abs(from / side - to / side);
+        return dc == 2 || dr == 2;
+    }
+
+    /** Return the Move denoted by encoded move MOVE. */
+    static Move toMove(int move) {
+        if (move == PASS) {
+            return Move.pass();
+        }
+        int from = move / SIZE, to = move % SIZE;
+        return Move.move(Board.colInd(from), Board.rowInd(from),
+                         Board.colInd(to), Board.rowInd(to));
+    }
+
+    /** Return true iff I hold the same position as BOARD (contents,
+     *  side on move, and number of jumps). */
+    boolean samePosition(PlayoutBoard board) {
+        return _toMove == board._toMove && _numJumps == board._numJumps
+            && Arrays.equals(_cells, board._cells);
+    }
+
+    /** Linearized indices of the first and last squares on the real
+     *  board. */
+    private static final int FIRST = Board.index('a', '1'),
+        LAST = Board.index('g', '7');
+
+    /** KEYS[SQ][P] is the Zobrist key of square SQ holding P (0 for
+     *  squares off the board, which never change). */
+    private static final long[][] KEYS = new long[SIZE][4];
+
+    static {
+        for (int k = 0; k < Board.SIDE * Board.SIDE; k += 1) {
+            for (PieceColor p : PieceColor.values()) {
+                KEYS[BoardSnapshot.boardIndex(k)][p.ordinal()] =
+                    Zobrist.square(k, p);
+            }
+        }
+    }
+
+    /** Offsets of the squares adjacent to a square. */
+    private static final int[] ADJACENT = offsets(1, 1);
+    /** Offsets of the squares exactly two away from a square. */
+    private static final int[] JUMPS = offsets(2, 2);
+    /** Offsets of all squares within two of a square. */
+    private static final int[] REACH = offsets(1, 2);
+
+    /** Return the offsets of the squares whose distance (in king moves)
+     *  from a square is between LO and HI. */
+    private static int[] offsets(int lo, int hi) {
+        int[] result = new int[(2 * hi + 1) * (2 * hi + 1)
+                               - (2 * lo - 1) * (2 * lo - 1)];
+        int n;
+        n = 0;
+        for (int dr = -hi; dr <= hi; dr += 1) {
+            for (int dc = -hi; dc <= hi; dc += 1) {
+                int dist = Math.max(Math.abs(dr), Math.abs(dc));
+                if (dist >= lo && dist <= hi) {
+                    result[n] = Board.neighbor(0, dc, dr);
+                    n += 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Square contents. */
+    private final byte[] _cells = new byte[SIZE];
+    /** Number of squares of each content (indexed by content). */
+    private final int[] _count = new int[4];
+    /** Side on move. */
+    private byte _toMove;
+    /** Number of jumps made, as for Board.numJumps. */
+    private int _numJumps;
+    /** Zobrist key of my position. */
+    private long _key;
+    /** Values of patterns, or null if I do not keep them. */
+    private PatternTable _patterns;
+    /** _patternIndex[SQ] is the pattern centered on square SQ, if I keep
+     *  patterns. */
+    private int[] _patternIndex;
+    /** Total value of my patterns for Red. */
+    private int _patternSum;
+    /** Used by moves to mark destinations already listed: square SQ is
+     *  marked iff _marks[SQ] == _stamp. */
+    private final int[] _marks = new int[SIZE];
+    /** Current marking stamp. */
+    private int _stamp;
+}
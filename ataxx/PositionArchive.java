@@ -0,0 +1,466 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/** An index of the positions reached in recorded games (see
+ *  GameRecord), giving for each how the games reaching it ended and
+ *  which moves were played from it.  The index is built offline by
+ *  build (or main) and read through a memory mapping, so that a lookup
+ *  is a binary search touching O(log n) pages and loading nothing onto
+ *  the heap.
+ *
+ *  An index file consists of RECORD-byte records.  The first is a
+ *  header: the int MAGIC, an int version, and the long number of
+ *  positions, N.  The next N hold, in increasing order of key: a
+ *  position's Zobrist key (long); the numbers of games reaching it that
+ *  Red won, Blue won, were drawn, and were unfinished (ints); the
+ *  offset in the move section of its next-move counts (long); and the
+ *  number of those (int), then padding.  The move section follows, in
+ *  which each next-move count is two ints: a dense move index and the
+ *  number of times it was played, most played first.
+ *  @author tapan.jasthi
+ */
+class PositionArchive implements Closeable {
+
+    /** Statistics of one position in an archive. */
+    static class Entry {
+
+        /** Statistics of a position reached in games that RED, BLUE,
+         *  DRAWS, and UNFINISHED were won by Red, won by Blue, drawn,
+         *  and unfinished, from which the moves with dense indices
+         *  MOVES[i] were played COUNTS[i] times. */
+        Entry(int red, int blue, int draws, int unfinished, int[] moves,
+              int[] counts) {
+            _red = red;
+            _blue = blue;
+            _draws = draws;
+            _unfinished = unfinished;
+            _moves = moves;
+            _counts = counts;
+        }
+
+        /** Return the number of games reaching me that Red won. */
+        int redWins() {
+            return _red;
+        }
+
+        /** Return the number of games reaching me that Blue won. */
+        int blueWins() {
+            return _blue;
+        }
+
+        /** Return the number of games reaching me that were drawn. */
+        int draws() {
+            return _draws;
+        }
+
+        /** Return the number of games reaching me that were unfinished. */
+        int unfinished() {
+            return _unfinished;
+        }
+
+        /** Return the number of times I was reached. */
+        int frequency() {
+            return _red + _blue + _draws + _unfinished;
+        }
+
+        /** Return the number of different moves played from me. */
+        int numNext() {
+            return _moves.length;
+        }
+
+        /** Return the Kth most played move from me. */
+        Move next(int k) {
+            return Move.move(_moves[k]);
+        }
+
+        /** Return the number of times next(K) was played. */
+        int nextCount(int k) {
+            return _counts[k];
+        }
+
+        /** Game results. */
+        private final int _red, _blue, _draws, _unfinished;
+        /** Next moves (dense indices) and their counts. */
+        private final int[] _moves, _counts;
+    }
+
+    /** The archive in the index file FILE. */
+    PositionArchive(Path file) throws IOException {
+        _file = new MappedFile(file, RECORD * (MappedFile.MAX_SEGMENT
+                                               / RECORD));
+        if (_file.size() < RECORD || _file.getInt(0) != MAGIC
+            || _file.getInt(4) != VERSION) {
+            _file.close();
+            throw new IOException("not a position archive: " + file);
+        }
+        _size = _file.getLong(8);
+        _moveSection = (_size + 1) * RECORD;
+    }
+
+    /** Return the number of positions in me. */
+    long size() {
+        return _size;
+    }
+
+    /** Return the statistics of POSITION, or null if it is not in me. */
+    Entry lookup(BoardSnapshot position) {
+        long key = Zobrist.key(position);
+        long lo = 0, hi = _size;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            long pos = (mid + 1) * RECORD;
+            int cmp = Long.compare(_file.getLong(pos), key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid;
+            } else {
+                int n = _file.getInt(pos + 32);
+                long moves = _moveSection + _file.getLong(pos + 24);
+                int[] next = new int[n], counts = new int[n];
+                for (int i = 0; i < n; i += 1) {
+                    next[i] = _file.getInt(moves + 8L * i);
+                    counts[i] = _file.getInt(moves + 8L * i + 4);
+                }
+                return new Entry(_file.getInt(pos + 8),
+                                 _file.getInt(pos + 12),
+                                 _file.getInt(pos + 16),
+                                 _file.getInt(pos + 20), next, counts);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _file.close();
+    }
+
+    /** Index the positions of the games in the game record files RECORDS,
+     *  writing the index to INDEX.  Return the number of positions
+     *  indexed.  Statistics are gathered in memory for up to RUN_LIMIT
+     *  positions at a time, which are written out in sorted runs and
+     *  merged at the end, so any number of games may be indexed. */
+    static long build(Path index, List<Path> records) throws IOException {
+        return build(index, records, RUN_LIMIT);
+    }
+
+    /** As for build(INDEX, RECORDS), but gathering up to RUNLIMIT
+     *  positions at a time. */
+    static long build(Path index, List<Path> records, int runLimit)
+        throws IOException {
+        List<Path> runs = new ArrayList<>();
+        Map<Long, Stats> table = new HashMap<>();
+        try {
+            for (Path file : records) {
+                try (GameRecordReader reader = new GameRecordReader(
+                         Files.newInputStream(file))) {
+                    while (reader.nextGame()) {
+                        addGame(reader, table);
+                        if (table.size() >= runLimit) {
+                            runs.add(writeRun(table));
+                            table.clear();
+                        }
+                    }
+                }
+            }
+            runs.add(writeRun(table));
+            return merge(runs, index);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /** Index the game record files ARGS[1], ... into the file ARGS[0].
+     *  Usage:
+     *      java ataxx.PositionArchive INDEX RECORDS... */
+    public static void main(String... args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java ataxx.PositionArchive INDEX"
+                               + " RECORDS...");
+            System.exit(1);
+        }
+        List<Path> records = new ArrayList<>();
+        for (int i = 1; i < args.length; i += 1) {
+            records.add(Paths.get(args[i]));
+        }
+        try {
+            long start = System.nanoTime();
+            long n = build(Paths.get(args[0]), records);
+            System.out.printf("Indexed %d positions in %.1f seconds.%n", n,
+                              (System.nanoTime() - start) * 1e-9);
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Statistics of one position, as gathered while building. */
+    private static class Stats {
+
+        /** Count one more game reaching me with result RESULT (see
+         *  GameRecord). */
+        void addResult(byte result) {
+            _results[result] += 1;
+        }
+
+        /** Count COUNT more plays of the move with dense index MOVE from
+         *  me. */
+        void addMove(int move, int count) {
+            for (int i = 0; i < _numMoves; i += 1) {
+                if (_moves[2 * i] == move) {
+                    _moves[2 * i + 1] += count;
+                    return;
+                }
+            }
+            if (2 * _numMoves == _moves.length) {
+                _moves = Arrays.copyOf(_moves, 2 * _moves.length);
+            }
+            _moves[2 * _numMoves] = move;
+            _moves[2 * _numMoves + 1] = count;
+            _numMoves += 1;
+        }
+
+        /** Add the statistics in OTHER to mine. */
+        void add(Stats other) {
+            for (int r = 0; r < _results.length; r += 1) {
+                _results[r] += other._results[r];
+            }
+            for (int i = 0; i < other._numMoves; i += 1) {
+                addMove(other._moves[2 * i], other._moves[2 * i + 1]);
+            }
+        }
+
+        /** Write me to OUT, as read by read. */
+        void write(DataOutputStream out) throws IOException {
+            for (int n : _results) {
+                out.writeInt(n);
+            }
+            out.writeInt(_numMoves);
+            for (int i = 0; i < 2 * _numMoves; i += 1) {
+                out.writeInt(_moves[i]);
+            }
+        }
+
+        /** Return statistics read from IN, as written by write. */
+        static Stats read(DataInputStream in) throws IOException {
+            Stats stats = new Stats();
+            for (int r = 0; r < stats._results.length; r += 1) {
+                stats._results[r] = in.readInt();
+            }
+            stats._numMoves = in.readInt();
+            stats._moves = new int[Math.max(2, 2 * stats._numMoves)];
+            for (int i = 0; i < 2 * stats._numMoves; i += 1) {
+                stats._moves[i] = in.readInt();
+            }
+            return stats;
+        }
+
+        /** Numbers of games, indexed by result. */
+        private final int[] _results = new int[4];
+        /** Next moves and their counts, alternating. */
+        private int[] _moves = new int[2];
+        /** Number of next moves. */
+        private int _numMoves;
+    }
+
+    /** Reads one sorted run of statistics. */
+    private static class Run implements Comparable<Run> {
+
+        /** The run in FILE. */
+        Run(Path file) throws IOException {
+            _in = new DataInputStream(new BufferedInputStream(
+                                          Files.newInputStream(file)));
+        }
+
+        /** Read my next entry into _key and _stats, returning false (and
+         *  closing me) if there is none. */
+        boolean advance() throws IOException {
+            try {
+                _key = _in.readLong();
+            } catch (EOFException excp) {
+                _in.close();
+                return false;
+            }
+            _stats = Stats.read(_in);
+            return true;
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            return Long.compare(_key, other._key);
+        }
+
+        /** Current entry's key. */
+        private long _key;
+        /** Current entry's statistics. */
+        private Stats _stats;
+        /** Source of entries. */
+        private final DataInputStream _in;
+    }
+
+    /** Add the positions of the game whose header READER has just read
+     *  to TABLE. */
+    private static void addGame(GameRecordReader reader,
+                                Map<Long, Stats> table) throws IOException {
+        Board board = GameRecord.initialBoard(reader.blocks());
+        ArrayList<Long> keys = new ArrayList<>();
+        ArrayList<Integer> moves = new ArrayList<>();
+        for (Move m = reader.nextMove(); m != null; m = reader.nextMove()) {
+            if (m.isPass() ? board.canMove(board.whoseMove())
+                : !board.legalMove(m)) {
+                throw new IOException("illegal move in game record: " + m);
+            }
+            keys.add(Zobrist.key(board.snapshot()));
+            moves.add(m.index());
+            board.makeMove(m);
+        }
+        keys.add(Zobrist.key(board.snapshot()));
+        for (int i = 0; i < keys.size(); i += 1) {
+            Stats stats = table.computeIfAbsent(keys.get(i), k -> new Stats());
+            stats.addResult(reader.result());
+            if (i < moves.size()) {
+                stats.addMove(moves.get(i), 1);
+            }
+        }
+    }
+
+    /** Write the entries of TABLE in order of key to a new temporary
+     *  file, and return its name. */
+    private static Path writeRun(Map<Long, Stats> table) throws IOException {
+        Path run = Files.createTempFile("ataxx-run", ".tmp");
+        long[] keys = new long[table.size()];
+        int n;
+        n = 0;
+        for (long key : table.keySet()) {
+            keys[n] = key;
+            n += 1;
+        }
+        Arrays.sort(keys);
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(run)))) {
+            for (long key : keys) {
+                out.writeLong(key);
+                table.get(key).write(out);
+            }
+        }
+        return run;
+    }
+
+    /** Merge RUNS into the index file INDEX, returning its number of
+     *  positions. */
+    private static long merge(List<Path> runs, Path index)
+        throws IOException {
+        PriorityQueue<Run> queue = new PriorityQueue<>();
+        for (Path file : runs) {
+            Run run = new Run(file);
+            if (run.advance()) {
+                queue.add(run);
+            }
+        }
+        Path moveFile = Files.createTempFile("ataxx-moves", ".tmp");
+        long n, moveOffset;
+        n = moveOffset = 0;
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(index)));
+                 DataOutputStream moves = new DataOutputStream(
+                     new BufferedOutputStream(
+                         Files.newOutputStream(moveFile)))) {
+                out.write(new byte[RECORD]);
+                while (!queue.isEmpty()) {
+                    Run run = queue.poll();
+                    long key = run._key;
+                    Stats stats = run._stats;
+                    if (run.advance()) {
+                        queue.add(run);
+                    }
+                    while (!queue.isEmpty() && queue.peek()._key == key) {
+                        run = queue.poll();
+                        stats.add(run._stats);
+                        if (run.advance()) {
+                            queue.add(run);
+                        }
+                    }
+                    int numMoves = writeMoves(stats, moves);
+                    out.writeLong(key);
+                    out.writeInt(stats._results[GameRecord.RED_WINS]);
+                    out.writeInt(stats._results[GameRecord.BLUE_WINS]);
+                    out.writeInt(stats._results[GameRecord.DRAW]);
+                    out.writeInt(stats._results[GameRecord.UNFINISHED]);
+                    out.writeLong(moveOffset);
+                    out.writeInt(numMoves);
+                    out.writeInt(0);
+                    moveOffset += 8L * numMoves;
+                    n += 1;
+                }
+                moves.flush();
+                Files.copy(moveFile, out);
+            }
+        } finally {
+            Files.deleteIfExists(moveFile);
+        }
+        try (RandomAccessFile header = new RandomAccessFile(index.toFile(),
+                                                            "rw")) {
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeLong(n);
+        }
+        return n;
+    }
+
+    /** Write the next-move counts of STATS to OUT, most played first,
+     *  and return their number. */
+    private static int writeMoves(Stats stats, DataOutputStream out)
+        throws IOException {
+        Integer[] order = new Integer[stats._numMoves];
+        for (int i = 0; i < order.length; i += 1) {
+            order[i] = i;
+        }
+        int[] pairs = stats._moves;
+        Arrays.sort(order, (a, b) -> pairs[2 * a + 1] != pairs[2 * b + 1]
+                    ? Integer.compare(pairs[2 * b + 1], pairs[2 * a + 1])
+                    : Integer.compare(pairs[2 * a], pairs[2 * b]));
+        for (int i : order) {
+            out.writeInt(pairs[2 * i]);
+            out.writeInt(pairs[2 * i + 1]);
+        }
+        return order.length;
+    }
+
+    /** Size of the header and of each position's record. */
+    static final int RECORD = 40;
+    /** Identifies index files. */
+    static final int MAGIC = 0x41545849;
+    /** Version of the format. */
+    static final int VERSION = 1;
+
+    /** Number of positions gathered in memory while building. */
+    private static final int RUN_LIMIT = 1 << 18;
+
+    /** The index file. */
+    private final MappedFile _file;
+    /** Number of positions. */
+    private final long _size;
+    /** Position of the move section. */
+    private final long _moveSection;
+}
@@ -0,0 +1,116 @@
+package ataxx;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** A batch of positions for evaluation by a BatchEvaluator, held as
+ *  parallel arrays of bitboards (bit K standing for square K as
+ *  numbered by BoardSnapshot): the squares of the side to move, of its
+ *  opponent, and of blocks.  Keeping each bitboard in its own array
+ *  lets the evaluator run the same straight-line code over consecutive
+ *  positions.
+ *  @author tapan.jasthi
+ */
+final class PositionBatch {
+
+    /** An empty batch with room for CAPACITY positions before it must
+     *  grow. */
+    PositionBatch(int capacity) {
+        _mine = new long[Math.max(1, capacity)];
+        _theirs = new long[_mine.length];
+        _blocks = new long[_mine.length];
+    }
+
+    /** Return the number of positions in me. */
+    int size() {
+        return _size;
+    }
+
+    /** Remove all my positions. */
+    void clear() {
+        _size = 0;
+    }
+
+    /** Add the position in which the side to move occupies MINE, its
+     *  opponent THEIRS, and blocks BLOCKS. */
+    void add(long mine, long theirs, long blocks) {
+        if (_size == _mine.length) {
+            _mine = Arrays.copyOf(_mine, 2 * _size);
+            _theirs = Arrays.copyOf(_theirs, 2 * _size);
+            _blocks = Arrays.copyOf(_blocks, 2 * _size);
+        }
+        _mine[_size] = mine;
+        _theirs[_size] = theirs;
+        _blocks[_size] = blocks;
+        _size += 1;
+    }
+
+    /** Add POSITION. */
+    void add(BoardSnapshot position) {
+        long red, blue, blocks;
+        red = blue = blocks = 0;
+        for (int k = 0; k < BoardSnapshot.SIDE * BoardSnapshot.SIDE; k += 1) {
+            switch (position.get(k)) {
+            case RED:
+                red |= 1L << k;
+                break;
+            case BLUE:
+                blue |= 1L << k;
+                break;
+            case BLOCKED:
+                blocks |= 1L << k;
+                break;
+            default:
+                break;
+            }
+        }
+        if (position.whoseMove() == PieceColor.RED) {
+            add(red, blue, blocks);
+        } else {
+            add(blue, red, blocks);
+        }
+    }
+
+    /** Add the training position (see TrainingData) stored at byte AT
+     *  of IN. */
+    void add(ByteBuffer in, int at) {
+        add(TrainingData.mine(in, at), TrainingData.theirs(in, at),
+            TrainingData.blocks(in, at));
+    }
+
+    /** Return the squares of the side to move in position I. */
+    long mine(int i) {
+        return _mine[i];
+    }
+
+    /** Return the squares of the opponent in position I. */
+    long theirs(int i) {
+        return _theirs[i];
+    }
+
+    /** Return the blocked squares in position I. */
+    long blocks(int i) {
+        return _blocks[i];
+    }
+
+    /** The arrays of bitboards, of which the first size() entries are
+     *  in use.  They are replaced when the batch grows. */
+    long[] mineArray() {
+        return _mine;
+    }
+
+    /** See mineArray. */
+    long[] theirsArray() {
+        return _theirs;
+    }
+
+    /** See mineArray. */
+    long[] blocksArray() {
+        return _blocks;
+    }
+
+    /** Squares of the side to move, its opponent, and blocks. */
+    private long[] _mine, _theirs, _blocks;
+    /** Number of positions. */
+    private int _size;
+}
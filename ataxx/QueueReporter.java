@@ -0,0 +1,87 @@
+package ataxx;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/** A Reporter that queues its messages for another thread to read,
+ *  keeping only the lines that test-ataxx.py would keep from a
+ *  program's standard output: board dumps between "===" lines and
+ *  announcements of moves, passes, wins and draws.
+ *  @author tapan.jasthi
+ */
+class QueueReporter implements Reporter {
+
+    /** Value returned by getLine once the game has ended. */
+    static final String EOF = new String("<EOF>");
+
+    @Override
+    public void errMsg(String format, Object... args) {
+        filter(String.format(format, args));
+    }
+
+    @Override
+    public void outcomeMsg(String format, Object... args) {
+        filter(String.format(format, args));
+    }
+
+    @Override
+    public void moveMsg(String format, Object... args) {
+        filter(String.format(format, args));
+    }
+
+    /** Report an uncaught exception EXCP, as the Java runtime would. */
+    void exception(Throwable excp) {
+        _lines.add("Exception in thread \"" + Thread.currentThread().getName()
+                   + "\" " + excp);
+    }
+
+    /** Mark the end of output. */
+    void close() {
+        _lines.add(EOF);
+    }
+
+    /** Return the next retained line of output, EOF once output has
+     *  ended, or null if none arrives within TIMEOUT milliseconds. */
+    String getLine(long timeout) {
+        try {
+            return _lines.poll(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException excp) {
+            return null;
+        }
+    }
+
+    /** Queue those lines of MSG that the test scripts look at. */
+    private void filter(String msg) {
+        for (String line : msg.split("\n", -1)) {
+            if (_inDump) {
+                _lines.add(line);
+                _inDump = !DUMP_DELIM.matcher(line).lookingAt();
+                continue;
+            }
+            line = PREFIX.matcher(line).replaceFirst("");
+            line = line.replaceAll("\\s+$", "").replace('\t', ' ')
+                .replaceAll("  +", " ");
+            if (DUMP_DELIM.matcher(line).lookingAt()) {
+                _lines.add(line);
+                _inDump = true;
+            } else if (KEEP.matcher(line).find()) {
+                _lines.add(line);
+            }
+        }
+    }
+
+    /** Prompt-like prefix stripped from each line. */
+    private static final Pattern PREFIX = Pattern.compile("^.*:\\s*");
+    /** Delimiter of a board dump. */
+    private static final Pattern DUMP_DELIM = Pattern.compile("\\s*===");
+    /** Lines outside dumps that are retained. */
+    private static final Pattern KEEP =
+        Pattern.compile("(?i)wins|passes|moves|draw");
+
+    /** Retained lines not yet read. */
+    private final BlockingQueue<String> _lines = new LinkedBlockingQueue<>();
+    /** True while inside a board dump. */
+    private boolean _inDump;
+}
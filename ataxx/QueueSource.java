@@ -0,0 +1,62 @@
+package ataxx;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/** Provides command input from lines handed to it by another thread,
+ *  so that a Game can be driven in-process rather than through a pipe.
+ *  @author tapan.jasthi
+ */
+class QueueSource implements CommandSource {
+
+    /** Queue LINE as the next line of input. */
+    void send(String line) {
+        _lines.add(line);
+    }
+
+    /** Mark the end of input: once all queued lines are consumed,
+     *  getLine returns null. */
+    void close() {
+        _lines.add(EOF);
+    }
+
+    /** Return true iff a reader is waiting for a line, none having
+     *  been queued. */
+    boolean idle() {
+        return _waiting && _lines.isEmpty();
+    }
+
+    @Override
+    public String getLine(String prompt) {
+        if (_closed) {
+            return null;
+        }
+        try {
+            String line;
+            _waiting = true;
+            try {
+                line = _lines.take();
+            } finally {
+                _waiting = false;
+            }
+            if (line == EOF) {
+                _closed = true;
+                return null;
+            }
+            return line;
+        } catch (InterruptedException excp) {
+            _closed = true;
+            return null;
+        }
+    }
+
+    /** Sentinel marking end of input (compared by identity). */
+    private static final String EOF = new String("<EOF>");
+
+    /** Lines not yet read. */
+    private final BlockingQueue<String> _lines = new LinkedBlockingQueue<>();
+    /** True iff a reader is blocked in getLine. */
+    private volatile boolean _waiting;
+    /** True once the end of input has been read. */
+    private boolean _closed;
+}
@@ -0,0 +1,666 @@
+package ataxx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Runs the integration-test scripts in testing/ (whose format is
+ *  described in testing/README) against Games running in this JVM,
+ *  rather than against separate 'java ataxx.Main' processes as
+ *  test-ataxx.py does.  Each section of a script drives its own Game
+ *  through a QueueSource and reads its output from a QueueReporter;
+ *  the two sections of a two-program script pass moves to each other
+ *  through small queues.  Scripts run in parallel, one per available
+ *  processor, and are reported (and scored) as test-ataxx.py does.
+ *  @author tapan.jasthi
+ */
+public class ScriptRunner {
+
+    /** Run the scripts named by ARGS, preceded by an optional
+     *  --verbose (or -v) flag, and exit with status 0 iff all pass. */
+    public static void main(String... args) {
+        List<String> files = new ArrayList<>(Arrays.asList(args));
+        boolean verbose = false;
+        while (!files.isEmpty() && files.get(0).startsWith("-")) {
+            String opt = files.remove(0);
+            if (opt.equals("-v") || opt.equals("--verbose")) {
+                verbose = true;
+            } else {
+                System.err.println("Usage: java ataxx.ScriptRunner "
+                                   + "[ --verbose | -v ] SCRIPT ...");
+                System.exit(1);
+            }
+        }
+
+        final boolean logging = verbose;
+        ExecutorService pool =
+            Executors.newFixedThreadPool(Runtime.getRuntime()
+                                         .availableProcessors());
+        List<Future<String[]>> results = new ArrayList<>();
+        for (String name : files) {
+            results.add(pool.submit(() -> runFile(name, logging)));
+        }
+
+        int errors, problems;
+        errors = problems = 0;
+        for (int i = 0; i < files.size(); i += 1) {
+            String[] result;
+            try {
+                result = results.get(i).get();
+            } catch (InterruptedException | ExecutionException excp) {
+                result = new String[] { "ERROR", excp.toString() };
+            }
+            String name = new File(files.get(i)).getName();
+            if (result[0].equals("OK")) {
+                System.err.printf("%s: OK%n", name);
+            } else {
+                System.err.printf("%s: %s (%s)%n", name, result[0], result[1]);
+                if (result[0].equals("ERROR")) {
+                    errors += 1;
+                } else {
+                    problems += 1;
+                }
+            }
+        }
+        pool.shutdownNow();
+
+        System.err.printf("%nSummary:%n   %3d tests%n   %3d passed%n"
+                          + "   %3d errors%n   %3d problematic tests%n",
+                          files.size(), files.size() - errors - problems,
+                          errors, problems);
+        System.exit(errors + problems == 0 ? 0 : 1);
+    }
+
+    /** Run the script in file NAME, logging its traffic iff VERBOSE, and
+     *  return its outcome ("OK", "FAIL" or "ERROR") and message. */
+    static String[] runFile(String name, boolean verbose) {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(new File(name).toPath()));
+        } catch (IOException excp) {
+            return new String[] { "FAIL", excp.toString() };
+        }
+        return runScript(text, verbose);
+    }
+
+    /** Run the script TEXT, logging its traffic iff VERBOSE, and return
+     *  its outcome ("OK", "FAIL" or "ERROR") and message. */
+    static String[] runScript(String text, boolean verbose) {
+        long totalLimit = DEFAULT_TOTAL_TIME;
+        Matcher total = TOTAL_TIME.matcher(text);
+        if (total.find()) {
+            totalLimit = Long.parseLong(total.group(1)) * 1000;
+        }
+
+        BlockingQueue<String[]> done = new ArrayBlockingQueue<>(2);
+        Section prog1, prog2;
+        Matcher split = SEPARATOR.matcher(text);
+        if (split.find()) {
+            List<String> sect1 = breakup(text.substring(0, split.start()));
+            List<String> sect2 = breakup(text.substring(split.end()));
+            prog1 = new Section("Prog1", sect1, 0, totalLimit, verbose);
+            prog2 = new Section("Prog2", sect2, sect1.size() + 1,
+                                totalLimit, verbose);
+            prog1.connect(prog2);
+        } else {
+            prog1 = new Section("Prog1", breakup(text), 0, totalLimit,
+                                verbose);
+            prog2 = null;
+        }
+        prog1.start(done);
+        if (prog2 != null) {
+            prog2.start(done);
+        }
+
+        List<String[]> msgs = new ArrayList<>();
+        try {
+            String[] msg = done.poll(totalLimit, TimeUnit.MILLISECONDS);
+            if (msg == null) {
+                stopAll(prog1, prog2);
+                return new String[] { "ERROR",
+                    String.format("test time exceeded %d seconds",
+                                  totalLimit / 1000) };
+            }
+            msgs.add(msg);
+            if (prog2 != null) {
+                msg = done.poll(CLEANUP_TIME, TimeUnit.MILLISECONDS);
+                if (msg == null) {
+                    stopAll(prog1, prog2);
+                    return new String[] { "ERROR",
+                                          "other program fails to finish" };
+                }
+                msgs.add(msg);
+            }
+        } catch (InterruptedException excp) {
+            stopAll(prog1, prog2);
+            return new String[] { "ERROR", "interrupted" };
+        } finally {
+            if (verbose) {
+                prog1.printLog();
+                if (prog2 != null) {
+                    prog2.printLog();
+                }
+            }
+        }
+        msgs.sort((x, y) -> x[0].compareTo(y[0]));
+
+        String outcome = "OK";
+        for (String[] msg : msgs) {
+            if (msg[1].equals("FAIL")) {
+                outcome = "FAIL";
+            } else if (msg[1].equals("ERROR") && outcome.equals("OK")) {
+                outcome = "ERROR";
+            }
+        }
+        if (outcome.equals("OK")) {
+            return new String[] { "OK", null };
+        }
+        List<String> report = new ArrayList<>();
+        for (String[] msg : msgs) {
+            report.add(msg[1].equals("OK") ? ""
+                       : msg[2] + " near line " + msg[3]);
+        }
+        return new String[] { outcome, String.join("/", report) };
+    }
+
+    /** Stop the games of PROG1 and PROG2 (which may be null). */
+    private static void stopAll(Section prog1, Section prog2) {
+        prog1.stop();
+        if (prog2 != null) {
+            prog2.stop();
+        }
+    }
+
+    /** Return the lines of TEXT, ignoring trailing blank lines. */
+    private static List<String> breakup(String text) {
+        text = text.replaceAll("\\s+$", "");
+        if (text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.asList(text.split("\n"));
+    }
+
+    /** Return script line TEXT with comments and redundant whitespace
+     *  removed. */
+    private static String clean(String text) {
+        text = text.replace('\t', ' ').trim();
+        if (text.startsWith("#")) {
+            return "";
+        }
+        return text.replaceAll("  +", " ");
+    }
+
+    /** Return OUTPUT normalized as output lines are before comparison:
+     *  without trailing blanks and with runs of blanks made single. */
+    private static String normalize(String output) {
+        return output.replaceAll("\\s+$", "").replace('\t', ' ')
+            .replaceAll("  +", " ");
+    }
+
+    /** Indicates a failure of the program under test. */
+    private static class TestError extends RuntimeException {
+        /** An error whose message is MSG. */
+        TestError(String msg) {
+            super(msg);
+        }
+    }
+
+    /** Indicates a malformed test script. */
+    private static class TestFail extends RuntimeException {
+        /** A failure whose message is MSG. */
+        TestFail(String msg) {
+            super(msg);
+        }
+    }
+
+    /** One section of a test script, together with the Game it drives. */
+    private static class Section {
+
+        /** A section named TITLE, with script lines SCRIPT starting at
+         *  line START of its file, allowed TOTALLIMIT milliseconds in
+         *  all, logging its traffic iff VERBOSE. */
+        Section(String title, List<String> script, int start,
+                long totalLimit, boolean verbose) {
+            _title = title;
+            _script = script;
+            _start = start;
+            _totalLimit = totalLimit;
+            _log = verbose ? new StringBuilder() : null;
+        }
+
+        /** Set up channels for exchanging moves with OTHER. */
+        void connect(Section other) {
+            _otherInput = new ArrayBlockingQueue<>(OTHER_QUEUE_SIZE);
+            other._otherInput = new ArrayBlockingQueue<>(OTHER_QUEUE_SIZE);
+            _otherOutput = other._otherInput;
+            other._otherOutput = _otherInput;
+        }
+
+        /** Start my game and the thread running my script, which
+         *  reports its outcome on DONE. */
+        void start(BlockingQueue<String[]> done) {
+            Thread runner = new Thread(() -> done.add(runSection()),
+                                       _title + "-runner");
+            runner.setDaemon(true);
+            runner.start();
+        }
+
+        /** Run my script, returning my title, outcome, message and
+         *  line number. */
+        private String[] runSection() {
+            String[] result;
+            try {
+                String command = nextCmnd();
+                if (command == null) {
+                    throw new TestFail("No command found");
+                }
+                if (!command.matches("java\\s.*\\bataxx\\.Main\\b.*")) {
+                    throw new TestFail("cannot run in-process: " + command);
+                }
+                startGame();
+                while (true) {
+                    String cmnd = nextCmnd();
+                    if (cmnd == null) {
+                        break;
+                    }
+                    execute(cmnd);
+                }
+                finish();
+                result = new String[] { _title, "OK", null, null };
+            } catch (TestError excp) {
+                stop();
+                result = new String[] { _title, "ERROR", excp.getMessage(),
+                                        Integer.toString(_k + _start) };
+            } catch (TestFail excp) {
+                stop();
+                result = new String[] { _title, "FAIL", excp.getMessage(),
+                                        Integer.toString(_k + _start) };
+            } catch (RuntimeException excp) {
+                stop();
+                result = new String[] { _title, "FAIL", excp.toString(),
+                                        Integer.toString(_k + _start) };
+            }
+            log("T %s", Arrays.toString(result));
+            return result;
+        }
+
+        /** Start a Game on a fresh Board in a thread of its own. */
+        private void startGame() {
+            Game game = new Game(new Board(), _input, _output);
+            _game = new Thread(() -> {
+                try {
+                    game.process(false);
+                } catch (Throwable excp) {
+                    _output.exception(excp);
+                    _crashed = true;
+                }
+                _output.close();
+            }, _title + "-game");
+            _game.setDaemon(true);
+            _game.start();
+        }
+
+        /** Perform script line CMND. */
+        private void execute(String cmnd) {
+            Matcher mat;
+            if ((mat = TIME.matcher(cmnd)).lookingAt()) {
+                try {
+                    _opLimit = (long) (Double.parseDouble(mat.group(1))
+                                       * 1000);
+                } catch (NumberFormatException excp) {
+                    throw new TestFail("bad number");
+                }
+            } else if (TOTAL_TIME_CMND.matcher(cmnd).lookingAt()) {
+                return;
+            } else if ((mat = CHECK.matcher(cmnd)).lookingAt()) {
+                checkOutput(mat.group(1), mat.group(2));
+            } else if ((mat = PLAY_SELF.matcher(cmnd)).lookingAt()) {
+                playSelf(mat.group(1), mat.group(2));
+            } else if ((mat = SEND.matcher(cmnd)).lookingAt()) {
+                sendRecvMoves(true, mat.group(1), mat.group(2));
+            } else if ((mat = RECV.matcher(cmnd)).lookingAt()) {
+                sendRecvMoves(false, mat.group(1), mat.group(2));
+            } else if (cmnd.startsWith("@")) {
+                throw new TestFail("bad command in script");
+            } else {
+                send(cmnd);
+            }
+        }
+
+        /** Return the next non-empty cleaned script line, or null at the
+         *  end of the script. */
+        private String nextCmnd() {
+            while (_k < _script.size()) {
+                String cmnd = clean(_script.get(_k));
+                log("* %s", cmnd);
+                _k += 1;
+                if (!cmnd.isEmpty()) {
+                    return cmnd;
+                }
+            }
+            log("* <EOF>");
+            return null;
+        }
+
+        /** Send LINE to my game. */
+        private void send(String line) {
+            log("> %s", line);
+            _input.send(line);
+        }
+
+        /** Send MSG to the other program, unless there is none.  It is an
+         *  error if the other program is not keeping up, unless IGNORE. */
+        private void sendOther(String msg, boolean ignore) {
+            if (_otherOutput != null) {
+                log("R> %s", msg == EOF ? "<EOF>" : msg);
+                if (_otherOutput.offer(msg)) {
+                    return;
+                }
+            }
+            if (!ignore) {
+                throw new TestError("other program blocked");
+            }
+        }
+
+        /** Return the next line of output from my game, EOF if it has
+         *  ended, or null if none arrives within the per-move limit. */
+        private String get() {
+            if (_eof) {
+                return EOF;
+            }
+            String line = _output.getLine(_opLimit);
+            if (line == QueueReporter.EOF) {
+                _eof = true;
+                line = EOF;
+            }
+            log("< %s", line == EOF ? "<EOF>" : line);
+            return line;
+        }
+
+        /** Return the next message from the other program, EOF if it has
+         *  finished, or null if it sends nothing in time. */
+        private String getOther() {
+            if (_otherInput == null) {
+                throw new TestError("no other program");
+            }
+            try {
+                String msg = _otherInput.poll(_totalLimit,
+                                              TimeUnit.MILLISECONDS);
+                if (msg == EOF) {
+                    _otherInput = null;
+                }
+                log("R< %s", msg == EOF ? "<EOF>" : msg);
+                return msg;
+            } catch (InterruptedException excp) {
+                return null;
+            }
+        }
+
+        /** Check that MOVE is a move, pass, or outcome message for WHO.
+         *  Return MOVE and the move itself: "-" for a pass and null for
+         *  the end of the game. */
+        private String[] checkMove(String who, String move) {
+            Matcher mat =
+                (who.equals("red") ? RED_MOVE : BLUE_MOVE).matcher(move);
+            if (!mat.lookingAt()) {
+                throw new TestError(String.format("invalid move for %s (%s)",
+                                                  who, move));
+            } else if (mat.group(1) != null) {
+                return new String[] { move, null };
+            } else if (mat.group(2) != null) {
+                return new String[] { move, "-" };
+            } else {
+                return new String[] { move, mat.group(3) };
+            }
+        }
+
+        /** Return null if PATTERN is blank, and otherwise PATTERN
+         *  compiled. */
+        private Pattern checkPatn(String pattern) {
+            if (pattern.trim().isEmpty()) {
+                return null;
+            }
+            try {
+                return Pattern.compile(pattern);
+            } catch (IllegalArgumentException excp) {
+                throw new TestFail("bad test pattern: " + pattern);
+            }
+        }
+
+        /** Get a move or outcome for WHO from my game (see checkMove). */
+        private String[] getMove(String who) {
+            String move = get();
+            if (move == EOF) {
+                throw new TestError("game output truncated");
+            } else if (move == null) {
+                throw new TestError(String.format("timed out waiting for my "
+                                                  + "%s move", who));
+            }
+            return checkMove(who, move);
+        }
+
+        /** Get a move or outcome for WHO from the other program. */
+        private String[] getOtherMove(String who) {
+            String move = getOther();
+            if (move == EOF) {
+                throw new TestError("game output truncated");
+            } else if (move == null) {
+                throw new TestError(String.format("timed out waiting for "
+                                                  + "other's %s move", who));
+            }
+            return checkMove(who, move);
+        }
+
+        /** Check that the next output line is TEXT (if TYP is "<") or
+         *  matches the pattern TEXT (if TYP is "?"). */
+        private void checkOutput(String typ, String text) {
+            Pattern patn = typ.equals("?") ? checkPatn(text) : null;
+            String line = get();
+            if (line == EOF) {
+                throw new TestError("premature end of output");
+            } else if (line == null) {
+                throw new TestError("timed out waiting for output");
+            } else if (line.contains("Exception")) {
+                throw new TestError("uncaught exception occurred: "
+                                    + normalize(line));
+            }
+            line = normalize(line);
+            if (typ.equals("<") ? !line.equals(text)
+                : patn == null || !patn.matcher(line).lookingAt()) {
+                throw new TestError(String.format("output mismatch (%s / %s)",
+                                                  line, text));
+            }
+        }
+
+        /** Read the moves of a game my game plays against itself, the
+         *  first by TOMOVE, checking the outcome against ENDPATN. */
+        private void playSelf(String toMove, String endPatn) {
+            Pattern end = checkPatn(endPatn);
+            String[] move;
+            while (true) {
+                move = getMove(toMove);
+                if (move[1] == null) {
+                    break;
+                }
+                toMove = toMove.equals("red") ? "blue" : "red";
+            }
+            if (end != null && !end.matcher(move[0]).lookingAt()) {
+                throw new TestError("outcome does not match end pattern");
+            }
+        }
+
+        /** Relay the moves of a game between my game and the other
+         *  program's, where FIRSTMOVER moves first and my game makes that
+         *  move iff SENDFIRST.  Check the outcome against ENDPATN. */
+        private void sendRecvMoves(boolean sendFirst, String firstMover,
+                                   String endPatn) {
+            Pattern end = checkPatn(endPatn);
+            String secondMover = firstMover.equals("red") ? "blue" : "red";
+            String sendMover = sendFirst ? firstMover : secondMover;
+            String recvMover = sendFirst ? secondMover : firstMover;
+            boolean sending = sendFirst;
+            String msg = null;
+            while (true) {
+                if (sending) {
+                    String[] mine = getMove(sendMover);
+                    msg = mine[0];
+                    sendOther(msg, false);
+                    if (mine[1] == null) {
+                        String[] other = getOtherMove(recvMover);
+                        if (!msg.equals(other[0])) {
+                            throw new TestError("game outcomes don't agree");
+                        }
+                        break;
+                    }
+                }
+                sending = true;
+                String[] other = getOtherMove(recvMover);
+                if (other[1] == null) {
+                    msg = getMove(sendMover)[0];
+                    sendOther(msg, false);
+                    if (!msg.equals(other[0])) {
+                        throw new TestError("game outcomes don't agree");
+                    }
+                    break;
+                }
+                send(other[1]);
+            }
+            if (end != null && !end.matcher(msg).lookingAt()) {
+                throw new TestError("outcome does not match end pattern");
+            }
+        }
+
+        /** End input to my game and check that it ends cleanly without
+         *  further output. */
+        private void finish() {
+            log("> <EOF>");
+            _input.close();
+            sendOther(EOF, true);
+            String line = get();
+            if (line == null) {
+                stop();
+                throw new TestError("program did not terminate properly");
+            } else if (line != EOF) {
+                stop();
+                throw new TestError("program produced extra output");
+            }
+            try {
+                _game.join(_opLimit);
+            } catch (InterruptedException excp) {
+                /* Checked below. */
+            }
+            if (_game.isAlive()) {
+                stop();
+                throw new TestError("program did not terminate properly");
+            } else if (_crashed) {
+                throw new TestError("program terminated with error exit");
+            }
+        }
+
+        /** Make my game stop reading input.  Its thread is a daemon, so
+         *  a game stuck elsewhere does not keep the runner alive. */
+        void stop() {
+            _input.close();
+        }
+
+        /** Log a message formed from FORMAT and ARGS, if verbose. */
+        private void log(String format, Object... args) {
+            if (_log != null) {
+                synchronized (_log) {
+                    _log.append(String.format(format, args).replaceAll("\\s+$",
+                                                                       ""))
+                        .append('\n');
+                }
+            }
+        }
+
+        /** Print my log on the standard error. */
+        void printLog() {
+            synchronized (_log) {
+                System.err.printf("%n-----%nLog for %s%n-----%n%s-----%n%n",
+                                  _title, _log);
+            }
+        }
+
+        /** My title. */
+        private final String _title;
+        /** My script lines. */
+        private final List<String> _script;
+        /** Line number of my first script line. */
+        private final int _start;
+        /** Limit on the whole test (milliseconds). */
+        private final long _totalLimit;
+        /** Log of traffic, or null if not verbose. */
+        private final StringBuilder _log;
+        /** Index of my next script line. */
+        private int _k;
+        /** Limit on each move or output line (milliseconds). */
+        private long _opLimit = DEFAULT_OP_LIMIT;
+        /** Input to my game. */
+        private final QueueSource _input = new QueueSource();
+        /** Output from my game. */
+        private final QueueReporter _output = new QueueReporter();
+        /** Thread running my game. */
+        private Thread _game;
+        /** True once my game's output has ended. */
+        private boolean _eof;
+        /** True if my game died with an uncaught exception. */
+        private volatile boolean _crashed;
+        /** Messages from the other section, or null if none. */
+        private BlockingQueue<String> _otherInput;
+        /** Messages to the other section, or null if none. */
+        private BlockingQueue<String> _otherOutput;
+    }
+
+    /** Marks the end of messages between sections. */
+    private static final String EOF = new String("<EOF>");
+
+    /** Default limit on a whole test (milliseconds). */
+    private static final long DEFAULT_TOTAL_TIME = 120_000;
+    /** Default limit on each move or output line (milliseconds). */
+    private static final long DEFAULT_OP_LIMIT = 10_000;
+    /** Time allowed for the second section to finish after the first
+     *  (milliseconds). */
+    private static final long CLEANUP_TIME = 2_000;
+    /** Capacity of the queues between sections. */
+    private static final int OTHER_QUEUE_SIZE = 4;
+
+    /** Separates the two sections of a script. */
+    private static final Pattern SEPARATOR =
+        Pattern.compile("(?m)^ *----------+ *\n");
+    /** A script's limit on its total time. */
+    private static final Pattern TOTAL_TIME =
+        Pattern.compile("(?m)^\\s*@total-time\\s+(\\d+)");
+
+    /** Script commands. */
+    private static final Pattern
+        TIME = Pattern.compile("@time ([\\d.]+)"),
+        TOTAL_TIME_CMND = Pattern.compile("@total-time (\\d+)"),
+        CHECK = Pattern.compile("@([<?])(.*)"),
+        PLAY_SELF = Pattern.compile("@(red|blue)\\.\\.\\.\\s*(.*)"),
+        SEND = Pattern.compile("@send (red|blue)\\.\\.\\.\\s*(.*)"),
+        RECV = Pattern.compile("@recv (red|blue)\\.\\.\\.\\s*(.*)");
+
+    /** Syntax of a move. */
+    private static final String MOVE_FORMAT = "[a-g][1-7]-[a-g][1-7]";
+    /** Output announcing a red move or pass, or the end of the game. */
+    private static final Pattern RED_MOVE =
+        Pattern.compile("(?:((?:Red|Blue) wins|Draw)|Red (passes)|Red moves ("
+                        + MOVE_FORMAT + "))\\.$");
+    /** Output announcing a blue move or pass, or the end of the game. */
+    private static final Pattern BLUE_MOVE =
+        Pattern.compile("(?:((?:Red|Blue) wins|Draw)|Blue (passes)|Blue "
+                        + "moves (" + MOVE_FORMAT + "))\\.$");
+}
@@ -0,0 +1,207 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static ataxx.AlphaBetaAI.Feature;
+
+/** Measures the selective features of AlphaBetaAI.  For each feature
+ *  alone, all of them, and none, it reports the nodes and time needed
+ *  to search a fixed set of positions to a fixed depth, the average
+ *  depth reached in a fixed time per move, and the results of games
+ *  against the plain search at that time per move.  It then reports the
+ *  nodes and time needed with all features to search the positions
+ *  with no TranspositionTable, with a fresh one for each search, and
+ *  with one shared by two AIs (standing for two games) that each
+ *  search every position, as games sharing openings would.  Usage:
+ *      java ataxx.SearchBench [ -d DEPTH ] [ -t MILLIS ] [ -g GAMES ]
+ *  @author tapan.jasthi
+ */
+public class SearchBench {
+
+    /** Default depth of the fixed-depth searches. */
+    private static final int DEPTH = 6;
+    /** Default time per move, in milliseconds, for timed searches. */
+    private static final long MILLIS = 100;
+    /** Default number of games played by each feature set. */
+    private static final int GAMES = 10;
+    /** Number of test positions. */
+    private static final int POSITIONS = 20;
+    /** Number of random moves opening each game and test position. */
+    private static final int OPENING = 6;
+
+    /** Run the benchmarks as directed by ARGS (see above). */
+    public static void main(String... args) {
+        int depth = DEPTH, games = GAMES;
+        long millis = MILLIS;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "-d":
+                depth = Integer.parseInt(args[i + 1]);
+                break;
+            case "-t":
+                millis = Long.parseLong(args[i + 1]);
+                break;
+            case "-g":
+                games = Integer.parseInt(args[i + 1]);
+                break;
+            default:
+                System.err.println("Usage: java ataxx.SearchBench"
+                                   + " [ -d DEPTH ] [ -t MILLIS ]"
+                                   + " [ -g GAMES ]");
+                System.exit(1);
+            }
+        }
+
+        List<EnumSet<Feature>> configs = new ArrayList<>();
+        configs.add(EnumSet.noneOf(Feature.class));
+        for (Feature f : Feature.values()) {
+            configs.add(EnumSet.of(f));
+        }
+        configs.add(EnumSet.allOf(Feature.class));
+
+        List<Board> positions = positions(new Random(1));
+        long baseNodes = 0;
+        System.out.printf("%-44s %12s %6s %8s %6s %9s%n", "features",
+                          "nodes", "ratio", "ms", "depth", "W-L-D");
+        for (EnumSet<Feature> features : configs) {
+            AlphaBetaAI fixed = new AlphaBetaAI(null, PieceColor.RED,
+                                                features, depth, 0);
+            AlphaBetaAI timed = new AlphaBetaAI(null, PieceColor.RED,
+                                                features,
+                                                AlphaBetaAI.MAX_DEPTH,
+                                                millis);
+            long nodes = 0, depthSum = 0, start = System.nanoTime();
+            for (Board b : positions) {
+                fixed.findMove(new Board(b.snapshot()));
+                nodes += fixed.nodes();
+            }
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            for (Board b : positions) {
+                timed.findMove(new Board(b.snapshot()));
+                depthSum += timed.depth();
+            }
+            if (features.isEmpty()) {
+                baseNodes = nodes;
+            }
+            System.out.printf("%-44s %12d %6.2f %8d %6.1f %9s%n",
+                              features, nodes, (double) nodes / baseNodes,
+                              elapsed, (double) depthSum / positions.size(),
+                              features.isEmpty() ? "-"
+                              : match(features, games, millis));
+        }
+        tables(positions, depth);
+    }
+
+    /** Report the nodes and time needed to search POSITIONS to DEPTH
+     *  with all features and no transposition table, a fresh table for
+     *  each search, and a table shared by two AIs that each search every
+     *  position. */
+    private static void tables(List<Board> positions, int depth) {
+        System.out.printf("%n%-44s %12s %6s %8s %6s%n", "table", "nodes",
+                          "ratio", "ms", "hits");
+        String[] names = { "none", "fresh per search", "shared by 2 AIs" };
+        long baseNodes = 0;
+        TranspositionTable shared =
+            new TranspositionTable(TranspositionTable.SHARED_MEGABYTES);
+        for (int mode = 0; mode < names.length; mode += 1) {
+            long nodes, hits, start = System.nanoTime();
+            nodes = hits = 0;
+            for (int ai = 0; ai < (mode == 2 ? 2 : 1); ai += 1) {
+                for (Board b : positions) {
+                    AlphaBetaAI searcher =
+                        new AlphaBetaAI(null, b.whoseMove(),
+                                        EnumSet.allOf(Feature.class),
+                                        depth, 0);
+                    if (mode == 1) {
+                        searcher.useTable(new TranspositionTable(4));
+                    } else if (mode == 2) {
+                        searcher.useTable(shared);
+                    }
+                    searcher.findMove(new Board(b.snapshot()));
+                    nodes += searcher.nodes();
+                    hits += searcher.tableHits();
+                }
+            }
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            if (mode == 0) {
+                baseNodes = nodes;
+            }
+            int searches = mode == 2 ? 2 : 1;
+            System.out.printf("%-44s %12d %6.2f %8d %6d%n", names[mode],
+                              nodes, (double) nodes / baseNodes / searches,
+                              elapsed, hits);
+        }
+    }
+
+    /** Return POSITIONS test positions reached by OPENING random moves
+     *  from the start, chosen using RANDOM. */
+    private static List<Board> positions(Random random) {
+        List<Board> result = new ArrayList<>();
+        while (result.size() < POSITIONS) {
+            Board b = opening(random);
+            if (!b.gameOver() && b.canMove(b.whoseMove())) {
+                result.add(b);
+            }
+        }
+        return result;
+    }
+
+    /** Return a board after OPENING random moves from the start, chosen
+     *  using RANDOM. */
+    private static Board opening(Random random) {
+        Board b = new Board();
+        for (int i = 0; i < OPENING && !b.gameOver(); i += 1) {
+            if (!b.canMove(b.whoseMove())) {
+                b.pass();
+            } else {
+                List<Move> moves = Board.getMoveArray(b, b.whoseMove());
+                b.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+        return b;
+    }
+
+    /** Return the results (wins-losses-draws) of GAMES games between an
+     *  AlphaBetaAI using FEATURES and one using none, at MILLIS
+     *  milliseconds per move, alternating colors.  Each pair of games
+     *  starts from the same random opening. */
+    private static String match(EnumSet<Feature> features, int games,
+                                long millis) {
+        Random random = new Random(2);
+        int wins, losses, draws;
+        wins = losses = draws = 0;
+        Board opening = null;
+        for (int g = 0; g < games; g += 1) {
+            PieceColor mine = g % 2 == 0 ? PieceColor.RED : PieceColor.BLUE;
+            if (g % 2 == 0) {
+                opening = opening(random);
+            }
+            AlphaBetaAI me = new AlphaBetaAI(null, mine, features,
+                                             AlphaBetaAI.MAX_DEPTH, millis),
+                you = new AlphaBetaAI(null, mine.opposite(),
+                                      EnumSet.noneOf(Feature.class),
+                                      AlphaBetaAI.MAX_DEPTH, millis);
+            Board b = new Board(opening.snapshot());
+            while (!b.gameOver()) {
+                if (!b.canMove(b.whoseMove())) {
+                    b.pass();
+                } else {
+                    AlphaBetaAI player = b.whoseMove() == mine ? me : you;
+                    b.makeMove(player.findMove(new Board(b.snapshot())));
+                }
+            }
+            int diff = b.numPieces(mine) - b.numPieces(mine.opposite());
+            if (diff > 0) {
+                wins += 1;
+            } else if (diff < 0) {
+                losses += 1;
+            } else {
+                draws += 1;
+            }
+        }
+        return String.format("%d-%d-%d", wins, losses, draws);
+    }
+}
@@ -0,0 +1,251 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Generates training positions by self-play.  Several threads
+ *  play games between two AlphaBetaAIs searching to a fixed depth,
+ *  starting from random block layouts and random opening moves, and
+ *  sample positions from them, labeled with their search scores and
+ *  the games' results.  The positions go to shard files (see
+ *  TrainingData) through a ShardWriter.  With -c, all the AIs share a
+ *  TranspositionTable of MEGABYTES megabytes, so that each game's
+ *  searches can reuse the results of other games reaching the same
+ *  positions.  With -f, the table (of the default size, unless -c
+ *  gives one) starts with the search results saved in FILE, if it
+ *  exists, and its most valuable results are saved there at the end
+ *  (see TranspositionTable.save), so that later runs start warm.
+ *  Usage:
+ *      java ataxx.SelfPlay [ -o DIR ] [ -g GAMES ] [ -j THREADS ]
+ *                          [ -d DEPTH ] [ -n SHARDSIZE ] [ -s SEED ]
+ *                          [ -c MEGABYTES ] [ -f FILE ]
+ *  @author tapan.jasthi
+ */
+public class SelfPlay {
+
+    /** Default directory of shards. */
+    static final String DIR = "training";
+    /** Default number of games. */
+    static final int GAMES = 100;
+    /** Default depth of search. */
+    static final int DEPTH = 4;
+    /** Default number of positions per shard. */
+    static final int SHARD_SIZE = 1 << 16;
+
+    /** Largest number of random opening moves. */
+    private static final int MAX_OPENING = 8;
+    /** Largest number of block placements (each of which places up to
+     *  four blocks, by reflection). */
+    private static final int MAX_BLOCKS = 4;
+    /** Chance that a position after the opening is sampled. */
+    private static final double SAMPLE_RATE = 0.5;
+    /** Largest number of positions per game. */
+    private static final int MAX_POSITIONS = 1024;
+    /** Games in progress or awaiting writing, per thread. */
+    private static final int WINDOW = 2;
+    /** Least depth of the searches whose results are saved with -f, and
+     *  most entries saved. */
+    private static final int CACHE_DEPTH = 2, CACHE_ENTRIES = 1 << 22;
+
+    /** Generate training data as directed by ARGS (see above). */
+    public static void main(String... args) {
+        Path dir = Paths.get(DIR);
+        int games = GAMES, depth = DEPTH, shardSize = SHARD_SIZE,
+            threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        TranspositionTable table = null;
+        Path cache = null;
+        for (int i = 0; i < args.length; i += 2) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (value == null ? "" : args[i]) {
+            case "-o":
+                dir = Paths.get(value);
+                break;
+            case "-g":
+                games = Integer.parseInt(value);
+                break;
+            case "-j":
+                threads = Integer.parseInt(value);
+                break;
+            case "-d":
+                depth = Integer.parseInt(value);
+                break;
+            case "-n":
+                shardSize = Integer.parseInt(value);
+                break;
+            case "-s":
+                seed = Long.parseLong(value);
+                break;
+            case "-c":
+                table = new TranspositionTable(Integer.parseInt(value));
+                break;
+            case "-f":
+                cache = Paths.get(value);
+                break;
+            default:
+                System.err.println("Usage: java ataxx.SelfPlay [ -o DIR ]"
+                                   + " [ -g GAMES ] [ -j THREADS ]"
+                                   + " [ -d DEPTH ] [ -n SHARDSIZE ]"
+                                   + " [ -s SEED ] [ -c MEGABYTES ]"
+                                   + " [ -f FILE ]");
+                System.exit(1);
+            }
+        }
+        try {
+            if (cache != null) {
+                if (table == null) {
+                    table = new TranspositionTable(
+                        TranspositionTable.SHARED_MEGABYTES);
+                }
+                if (Files.exists(cache)) {
+                    System.out.printf("Loaded %d cached results.%n",
+                                      table.load(cache));
+                }
+            }
+            long start = System.nanoTime();
+            long n = generate(dir, games, threads, depth, shardSize, seed,
+                              table);
+            double secs = (System.nanoTime() - start) * 1e-9;
+            System.out.printf("%d positions from %d games in %.1f seconds:"
+                              + " %.0f positions/sec, %.0f per thread.%n",
+                              n, games, secs, n / secs, n / secs / threads);
+            if (cache != null) {
+                System.out.printf("Saved %d cached results.%n",
+                                  table.save(cache, CACHE_DEPTH,
+                                             CACHE_ENTRIES));
+            }
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Play GAMES games on THREADS threads, searching to DEPTH, using
+     *  random numbers seeded from SEED, and write the sampled positions
+     *  to DIR in shards of SHARDSIZE positions.  Return the number of
+     *  positions written.  Game I draws its random numbers from a
+     *  generator seeded with SEED + I, and the games' positions are
+     *  written in the order of the games, so that the shards depend only
+     *  on the arguments, and not on THREADS or the order in which the
+     *  games finish.  At most WINDOW * THREADS games are in progress or
+     *  awaiting their turn to be written at once. */
+    static long generate(Path dir, int games, int threads, int depth,
+                         int shardSize, long seed) throws IOException {
+        return generate(dir, games, threads, depth, shardSize, seed, null);
+    }
+
+    /** As for generate(DIR, GAMES, THREADS, DEPTH, SHARDSIZE, SEED), but
+     *  with all searches sharing TABLE, if it is not null.  Since what
+     *  the games find in TABLE depends on the order in which they run,
+     *  their positions then depend on THREADS as well. */
+    static long generate(Path dir, int games, int threads, int depth,
+                         int shardSize, long seed, TranspositionTable table)
+        throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ShardWriter writer = new ShardWriter(dir, shardSize);
+        try (writer) {
+            Deque<Future<ByteBuffer>> playing = new ArrayDeque<>();
+            for (int i = 0; i < games; i += 1) {
+                if (playing.size() == WINDOW * threads) {
+                    writeFirst(playing, writer);
+                }
+                SplittableRandom random = new SplittableRandom(seed + i);
+                playing.add(pool.submit(() -> play(random, depth, table)));
+            }
+            while (!playing.isEmpty()) {
+                writeFirst(playing, writer);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return writer.written();
+    }
+
+    /** Remove the first of PLAYING, the games in progress in the order
+     *  they were started, and submit its positions to WRITER once it
+     *  ends. */
+    private static void writeFirst(Deque<Future<ByteBuffer>> playing,
+                                   ShardWriter writer) throws IOException {
+        try {
+            writer.submit(playing.remove().get());
+        } catch (InterruptedException excp) {
+            throw new IOException("interrupted");
+        } catch (ExecutionException excp) {
+            throw new Error("Internal failure: self-play failed",
+                            excp.getCause());
+        }
+    }
+
+    /** Play one game, choosing its blocks and opening with RANDOM and
+     *  searching to DEPTH using TABLE (if not null), and return a buffer
+     *  of the positions sampled from it. */
+    static ByteBuffer play(SplittableRandom random, int depth,
+                           TranspositionTable table) {
+        Board b = new Board(new Board().snapshot());
+        for (int i = random.nextInt(MAX_BLOCKS + 1); i > 0; i -= 1) {
+            b.setBlock((char) ('a' + random.nextInt(Board.SIDE)),
+                       (char) ('1' + random.nextInt(Board.SIDE)));
+        }
+        for (int i = random.nextInt(MAX_OPENING + 1);
+             i > 0 && !b.gameOver(); i -= 1) {
+            List<Move> moves = Board.getMoveArray(b, b.whoseMove());
+            if (moves.isEmpty()) {
+                b.pass();
+            } else {
+                b.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+
+        AlphaBetaAI red = new AlphaBetaAI(null, PieceColor.RED,
+                                          EnumSet.allOf(
+                                              AlphaBetaAI.Feature.class),
+                                          depth, 0),
+            blue = new AlphaBetaAI(null, PieceColor.BLUE,
+                                   EnumSet.allOf(AlphaBetaAI.Feature.class),
+                                   depth, 0);
+        red.useTable(table);
+        blue.useTable(table);
+        List<BoardSnapshot> positions = new ArrayList<>();
+        List<Integer> scores = new ArrayList<>();
+        while (!b.gameOver()) {
+            if (!b.canMove(b.whoseMove())) {
+                b.pass();
+                continue;
+            }
+            AlphaBetaAI player = b.whoseMove() == PieceColor.RED ? red : blue;
+            Move move = player.findMove(new Board(b.snapshot()));
+            if (positions.size() < MAX_POSITIONS
+                && random.nextDouble() < SAMPLE_RATE) {
+                positions.add(b.snapshot());
+                scores.add(player.score());
+            }
+            b.makeMove(move);
+        }
+
+        int redMargin = b.redPieces() - b.bluePieces();
+        ByteBuffer out =
+            ByteBuffer.allocate(positions.size() * TrainingData.RECORD);
+        for (int i = 0; i < positions.size(); i += 1) {
+            BoardSnapshot position = positions.get(i);
+            int margin = position.whoseMove() == PieceColor.RED
+                ? redMargin : -redMargin;
+            TrainingData.put(out, position, scores.get(i),
+                             Integer.signum(margin), margin);
+        }
+        out.flip();
+        return out;
+    }
+}
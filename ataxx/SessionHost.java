@@ -0,0 +1,269 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Hosts many sessions of Ataxx (Games) in this JVM, each fed commands
+ *  through a QueueSource and reporting through a Reporter of its own.
+ *  A session that has been idle (waiting for a command, with no AI
+ *  searching) for a given time is hibernated: its Game, board, players,
+ *  and thread are discarded, leaving only the few bytes of Game.pack(),
+ *  and the next command sent to it resumes it from them.  Sessions that
+ *  cannot be packed stay resident.
+ *  @author tapan.jasthi
+ */
+class SessionHost implements Closeable {
+
+    /** A session of the host. */
+    final class Session {
+
+        /** A session reporting through REPORTER. */
+        private Session(Reporter reporter) {
+            _reporter = reporter;
+            _lastUsed = System.nanoTime();
+        }
+
+        /** Send LINE to the session as its next command, resuming it
+         *  first if it is hibernating.  Throws GameException if the
+         *  session has ended. */
+        synchronized void send(String line) {
+            if (_ended) {
+                throw GameException.error("session has ended");
+            }
+            _lastUsed = System.nanoTime();
+            if (_packed != null) {
+                resume();
+            }
+            _input.send(line);
+        }
+
+        /** Return true iff the session is hibernating. */
+        synchronized boolean hibernating() {
+            return _packed != null;
+        }
+
+        /** Return true iff the session has ended, on 'quit' or close(). */
+        synchronized boolean ended() {
+            return _ended;
+        }
+
+        /** Return a future completed when the session ends. */
+        CompletableFuture<Void> done() {
+            return _done;
+        }
+
+        /** End the session (as if by end of input). */
+        synchronized void close() {
+            if (_input != null) {
+                _input.close();
+            } else if (!_ended) {
+                _packed = null;
+                _ended = true;
+                _sessions.remove(this);
+                _done.complete(null);
+            }
+        }
+
+        /** Start the session's Game, resuming it from PACKED unless that
+         *  is null. */
+        private void start(byte[] packed) {
+            Game game;
+            QueueSource input = new QueueSource();
+            try {
+                game = packed == null
+                    ? new Game(new Board(), input, _reporter)
+                    : new Game(new Board(), input, _reporter, packed);
+            } catch (IOException excp) {
+                throw new Error("internal error: cannot resume session",
+                                excp);
+            }
+            _game = game;
+            _input = input;
+            GAMES.execute(() -> {
+                try {
+                    game.process(false);
+                } finally {
+                    finished(game);
+                }
+            });
+        }
+
+        /** Note that GAME has returned from process: by 'quit' or end of
+         *  input, unless it has been hibernated. */
+        private synchronized void finished(Game game) {
+            if (game == _game) {
+                _ended = true;
+                _game = null;
+                _input = null;
+                _sessions.remove(this);
+                _done.complete(null);
+            }
+        }
+
+        /** Hibernate the session if it has been idle for at least IDLE
+         *  nanoseconds as of NOW and can be packed. */
+        private synchronized void hibernate(long now, long idle) {
+            if (_game == null || now - _lastUsed < idle || !_game.waiting()
+                || !_input.idle()) {
+                return;
+            }
+            byte[] packed = _game.pack();
+            if (packed != null) {
+                _packed = packed;
+                _game = null;
+                _input.close();
+                _input = null;
+                _hibernations.incrementAndGet();
+            }
+        }
+
+        /** Resume the session from its packed form. */
+        private void resume() {
+            byte[] packed = _packed;
+            _packed = null;
+            start(packed);
+            _resumptions.incrementAndGet();
+        }
+
+        /** Return the size of my packed form, or 0 if resident. */
+        private synchronized int packedSize() {
+            return _packed == null ? 0 : _packed.length;
+        }
+
+        /** Destination of the session's output. */
+        private final Reporter _reporter;
+        /** The session's Game, or null if hibernating or ended. */
+        private Game _game;
+        /** The source of the Game's commands, or null if hibernating or
+         *  ended. */
+        private QueueSource _input;
+        /** The packed form of the session, or null if resident. */
+        private byte[] _packed;
+        /** Time (System.nanoTime) of the last command. */
+        private long _lastUsed;
+        /** True once the session has ended. */
+        private boolean _ended;
+        /** Completed when the session ends. */
+        private final CompletableFuture<Void> _done =
+            new CompletableFuture<>();
+    }
+
+    /** A host that hibernates sessions idle for IDLEMILLIS milliseconds,
+     *  or never if IDLEMILLIS is 0. */
+    SessionHost(long idleMillis) {
+        if (idleMillis > 0) {
+            long idle = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+            _sweeper = Executors.newSingleThreadScheduledExecutor((r) -> {
+                Thread t = new Thread(r, "ataxx-hibernate");
+                t.setDaemon(true);
+                return t;
+            });
+            _sweeper.scheduleWithFixedDelay(() -> sweep(idle),
+                                            idleMillis / 2 + 1,
+                                            idleMillis / 2 + 1,
+                                            TimeUnit.MILLISECONDS);
+        } else {
+            _sweeper = null;
+        }
+    }
+
+    /** Start and return a new session reporting through REPORTER. */
+    Session open(Reporter reporter) {
+        Session session = new Session(reporter);
+        synchronized (session) {
+            _sessions.add(session);
+            session.start(null);
+        }
+        return session;
+    }
+
+    /** Hibernate those sessions idle for at least IDLE nanoseconds. */
+    private void sweep(long idle) {
+        long now = System.nanoTime();
+        for (Session session : _sessions) {
+            session.hibernate(now, idle);
+        }
+    }
+
+    /** Return the number of sessions not ended. */
+    int sessions() {
+        return _sessions.size();
+    }
+
+    /** Return the number of hibernating sessions. */
+    int hibernating() {
+        int n;
+        n = 0;
+        for (Session session : _sessions) {
+            n += session.hibernating() ? 1 : 0;
+        }
+        return n;
+    }
+
+    /** Return the total size of the packed forms of the hibernating
+     *  sessions, in bytes. */
+    long packedBytes() {
+        long n;
+        n = 0;
+        for (Session session : _sessions) {
+            n += session.packedSize();
+        }
+        return n;
+    }
+
+    /** Return the number of times sessions have been hibernated. */
+    long hibernations() {
+        return _hibernations.get();
+    }
+
+    /** Return the number of times sessions have been resumed. */
+    long resumptions() {
+        return _resumptions.get();
+    }
+
+    /** End all sessions, and stop hibernating them. */
+    @Override
+    public void close() {
+        if (_sweeper != null) {
+            _sweeper.shutdownNow();
+        }
+        for (Session session : _sessions) {
+            session.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        int hibernating = hibernating();
+        return String.format("%d sessions: %d resident, %d hibernating"
+                             + " (%d bytes); %d hibernations,"
+                             + " %d resumptions",
+                             sessions(), sessions() - hibernating,
+                             hibernating, packedBytes(), hibernations(),
+                             resumptions());
+    }
+
+    /** Runs the Games of resident sessions. */
+    private static final ExecutorService GAMES =
+        Executors.newCachedThreadPool((r) -> {
+            Thread t = new Thread(r, "ataxx-session");
+            t.setDaemon(true);
+            return t;
+        });
+
+    /** The sessions not ended. */
+    private final Set<Session> _sessions = ConcurrentHashMap.newKeySet();
+    /** Periodically hibernates idle sessions, or null if none are. */
+    private final ScheduledExecutorService _sweeper;
+    /** Counts of hibernations and resumptions. */
+    private final AtomicLong _hibernations = new AtomicLong(),
+        _resumptions = new AtomicLong();
+}
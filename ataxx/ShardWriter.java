@@ -0,0 +1,176 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/** Writes batches of training positions (see TrainingData) to a series
+ *  of shard files, each holding a fixed number of positions (the last
+ *  possibly fewer), on a thread of its own, so that the threads
+ *  producing positions need not wait for the disk.  Those threads hand
+ *  over batches with submit, which waits only if the writer falls
+ *  QUEUE_LENGTH batches behind.
+ *  @author tapan.jasthi
+ */
+class ShardWriter implements Closeable {
+
+    /** Number of batches that may await writing. */
+    static final int QUEUE_LENGTH = 64;
+
+    /** A writer of shards of SHARDSIZE positions each into directory DIR
+     *  (which is created if need be), named shard-00000.bin and so
+     *  on. */
+    ShardWriter(Path dir, int shardSize) throws IOException {
+        Files.createDirectories(dir);
+        _dir = dir;
+        _shardSize = shardSize;
+        _thread = new Thread(this::run, "ataxx-shard-writer");
+        _thread.start();
+    }
+
+    /** Queue BATCH, a buffer of whole position records between its
+     *  position and limit, for writing.  BATCH must not be changed
+     *  afterwards. */
+    void submit(ByteBuffer batch) throws IOException {
+        try {
+            do {
+                checkFailure();
+            } while (!_queue.offer(batch, POLL_MILLIS, MILLISECONDS));
+        } catch (InterruptedException excp) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    /** Return the number of positions written so far. */
+    long written() {
+        return _written;
+    }
+
+    /** Return the number of shards begun so far. */
+    int shards() {
+        return _shards;
+    }
+
+    /** Write all queued batches, finish the last shard, and stop. */
+    @Override
+    public void close() throws IOException {
+        try {
+            while (_thread.isAlive()
+                   && !_queue.offer(END, POLL_MILLIS, MILLISECONDS)) {
+                continue;
+            }
+            _thread.join();
+        } catch (InterruptedException excp) {
+            throw new InterruptedIOException();
+        }
+        checkFailure();
+    }
+
+    /** Throw the exception that stopped the writing thread, if any. */
+    private void checkFailure() throws IOException {
+        if (_failure != null) {
+            throw new IOException("cannot write shard", _failure);
+        }
+    }
+
+    /** Body of the writing thread. */
+    private void run() {
+        try {
+            while (true) {
+                ByteBuffer batch = _queue.take();
+                if (batch == END) {
+                    break;
+                }
+                while (batch.hasRemaining()) {
+                    if (_shard == null || _inShard == _shardSize) {
+                        nextShard();
+                    }
+                    int n = Math.min(_shardSize - _inShard,
+                                     batch.remaining() / RECORD);
+                    ByteBuffer part = batch.slice();
+                    part.limit(n * RECORD);
+                    while (part.hasRemaining()) {
+                        _shard.write(part);
+                    }
+                    batch.position(batch.position() + n * RECORD);
+                    _inShard += n;
+                    _written += n;
+                }
+            }
+            finishShard();
+        } catch (IOException | InterruptedException
+                 | RuntimeException excp) {
+            _failure = excp;
+            _queue.clear();
+        }
+    }
+
+    /** Finish the current shard, if any, and start the next. */
+    private void nextShard() throws IOException {
+        finishShard();
+        Path file = _dir.resolve(String.format("shard-%05d.bin", _shards));
+        _shard = FileChannel.open(file, StandardOpenOption.CREATE,
+                                  StandardOpenOption.TRUNCATE_EXISTING,
+                                  StandardOpenOption.WRITE);
+        _shards += 1;
+        _inShard = 0;
+        _shard.write(header(0));
+    }
+
+    /** Record the number of positions in the current shard, if any, in
+     *  its header, and close it. */
+    private void finishShard() throws IOException {
+        if (_shard != null) {
+            _shard.write(header(_inShard), 0);
+            _shard.close();
+            _shard = null;
+        }
+    }
+
+    /** Return a shard header recording COUNT positions. */
+    private static ByteBuffer header(int count) {
+        ByteBuffer header = ByteBuffer.allocate(RECORD);
+        header.putInt(TrainingData.MAGIC).putInt(TrainingData.VERSION)
+            .putInt(count).putInt(RECORD);
+        header.clear();
+        return header;
+    }
+
+    /** Size of a position record. */
+    private static final int RECORD = TrainingData.RECORD;
+
+    /** Interval at which a waiting submit checks for failure. */
+    private static final long POLL_MILLIS = 100;
+
+    /** Marks the end of the batches. */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    /** Directory of shards. */
+    private final Path _dir;
+    /** Positions per shard. */
+    private final int _shardSize;
+    /** The writing thread. */
+    private final Thread _thread;
+    /** Batches awaiting writing. */
+    private final BlockingQueue<ByteBuffer> _queue =
+        new ArrayBlockingQueue<>(QUEUE_LENGTH);
+    /** The shard being written, or null. */
+    private FileChannel _shard;
+    /** Number of positions in it. */
+    private int _inShard;
+    /** Number of shards begun. */
+    private volatile int _shards;
+    /** Number of positions written. */
+    private volatile long _written;
+    /** What stopped the writing thread, if anything. */
+    private volatile Exception _failure;
+}
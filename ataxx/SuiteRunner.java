@@ -0,0 +1,371 @@
+package ataxx;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Runs test suites: files of positions with known best moves (or
+ *  moves to avoid), after the Extended Position Description files of
+ *  chess.  Each line of a suite holds a position in the text form of
+ *  BoardSnapshot, then operations, each ended by ';':
+ *      bm M ...   the best moves (any of which solves the position);
+ *      am M ...   moves to avoid (a position is solved by any other);
+ *      id NAME    the position's name.
+ *  For example,
+ *      r5b/7/7/7/7/7/b5r r 0 bm a7-b6 g1-f2; id "start";
+ *  Blank lines and lines starting with '#' are ignored.
+ *
+ *  The positions are searched by AlphaBetaAIs with all features, one
+ *  per thread, each with its own TranspositionTable, cleared before
+ *  each position, so that results do not depend on the order or
+ *  sharing of work.  Each search is limited in depth, positions
+ *  visited, or time (by default, MILLIS milliseconds, unless limited
+ *  in depth or positions visited, so that such runs give the same
+ *  results on any machine).  For each position, the runner reports the
+ *  move found, whether it solves the position, and the time and
+ *  positions visited until the search first settled on a solving move,
+ *  and then
+ *  the number solved, the mean time and positions to solve them, and
+ *  the total positions visited per second.  Usage:
+ *      java ataxx.SuiteRunner [ -t MILLIS ] [ -n NODES ] [ -d DEPTH ]
+ *                             [ -j THREADS ] [ -c MEGABYTES ] SUITE...
+ *  @author tapan.jasthi
+ */
+public class SuiteRunner {
+
+    /** Default time per position, in milliseconds. */
+    static final long MILLIS = 1000;
+    /** Default size of each thread's table, in megabytes. */
+    static final int MEGABYTES = 16;
+
+    /** Run the suites as directed by ARGS (see above). */
+    public static void main(String... args) {
+        long millis = -1, nodes = Long.MAX_VALUE;
+        int depth = AlphaBetaAI.MAX_DEPTH, megabytes = MEGABYTES,
+            threads = Runtime.getRuntime().availableProcessors();
+        List<Problem> problems = new ArrayList<>();
+        boolean ok = true;
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                switch (args[i]) {
+                case "-t":
+                    millis = Long.parseLong(args[++i]);
+                    break;
+                case "-n":
+                    nodes = Long.parseLong(args[++i]);
+                    break;
+                case "-d":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-c":
+                    megabytes = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    problems.addAll(read(Paths.get(args[i])));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            ok = false;
+        } catch (IOException | GameException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+        if (!ok || problems.isEmpty()) {
+            System.err.println("Usage: java ataxx.SuiteRunner [ -t MILLIS ]"
+                               + " [ -n NODES ] [ -d DEPTH ] [ -j THREADS ]"
+                               + " [ -c MEGABYTES ] SUITE...");
+            System.exit(1);
+        }
+        if (millis < 0) {
+            millis = nodes == Long.MAX_VALUE
+                && depth == AlphaBetaAI.MAX_DEPTH ? MILLIS : 0;
+        }
+        long start = System.nanoTime();
+        List<Result> results =
+            run(problems, threads, depth, nodes, millis, megabytes);
+        report(results, (System.nanoTime() - start) / 1000000,
+               System.out);
+    }
+
+    /** A position of a suite, with the moves that do and do not solve
+     *  it. */
+    static final class Problem {
+
+        /** A problem named ID in POSITION, solved by any of BEST, or
+         *  (if BEST is empty) by any move not in AVOID. */
+        Problem(String id, BoardSnapshot position, List<Move> best,
+                List<Move> avoid) {
+            _id = id;
+            _position = position;
+            _best = best;
+            _avoid = avoid;
+        }
+
+        /** Return my name. */
+        String id() {
+            return _id;
+        }
+
+        /** Return my position. */
+        BoardSnapshot position() {
+            return _position;
+        }
+
+        /** Return true iff MOVE solves me. */
+        boolean solvedBy(Move move) {
+            return _best.isEmpty() ? !_avoid.contains(move)
+                : _best.contains(move);
+        }
+
+        /** My name. */
+        private final String _id;
+        /** My position. */
+        private final BoardSnapshot _position;
+        /** Moves that solve me, and that do not. */
+        private final List<Move> _best, _avoid;
+    }
+
+    /** Return the problems in SUITE, a file in the form described
+     *  above.  Problems without a name are named by their line
+     *  numbers.  Throws a GameException naming the line of a malformed
+     *  problem. */
+    static List<Problem> read(Path suite) throws IOException {
+        List<Problem> result = new ArrayList<>();
+        List<String> lines = Files.readAllLines(suite);
+        for (int i = 0; i < lines.size(); i += 1) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                result.add(parse(line, suite.getFileName() + ":" + (i + 1)));
+            } catch (GameException excp) {
+                throw GameException.error("%s:%d: %s", suite, i + 1,
+                                          excp.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /** Return the problem described by LINE, named NAME unless it names
+     *  itself. */
+    static Problem parse(String line, String name) {
+        String[] words = line.split("\\s+", 4);
+        if (words.length < 4) {
+            throw GameException.error("no operations");
+        }
+        BoardSnapshot position =
+            BoardSnapshot.parse(words[0] + " " + words[1] + " " + words[2]);
+        Board board = new Board(position);
+        List<Move> best = new ArrayList<>(), avoid = new ArrayList<>();
+        for (String op : words[3].split(";")) {
+            String[] operands = op.trim().split("\\s+");
+            switch (operands[0]) {
+            case "bm":
+            case "am":
+                for (int k = 1; k < operands.length; k += 1) {
+                    Move move = Move.parse(operands[k]);
+                    if (move == null || move.isPass()
+                        || !board.legalMove(move)) {
+                        throw GameException.error("illegal move: %s",
+                                                  operands[k]);
+                    }
+                    (operands[0].equals("bm") ? best : avoid).add(move);
+                }
+                break;
+            case "id":
+                name = op.trim().substring(2).trim().replace("\"", "");
+                break;
+            case "":
+                break;
+            default:
+                throw GameException.error("unknown operation: %s",
+                                          operands[0]);
+            }
+        }
+        if (best.isEmpty() && avoid.isEmpty()) {
+            throw GameException.error("no bm or am operation");
+        }
+        return new Problem(name, position, best, avoid);
+    }
+
+    /** The outcome of searching a Problem. */
+    static final class Result {
+
+        /** The outcome of a search of PROBLEM that chose MOVE, visiting
+         *  NODES positions in MILLIS milliseconds and completing DEPTH
+         *  plies, and that settled on a solving move after SOLVEMILLIS
+         *  milliseconds and SOLVENODES positions (both -1 if it did
+         *  not). */
+        Result(Problem problem, Move move, long millis, long nodes,
+               int depth, long solveMillis, long solveNodes) {
+            _problem = problem;
+            _move = move;
+            _millis = millis;
+            _nodes = nodes;
+            _depth = depth;
+            _solveMillis = solveMillis;
+            _solveNodes = solveNodes;
+        }
+
+        /** Return true iff my move solves my problem. */
+        boolean solved() {
+            return _problem.solvedBy(_move);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s %-6s %-5s %6d %10d %3d %8s %10s",
+                                 _problem.id(), _move,
+                                 solved() ? "ok" : "FAIL", _millis, _nodes,
+                                 _depth,
+                                 solved() ? Long.toString(_solveMillis)
+                                 : "-",
+                                 solved() ? Long.toString(_solveNodes)
+                                 : "-");
+        }
+
+        /** The problem searched. */
+        private final Problem _problem;
+        /** The move chosen. */
+        private final Move _move;
+        /** Time taken and positions visited by the whole search. */
+        private final long _millis, _nodes;
+        /** Depth completed. */
+        private final int _depth;
+        /** Time taken and positions visited until the search settled on
+         *  a solving move, or -1. */
+        private final long _solveMillis, _solveNodes;
+    }
+
+    /** Return the results of searching PROBLEMS on THREADS threads, each
+     *  search limited to DEPTH plies, NODES positions visited, and
+     *  MILLIS milliseconds (no limit if 0), with a table of MEGABYTES
+     *  megabytes per thread.  The results are in the order of
+     *  PROBLEMS. */
+    static List<Result> run(List<Problem> problems, int threads, int depth,
+                            long nodes, long millis, int megabytes) {
+        Result[] results = new Result[problems.size()];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t += 1) {
+                workers.add(pool.submit(() -> {
+                    Searcher searcher =
+                        new Searcher(depth, nodes, millis, megabytes);
+                    for (int i = next.getAndIncrement();
+                         i < results.length; i = next.getAndIncrement()) {
+                        results[i] = searcher.search(problems.get(i));
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new Error("Internal failure: search failed", excp);
+        } finally {
+            pool.shutdown();
+        }
+        return List.of(results);
+    }
+
+    /** Searches problems on one thread. */
+    private static class Searcher {
+
+        /** A searcher limited to DEPTH plies, NODES positions, and
+         *  MILLIS milliseconds (no limit if 0) per problem, with a table
+         *  of MEGABYTES megabytes. */
+        Searcher(int depth, long nodes, long millis, int megabytes) {
+            _ai = new AlphaBetaAI(null, PieceColor.RED,
+                                  EnumSet.allOf(AlphaBetaAI.Feature.class),
+                                  AlphaBetaAI.MAX_DEPTH, millis);
+            _ai.limit(depth, nodes);
+            _table = new TranspositionTable(megabytes);
+            _ai.useTable(_table);
+            _ai.listen(this::iteration);
+        }
+
+        /** Return the result of searching PROBLEM. */
+        Result search(Problem problem) {
+            _table.clear();
+            _problem = problem;
+            _solveMillis = _solveNodes = -1;
+            _start = System.nanoTime();
+            Move move = _ai.findMove(new Board(problem.position()));
+            long millis = (System.nanoTime() - _start) / 1000000;
+            if (problem.solvedBy(move) && _solveMillis < 0) {
+                _solveMillis = millis;
+                _solveNodes = _ai.nodes();
+            }
+            return new Result(problem, move, millis, _ai.nodes(),
+                              _ai.depth(), _solveMillis, _solveNodes);
+        }
+
+        /** Note whether the iteration of SEARCHER just completed chose a
+         *  solving move, recording when the search first settled on one
+         *  (and forgetting it if the search later changes its mind). */
+        private void iteration(AlphaBetaAI searcher) {
+            List<Move> line = searcher.principalVariation();
+            if (line.isEmpty() || !_problem.solvedBy(line.get(0))) {
+                _solveMillis = _solveNodes = -1;
+            } else if (_solveMillis < 0) {
+                _solveMillis = (System.nanoTime() - _start) / 1000000;
+                _solveNodes = searcher.nodes();
+            }
+        }
+
+        /** The searcher. */
+        private final AlphaBetaAI _ai;
+        /** Its table. */
+        private final TranspositionTable _table;
+        /** The problem being searched. */
+        private Problem _problem;
+        /** Time (System.nanoTime) at which the search began. */
+        private long _start;
+        /** Time and positions until the search settled on a solving
+         *  move, or -1. */
+        private long _solveMillis, _solveNodes;
+    }
+
+    /** Print RESULTS, found in ELAPSED milliseconds, to OUT: one line
+     *  per problem and a summary. */
+    static void report(List<Result> results, long elapsed, PrintStream out) {
+        out.printf("%-20s %-6s %-5s %6s %10s %3s %8s %10s%n", "id", "move",
+                   "", "ms", "nodes", "dp", "solve ms", "solve nodes");
+        int solved = 0;
+        long solveMillis, solveNodes, nodes;
+        solveMillis = solveNodes = nodes = 0;
+        for (Result result : results) {
+            out.println(result);
+            nodes += result._nodes;
+            if (result.solved()) {
+                solved += 1;
+                solveMillis += result._solveMillis;
+                solveNodes += result._solveNodes;
+            }
+        }
+        out.printf("Solved %d of %d (%.1f%%).", solved, results.size(),
+                   100.0 * solved / Math.max(1, results.size()));
+        if (solved > 0) {
+            out.printf("  Mean to solve: %d ms, %d nodes.",
+                       solveMillis / solved, solveNodes / solved);
+        }
+        out.printf("%nSearched %d nodes in %d ms: %.0f nodes/sec.%n", nodes,
+                   elapsed, nodes * 1000.0 / Math.max(1, elapsed));
+    }
+}
@@ -0,0 +1,106 @@
+package ataxx;
+
+/** Decides how long an AI may think about one move, given the time left
+ *  on its clock, the clock's increment, and the number of empty squares.
+ *
+ *  A reserve of the remaining time (at least OVERHEAD milliseconds, to
+ *  cover the lag between deciding on a move and the clock stopping, and
+ *  more when there is more time) is never spent.  Of the rest, the
+ *  target for a move (softLimit) is an equal share for each of the
+ *  moves still to come, which are estimated from the empty squares,
+ *  since a game fills about one square per move of each side, plus most
+ *  of the increment.  A search should not start an iteration it is
+ *  unlikely to finish within its target, but may stretch the target
+ *  when its best move keeps changing (see extended).  The hard limit
+ *  (hardLimit) is never exceeded: a search that reaches it stops at
+ *  once with the best move found so far.
+ *  @author tapan.jasthi
+ */
+final class TimeManager {
+
+    /** Least time kept in reserve, in milliseconds. */
+    static final long OVERHEAD = 50;
+
+    /** A manager for a move with REMAINING milliseconds on the clock,
+     *  INCREMENT milliseconds added after each move, and EMPTIES empty
+     *  squares on the board. */
+    TimeManager(long remaining, long increment, int empties) {
+        long available =
+            Math.max(0, remaining - Math.max(OVERHEAD,
+                                             remaining / RESERVE_SHARE));
+        int movesToGo = Math.max(MIN_MOVES_TO_GO,
+                                 Math.min(MAX_MOVES_TO_GO, (empties + 1) / 2));
+        _soft = Math.min(available,
+                         available / movesToGo + increment * 3 / 4);
+        _hard = Math.min(available,
+                         Math.max(_soft, Math.min(_soft * HARD_FACTOR,
+                                                  available / HARD_SHARE)));
+        _start = System.nanoTime();
+    }
+
+    /** A manager allowing exactly MILLIS milliseconds for the move. */
+    private TimeManager(long millis) {
+        _soft = _hard = Math.max(0, millis);
+        _start = System.nanoTime();
+    }
+
+    /** Return a manager allowing exactly MILLIS milliseconds for a move,
+     *  from now. */
+    static TimeManager fixed(long millis) {
+        return new TimeManager(millis);
+    }
+
+    /** Return the target time for the move, in milliseconds. */
+    long softLimit() {
+        return _soft;
+    }
+
+    /** Return the time the move must not exceed, in milliseconds. */
+    long hardLimit() {
+        return _hard;
+    }
+
+    /** Return the target time for a search whose best move has changed
+     *  INSTABILITY times lately: half again the target for each change,
+     *  up to the hard limit. */
+    long extended(int instability) {
+        return Math.min(_hard, _soft + _soft * instability / 2);
+    }
+
+    /** Return the time (System.nanoTime) by which the search must
+     *  stop. */
+    long deadline() {
+        return _start + _hard * NANOS_PER_MILLI;
+    }
+
+    /** Return the milliseconds since I was created (when the move's
+     *  search began). */
+    long elapsed() {
+        return (System.nanoTime() - _start) / NANOS_PER_MILLI;
+    }
+
+    /** Return true iff a search that has changed its best move
+     *  INSTABILITY times lately should start another iteration, which
+     *  will likely take longer than all before it. */
+    boolean startNext(int instability) {
+        return elapsed() < extended(instability) / NEXT_ITERATION_SHARE;
+    }
+
+    /** The reserve is at least 1/RESERVE_SHARE of the remaining time. */
+    private static final int RESERVE_SHARE = 20;
+    /** Bounds on the estimated number of my moves to come. */
+    private static final int MIN_MOVES_TO_GO = 6, MAX_MOVES_TO_GO = 25;
+    /** The hard limit is at most HARD_FACTOR times the target, and
+     *  1/HARD_SHARE of the available time, but at least the target. */
+    private static final int HARD_FACTOR = 4, HARD_SHARE = 3;
+    /** An iteration starts only if less than 1/NEXT_ITERATION_SHARE of
+     *  the target has passed. */
+    private static final int NEXT_ITERATION_SHARE = 2;
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /** Target and hard limit for the move, in milliseconds. */
+    private final long _soft, _hard;
+    /** Time (System.nanoTime) at which the search began. */
+    private final long _start;
+}
@@ -0,0 +1,109 @@
+package ataxx;
+
+import java.nio.ByteBuffer;
+
+/** The binary format of training positions, as written by SelfPlay
+ *  (through a ShardWriter).  Positions are stored in shard files, each
+ *  of which starts with a RECORD-byte header (the int MAGIC, the int
+ *  VERSION, the int number of positions in the shard, and the int
+ *  RECORD) followed by the positions, RECORD bytes each:
+ *  <ul>
+ *  <li> three longs, giving the squares holding red pieces, blue
+ *       pieces, and blocks, with bit K standing for square K as
+ *       numbered by BoardSnapshot;
+ *  <li> a byte giving the side to move (a PieceColor ordinal);
+ *  <li> a byte giving the number of jumps made;
+ *  <li> a byte giving the result of the game for the side to move: 1
+ *       for a win, 0 for a draw, and -1 for a loss;
+ *  <li> a byte of padding;
+ *  <li> a short giving the score found by searching the position, for
+ *       the side to move, in units of 1/Evaluation.SCALE piece;
+ *  <li> a short giving the final margin (pieces of the side to move
+ *       less those of its opponent at the end of the game);
+ *  <li> padding.
+ *  </ul>
+ *  All values are big-endian.
+ *  @author tapan.jasthi
+ */
+final class TrainingData {
+
+    /** Size of the header and of each position. */
+    static final int RECORD = 32;
+    /** Identifies shard files. */
+    static final int MAGIC = 0x41545854;
+    /** Version of the format. */
+    static final int VERSION = 1;
+
+    /** Offsets of the fields of a position. */
+    static final int RED = 0, BLUE = 8, BLOCKS = 16, TO_MOVE = 24,
+        JUMPS = 25, RESULT = 26, SCORE = 28, MARGIN = 30;
+
+    /** Not instantiable. */
+    private TrainingData() {
+    }
+
+    /** Append to OUT the record of POSITION, whose search found SCORE and
+     *  whose game ended with the side to move RESULT (1, 0, or -1) and
+     *  ahead by MARGIN pieces. */
+    static void put(ByteBuffer out, BoardSnapshot position, int score,
+                    int result, int margin) {
+        long red, blue, blocks;
+        red = blue = blocks = 0;
+        for (int k = 0; k < BoardSnapshot.SIDE * BoardSnapshot.SIDE; k += 1) {
+            switch (position.get(k)) {
+            case RED:
+                red |= 1L << k;
+                break;
+            case BLUE:
+                blue |= 1L << k;
+                break;
+            case BLOCKED:
+                blocks |= 1L << k;
+                break;
+            default:
+                break;
+            }
+        }
+        int start = out.position();
+        out.putLong(red).putLong(blue).putLong(blocks);
+        out.put((byte) position.whoseMove().ordinal());
+        out.put((byte) position.numJumps());
+        out.put((byte) result);
+        out.put((byte) 0);
+        out.putShort((short) score);
+        out.putShort((short) margin);
+        out.position(start + RECORD);
+    }
+
+    /** Return the mask of squares of the side to move in the position
+     *  stored at byte AT of IN. */
+    static long mine(ByteBuffer in, int at) {
+        return in.get(at + TO_MOVE) == PieceColor.RED.ordinal()
+            ? in.getLong(at + RED) : in.getLong(at + BLUE);
+    }
+
+    /** Return the mask of squares of the opponent of the side to move in
+     *  the position stored at byte AT of IN. */
+    static long theirs(ByteBuffer in, int at) {
+        return in.get(at + TO_MOVE) == PieceColor.RED.ordinal()
+            ? in.getLong(at + BLUE) : in.getLong(at + RED);
+    }
+
+    /** Return the mask of blocked squares in the position stored at byte
+     *  AT of IN. */
+    static long blocks(ByteBuffer in, int at) {
+        return in.getLong(at + BLOCKS);
+    }
+
+    /** Return the result (1, 0, or -1) for the side to move of the
+     *  position stored at byte AT of IN. */
+    static int result(ByteBuffer in, int at) {
+        return in.get(at + RESULT);
+    }
+
+    /** Return the search score for the side to move of the position
+     *  stored at byte AT of IN. */
+    static int score(ByteBuffer in, int at) {
+        return in.getShort(at + SCORE);
+    }
+}
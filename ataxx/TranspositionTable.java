@@ -0,0 +1,292 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/** A transposition table of search results, keyed by Zobrist key (see
+ *  Zobrist and PlayoutBoard.key), that any number of searches on any
+ *  number of threads may share without locking.
+ *
+ *  The entries live off the Java heap, in a direct buffer, so a large
+ *  table neither grows the heap nor lengthens garbage collection.  The
+ *  table is an array of two-entry buckets.  Each entry is two longs:
+ *  the key exclusive-or'ed with the data, then the data.  Writers store
+ *  both without locking, so a reader may see one long from one write
+ *  and one from another, but then the key it recovers will (almost
+ *  certainly) not match its own, and it sees a miss rather than wrong
+ *  data.  Of a bucket's two entries, the first is replaced only by
+ *  results of searches at least as deep, and the second always.
+ *
+ *  The data of an entry packs a score (16 bits), the depth searched (8
+ *  bits), the kind of bound the score is (2 bits: EXACT, LOWER, or
+ *  UPPER, so never 0), the best move found, as encoded by
+ *  PlayoutBoard, plus 1 (15 bits), and the number of empty squares in
+ *  the position (6 bits).
+ *
+ *  So that a new program need not search from nothing, the most
+ *  valuable entries (those of the deepest searches, favoring opening
+ *  positions, which every game passes through) may be saved to a file
+ *  (see save) and loaded into another table later (see load).  A file
+ *  holds a 16-byte header (the int FILE_MAGIC, the int FILE_VERSION,
+ *  and the long number of entries) followed by the entries, each the
+ *  long key and long data, big-endian.
+ *  @author tapan.jasthi
+ */
+final class TranspositionTable {
+
+    /** Kinds of bound: the score is exact, at least the value, or at
+     *  most the value. */
+    static final int EXACT = 1, LOWER = 2, UPPER = 3;
+
+    /** Size of the table shared by all games, in megabytes. */
+    static final int SHARED_MEGABYTES = 64;
+
+    /** Identifies search cache files. */
+    static final int FILE_MAGIC = 0x41545443;
+    /** Version of their format: 2 since scores are in units of
+     *  1/Evaluation.SCALE piece. */
+    static final int FILE_VERSION = 2;
+
+    /** Least number of empty squares of an opening position. */
+    static final int OPENING_EMPTIES = 36;
+    /** Extra plies of depth for which opening positions count in
+     *  choosing the entries to save. */
+    static final int OPENING_BONUS = 4;
+
+    /** Largest size of a table, in bytes. */
+    static final int MAX_BYTES = 1 << 30;
+
+    /** A table of about MEGABYTES megabytes (the largest power of two
+     *  that is no greater, and at least one bucket, but no more than
+     *  MAX_BYTES). */
+    TranspositionTable(int megabytes) {
+        long bytes = Math.min(MAX_BYTES, Math.max(BUCKET,
+                                                  (long) megabytes << 20));
+        int size = Integer.highestOneBit((int) bytes);
+        _entries = ByteBuffer.allocateDirect(size)
+            .order(ByteOrder.nativeOrder());
+        _mask = size / BUCKET - 1;
+    }
+
+    /** Return the table shared by all games in this program, creating
+     *  it, of SHARED_MEGABYTES megabytes, if need be. */
+    static synchronized TranspositionTable shared() {
+        if (_shared == null) {
+            _shared = new TranspositionTable(SHARED_MEGABYTES);
+        }
+        return _shared;
+    }
+
+    /** Return the number of entries I hold. */
+    int capacity() {
+        return _entries.capacity() / ENTRY;
+    }
+
+    /** Return the data stored for KEY, or 0 if none. */
+    long probe(long key) {
+        int at = bucket(key);
+        for (int i = 0; i < BUCKET; i += ENTRY) {
+            long data = _entries.getLong(at + i + LONG);
+            if ((_entries.getLong(at + i) ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /** Store for KEY, a position with EMPTIES empty squares, the result
+     *  of a search to DEPTH plies: best move MOVE (encoded as by
+     *  PlayoutBoard), and SCORE, which is a bound of kind BOUND. */
+    void store(long key, int move, int score, int depth, int bound,
+               int empties) {
+        put(key, (score & SCORE_MASK) | (long) depth << DEPTH_SHIFT
+            | (long) bound << BOUND_SHIFT | (long) (move + 1) << MOVE_SHIFT
+            | (long) empties << EMPTIES_SHIFT);
+    }
+
+    /** Write to FILE (replacing it as a whole) my entries of searches at
+     *  least MINDEPTH plies deep, at most LIMIT of them, preferring
+     *  deeper searches, and counting OPENING_BONUS extra plies for
+     *  positions with at least OPENING_EMPTIES empty squares.  Return
+     *  the number written.  The entries are first written to a new
+     *  temporary file of its own beside FILE, which is then moved over
+     *  FILE, so that saves by other programs or sessions at the same
+     *  time cannot mix their entries. */
+    int save(Path file, int minDepth, int limit) throws IOException {
+        int[] counts = new int[DEPTH_MASK + 1 + OPENING_BONUS];
+        for (int at = 0; at < _entries.capacity(); at += ENTRY) {
+            long data = _entries.getLong(at + LONG);
+            if (data != 0 && depth(data) >= minDepth) {
+                counts[value(data)] += 1;
+            }
+        }
+        int least = counts.length, n = 0;
+        while (least > 0 && n + counts[least - 1] <= limit) {
+            least -= 1;
+            n += counts[least];
+        }
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(),
+                                         file.getFileName().toString(),
+                                         ".tmp");
+        try {
+            try (FileChannel out =
+                     FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                n = write(out, minDepth, limit, least);
+                out.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return n;
+    }
+
+    /** Write to OUT, an empty file, the header and those of my entries
+     *  that save(FILE, MINDEPTH, LIMIT) writes, given that entries of
+     *  values LEAST and more all fit within LIMIT.  Return the number of
+     *  entries written. */
+    private int write(FileChannel out, int minDepth, int limit, int least)
+        throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(FILE_BUFFER);
+        buf.putInt(FILE_MAGIC).putInt(FILE_VERSION).putLong(0);
+        int n = 0;
+        for (int pass = 0; pass < 2; pass += 1) {
+            for (int at = 0; at < _entries.capacity() && n < limit;
+                 at += ENTRY) {
+                long data = _entries.getLong(at + LONG),
+                    key = _entries.getLong(at) ^ data;
+                if (data == 0 || depth(data) < minDepth
+                    || (pass == 0 ? value(data) < least
+                        : value(data) != least - 1)) {
+                    continue;
+                }
+                if (!buf.hasRemaining()) {
+                    write(out, buf);
+                }
+                buf.putLong(key).putLong(data);
+                n += 1;
+            }
+        }
+        write(out, buf);
+        buf.putLong(n);
+        buf.flip();
+        out.write(buf, HEADER - LONG);
+        return n;
+    }
+
+    /** Add the entries in FILE, as written by save, to mine, and return
+     *  their number. */
+    int load(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file)) {
+            long size = in.size();
+            ByteBuffer buf = in.map(FileChannel.MapMode.READ_ONLY, 0,
+                                    Math.min(size, Integer.MAX_VALUE));
+            long n = size < HEADER ? -1 : buf.getLong(2 * Integer.BYTES);
+            if (n < 0 || buf.getInt(0) != FILE_MAGIC
+                || buf.getInt(Integer.BYTES) != FILE_VERSION
+                || HEADER + n * ENTRY != size) {
+                throw new IOException(file + ": not a search cache");
+            }
+            for (int i = 0; i < n; i += 1) {
+                int at = HEADER + i * ENTRY;
+                put(buf.getLong(at), buf.getLong(at + LONG));
+            }
+            return (int) n;
+        }
+    }
+
+    /** Store DATA for KEY. */
+    private void put(long key, long data) {
+        int at = bucket(key);
+        long firstData = _entries.getLong(at + LONG);
+        if ((_entries.getLong(at) ^ firstData) != key
+            && depth(firstData) > depth(data)) {
+            at += ENTRY;
+        }
+        _entries.putLong(at, key ^ data);
+        _entries.putLong(at + LONG, data);
+    }
+
+    /** Write BUF, from its start to its position, to OUT, and clear
+     *  it. */
+    private static void write(FileChannel out, ByteBuffer buf)
+        throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        buf.clear();
+    }
+
+    /** Return the value for saving of the entry with DATA: its depth,
+     *  plus OPENING_BONUS if it is of an opening position. */
+    private static int value(long data) {
+        return depth(data)
+            + (empties(data) >= OPENING_EMPTIES ? OPENING_BONUS : 0);
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        for (int at = 0; at < _entries.capacity(); at += LONG) {
+            _entries.putLong(at, 0);
+        }
+    }
+
+    /** Return the score in DATA. */
+    static int score(long data) {
+        return (short) data;
+    }
+
+    /** Return the depth in DATA. */
+    static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the kind of bound in DATA. */
+    static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & BOUND_MASK;
+    }
+
+    /** Return the move in DATA, encoded as by PlayoutBoard. */
+    static int move(long data) {
+        return (int) (data >>> MOVE_SHIFT & MOVE_MASK) - 1;
+    }
+
+    /** Return the number of empty squares in DATA. */
+    static int empties(long data) {
+        return (int) (data >>> EMPTIES_SHIFT) & EMPTIES_MASK;
+    }
+
+    /** Return the byte offset of the bucket for KEY. */
+    private int bucket(long key) {
+        return ((int) (key ^ key >>> 32) & _mask) * BUCKET;
+    }
+
+    /** Sizes of a long, an entry, a bucket, and a file header in
+     *  bytes. */
+    private static final int LONG = 8, ENTRY = 2 * LONG,
+        BUCKET = 2 * ENTRY, HEADER = 2 * LONG;
+    /** Size of the buffer used in writing files. */
+    private static final int FILE_BUFFER = ENTRY * 4096;
+    /** Layout of the data of an entry. */
+    private static final int SCORE_MASK = 0xffff, DEPTH_SHIFT = 16,
+        DEPTH_MASK = 0xff, BOUND_SHIFT = 24, BOUND_MASK = 3,
+        MOVE_SHIFT = 26, MOVE_MASK = 0x7fff, EMPTIES_SHIFT = 41,
+        EMPTIES_MASK = 0x3f;
+
+    /** The table shared by all games, or null if not yet needed. */
+    private static TranspositionTable _shared;
+
+    /** The entries. */
+    private final ByteBuffer _entries;
+    /** Mask of the bits of a key selecting a bucket. */
+    private final int _mask;
+}
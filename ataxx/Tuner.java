@@ -0,0 +1,309 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Tunes the weights of an Evaluation against training positions (see
+ *  TrainingData), in the manner of Texel's tuning method.  The
+ *  predicted result of a position whose evaluation is E is the sigmoid
+ *  1 / (1 + exp(-K * E)), and the tuner minimizes the mean squared
+ *  difference between predicted and actual results (1 for a win, 1/2
+ *  for a draw, 0 for a loss), first choosing K to fit the starting
+ *  weights and then moving the weights by gradient descent.  The
+ *  material weight stays at 1, fixing the units of the others.
+ *
+ *  The shards are memory-mapped, and each pass over the positions is
+ *  split into chunks claimed in turn by several threads, each of which
+ *  computes the features of a chunk at once (see BatchEvaluator) and
+ *  accumulates its own loss and gradient without allocating.  Usage:
+ *      java ataxx.Tuner [ -o WEIGHTS ] [ -i ITERATIONS ] [ -r RATE ]
+ *                       [ -j THREADS ] SHARD...
+ *  @author tapan.jasthi
+ */
+public class Tuner implements Closeable {
+
+    /** Default weight file. */
+    static final String WEIGHTS = "weights.txt";
+    /** Default number of descent steps. */
+    static final int ITERATIONS = 200;
+    /** Default step size. */
+    static final double RATE = 0.02;
+    /** Number of positions in a chunk of work. */
+    static final int CHUNK = 1 << 14;
+
+    /** Tune weights as directed by ARGS (see above). */
+    public static void main(String... args) {
+        Path weights = Paths.get(WEIGHTS);
+        int iterations = ITERATIONS,
+            threads = Runtime.getRuntime().availableProcessors();
+        double rate = RATE;
+        List<Path> shards = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                switch (args[i]) {
+                case "-o":
+                    weights = Paths.get(args[++i]);
+                    break;
+                case "-i":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "-r":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    shards.add(Paths.get(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            shards.clear();
+        }
+        if (shards.isEmpty()) {
+            System.err.println("Usage: java ataxx.Tuner [ -o WEIGHTS ]"
+                               + " [ -i ITERATIONS ] [ -r RATE ]"
+                               + " [ -j THREADS ] SHARD...");
+            System.exit(1);
+        }
+        try (Tuner tuner = new Tuner(shards, threads)) {
+            long start = System.nanoTime();
+            double k = tuner.fitScale(Evaluation.MATERIAL);
+            Evaluation tuned = tuner.tune(Evaluation.MATERIAL, k,
+                                          iterations, rate, System.out);
+            double secs = (System.nanoTime() - start) * 1e-9;
+            tuned.save(weights);
+            System.out.printf("%d positions, K = %.4f, loss %.6f -> %.6f"
+                              + " in %.1f seconds.%n%s%n",
+                              tuner.size(), k,
+                              tuner.loss(Evaluation.MATERIAL, k),
+                              tuner.loss(tuned, k), secs, tuned);
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** A tuner over the positions in the shard files SHARDS, using
+     *  THREADS threads. */
+    Tuner(List<Path> shards, int threads) throws IOException {
+        List<int[]> chunks = new ArrayList<>();
+        for (Path file : shards) {
+            ByteBuffer shard;
+            try (FileChannel channel = FileChannel.open(file)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException(file + ": shard too large");
+                }
+                shard = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                    channel.size());
+            }
+            int count = shard.limit() < RECORD ? -1 : shard.getInt(8);
+            if (count < 0 || shard.getInt(0) != TrainingData.MAGIC
+                || shard.getInt(4) != TrainingData.VERSION
+                || shard.getInt(12) != RECORD
+                || (long) (count + 1) * RECORD > shard.limit()) {
+                throw new IOException(file + ": not a training shard");
+            }
+            for (int i = 0; i < count; i += CHUNK) {
+                chunks.add(new int[] { _shards.size(), i + 1,
+                                       Math.min(count, i + CHUNK) + 1 });
+            }
+            _shards.add(shard);
+            _size += count;
+        }
+        _chunks = chunks.toArray(new int[chunks.size()][]);
+        _workers = new Worker[Math.max(1, threads)];
+        for (int t = 0; t < _workers.length; t += 1) {
+            _workers[t] = new Worker();
+        }
+        _pool = Executors.newFixedThreadPool(_workers.length);
+    }
+
+    /** Return the number of positions. */
+    long size() {
+        return _size;
+    }
+
+    /** Return the mean squared error of the predictions of EVAL with
+     *  scale K. */
+    double loss(Evaluation eval, double k) throws IOException {
+        return pass(eval, k, null);
+    }
+
+    /** Return the scale K minimizing the loss of EVAL. */
+    double fitScale(Evaluation eval) throws IOException {
+        double lo = 0.0, hi = 2.0;
+        for (int i = 0; i < SCALE_STEPS; i += 1) {
+            double a = lo + (hi - lo) / 3, b = hi - (hi - lo) / 3;
+            if (loss(eval, a) < loss(eval, b)) {
+                hi = b;
+            } else {
+                lo = a;
+            }
+        }
+        return (lo + hi) / 2;
+    }
+
+    /** Return the evaluation found by ITERATIONS steps of gradient
+     *  descent of size RATE (using Adam's method) from START with
+     *  scale K, reporting progress to LOG, if it is not null. */
+    Evaluation tune(Evaluation start, double k, int iterations,
+                    double rate, PrintStream log) throws IOException {
+        int n = Evaluation.NUM_FEATURES;
+        double[] weights = new double[n], gradient = new double[n],
+            mean = new double[n], variance = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            weights[i] = start.weight(i);
+        }
+        for (int step = 1; step <= iterations; step += 1) {
+            double loss = pass(new Evaluation(weights), k, gradient);
+            for (int i = 0; i < n; i += 1) {
+                if (i == Evaluation.MATERIAL_FEATURE) {
+                    continue;
+                }
+                double g = gradient[i];
+                mean[i] = BETA1 * mean[i] + (1 - BETA1) * g;
+                variance[i] = BETA2 * variance[i] + (1 - BETA2) * g * g;
+                double m = mean[i] / (1 - Math.pow(BETA1, step)),
+                    v = variance[i] / (1 - Math.pow(BETA2, step));
+                weights[i] -= rate * m / (Math.sqrt(v) + EPSILON);
+            }
+            if (log != null && (step % LOG_INTERVAL == 0
+                                || step == iterations)) {
+                log.printf("step %d: loss %.6f%n", step, loss);
+            }
+        }
+        return new Evaluation(weights);
+    }
+
+    /** Shut down my threads. */
+    @Override
+    public void close() {
+        _pool.shutdownNow();
+    }
+
+    /** Make one pass over the positions with evaluation EVAL and scale
+     *  K, returning the mean squared error and, if GRADIENT is not null,
+     *  storing the gradient of the error with respect to the weights in
+     *  it. */
+    private double pass(Evaluation eval, double k, double[] gradient)
+        throws IOException {
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> running = new ArrayList<>();
+        for (Worker worker : _workers) {
+            running.add(_pool.submit(() -> worker.run(eval, k, next,
+                                                      gradient != null)));
+        }
+        for (Future<?> task : running) {
+            try {
+                task.get();
+            } catch (InterruptedException excp) {
+                throw new IOException("interrupted");
+            } catch (ExecutionException excp) {
+                throw new Error("Internal failure: tuning failed",
+                                excp.getCause());
+            }
+        }
+        double loss = 0;
+        if (gradient != null) {
+            Arrays.fill(gradient, 0);
+        }
+        for (Worker worker : _workers) {
+            loss += worker._loss;
+            for (int i = 0; gradient != null && i < gradient.length;
+                 i += 1) {
+                gradient[i] += worker._gradient[i] / Math.max(1, _size);
+            }
+        }
+        return loss / Math.max(1, _size);
+    }
+
+    /** The state of one thread in a pass over the positions. */
+    private class Worker {
+
+        /** Evaluate the positions in the chunks claimed through NEXT with
+         *  EVAL and scale K, accumulating the squared error in _loss and,
+         *  if GRADIENT, its gradient in _gradient. */
+        void run(Evaluation eval, double k, AtomicInteger next,
+                 boolean gradient) {
+            double loss = 0;
+            double[] sums = _gradient;
+            int[][] features = _features;
+            Arrays.fill(sums, 0);
+            for (int c = next.getAndIncrement(); c < _chunks.length;
+                 c = next.getAndIncrement()) {
+                ByteBuffer shard = _shards.get(_chunks[c][0]);
+                int first = _chunks[c][1] * RECORD;
+                _batch.clear();
+                for (int at = first, end = _chunks[c][2] * RECORD;
+                     at < end; at += RECORD) {
+                    _batch.add(shard, at);
+                }
+                BatchEvaluator.features(_batch, features);
+                for (int j = 0, n = _batch.size(); j < n; j += 1) {
+                    double value = 0;
+                    for (int i = 0; i < features.length; i += 1) {
+                        value += eval.weight(i) * features[i][j];
+                    }
+                    int result = TrainingData.result(shard,
+                                                     first + j * RECORD);
+                    double p = 1 / (1 + Math.exp(-k * value)),
+                        error = p - (result + 1) / 2.0;
+                    loss += error * error;
+                    if (gradient) {
+                        double d = 2 * error * p * (1 - p) * k;
+                        for (int i = 0; i < features.length; i += 1) {
+                            sums[i] += d * features[i][j];
+                        }
+                    }
+                }
+            }
+            _loss = loss;
+        }
+
+        /** Squared error accumulated in the last pass. */
+        private double _loss;
+        /** Gradient accumulated in the last pass. */
+        private final double[] _gradient =
+            new double[Evaluation.NUM_FEATURES];
+        /** The positions of the current chunk. */
+        private final PositionBatch _batch = new PositionBatch(CHUNK);
+        /** Work area for their features. */
+        private final int[][] _features =
+            new int[Evaluation.NUM_FEATURES][CHUNK];
+    }
+
+    /** Size of a position record. */
+    private static final int RECORD = TrainingData.RECORD;
+    /** Number of ternary-search steps in fitting the scale. */
+    private static final int SCALE_STEPS = 40;
+    /** Parameters of Adam's method. */
+    private static final double BETA1 = 0.9, BETA2 = 0.999, EPSILON = 1e-8;
+    /** Number of steps between progress reports. */
+    private static final int LOG_INTERVAL = 20;
+
+    /** The mapped shards. */
+    private final List<ByteBuffer> _shards = new ArrayList<>();
+    /** Chunks of work: shard number, first record, and end record (with
+     *  the header counting as record 0). */
+    private final int[][] _chunks;
+    /** Number of positions. */
+    private long _size;
+    /** Per-thread state. */
+    private final Worker[] _workers;
+    /** The threads. */
+    private final ExecutorService _pool;
+}
@@ -2,9 +2,35 @@ package ataxx;
 
 import org.junit.Test;
 import ucb.junit.textui;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 /** The suite of all JUnit tests for the ataxx package.
  *  @author tapan.jasthi
@@ -45,6 +71,48 @@ public class UnitTest {
                         + "===");
     }
 
+    @Test
+    public void positionTextTest() {
+        Board b = new Board();
+        assertEquals("r5b/7/7/7/7/7/b5r r 0", b.snapshot().toText());
+        b.setBlock("c3");
+        b.makeMove('a', '7', 'b', '5');
+        b.makeMove('g', '7', 'f', '6');
+        String text = "6b/5b1/1rX1X2/7/2X1X2/7/b5r r 1";
+        assertEquals(text, b.snapshot().toText());
+        BoardSnapshot position = BoardSnapshot.parse(text);
+        assertEquals(b.snapshot(), position);
+        assertEquals(2, position.redPieces());
+        assertEquals(3, position.bluePieces());
+
+        Board copy = new Board();
+        copy.setPosition(position);
+        assertEquals(b.toString(true), copy.toString(true));
+        assertEquals(PieceColor.RED, copy.whoseMove());
+        assertEquals(1, copy.numJumps());
+        assertEquals(text, copy.snapshot().toText());
+        copy.setPosition(BoardSnapshot.parse("7/7/7/7/7/7/7 b 25"));
+        assertEquals(PieceColor.BLUE, copy.whoseMove());
+        assertEquals(true, copy.gameOver());
+
+        String[] bad = {
+            "r5b/7/7/7/7/7/b5r", "r5b/7/7/7/7/7/b5r r", "r5b/7/7/7/7/7 r 0",
+            "r5b/7/7/7/7/7/b5r x 0", "r6b/7/7/7/7/7/b5r r 0",
+            "r5b/7/7/7/7/7/b5r r 26", "r5b/7/7/7/7/7/b5r r 0 ",
+            "r5b/7/7/7/7/7/b5r/7 r 0", "r5q/7/7/7/7/7/b5r r 0",
+            "r4-b/7/7/7/7/7/b5r r 0", "r5b/7/7/7/7/7/b5r r 1x",
+            "r5b/34/7/7/7/7/b5r r 0", "r5b/7/7/7/7/7/b11111r r 0",
+        };
+        for (String s : bad) {
+            try {
+                BoardSnapshot.parse(s);
+                fail("parse of " + s + " succeeded");
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        }
+    }
+
     @Test
     public void blockTest() {
         Board b0 = new Board();
@@ -284,6 +352,1042 @@ public class UnitTest {
         assertEquals(23, listOfMoves.size());
     }
 
+    @Test
+    public void snapshotTest() {
+        Board b = new Board();
+        b.setBlock("c3");
+        BoardSnapshot s0 = b.snapshot();
+        b.makeMove('a', '7', 'b', '6');
+        BoardSnapshot s1 = b.snapshot();
+
+        assertEquals(s0.get('b', '6'), PieceColor.EMPTY);
+        assertEquals(s0.whoseMove(), PieceColor.RED);
+        assertEquals(s1.get('b', '6'), PieceColor.RED);
+        assertEquals(s1.get('c', '3'), PieceColor.BLOCKED);
+        assertEquals(s1.whoseMove(), PieceColor.BLUE);
+        assertEquals(s1.redPieces(), 3);
+        assertEquals(s1.bluePieces(), 2);
+        assertEquals(s1.numMoves(), 1);
+        assertEquals(s1.diff(s0),
+                     1L << BoardSnapshot.square('b', '6'));
+
+        Board copy = new Board(s1);
+        assertEquals(copy.toString(), b.toString());
+        assertEquals(copy.whoseMove(), b.whoseMove());
+        copy.makeMove('g', '7', 'e', '6');
+        assertEquals(b.snapshot(), s1);
+    }
+
+    @Test
+    public void analyzeTest() {
+        Board b = new Board();
+        b.makeMove('a', '7', 'b', '6');
+        b.makeMove('g', '7', 'f', '6');
+        List<Analyzer.Line> lines = Analyzer.analyze(b, 4);
+        assertEquals(4, lines.size());
+        for (int i = 0; i < lines.size(); i += 1) {
+            assertEquals(true, b.legalMove(lines.get(i).move()));
+            if (i > 0) {
+                assertEquals(true, lines.get(i - 1).score()
+                             >= lines.get(i).score());
+            }
+        }
+        assertEquals(lines.subList(0, 2), Analyzer.analyze(b, 2));
+        assertEquals(Analyzer.analyze(b, 3).get(0).pv().get(0),
+                     lines.get(0).move());
+        for (Analyzer.Line line : lines) {
+            Board after = new Board(b.snapshot());
+            after.makeMove(line.move());
+            AlphaBetaAI plain =
+                new AlphaBetaAI(null, after.whoseMove(),
+                                EnumSet.noneOf(AlphaBetaAI.Feature.class),
+                                Analyzer.DEPTH - 1, 0);
+            plain.findMove(after);
+            assertEquals(-plain.score(), line.score());
+        }
+
+        Evaluation frontier =
+            new Evaluation(new double[] { 1, 0.25, 0, 0, 0, 0, 0 });
+        List<Analyzer.Line> weighted = Analyzer.analyze(b, 4, frontier);
+        assertEquals(4, weighted.size());
+        assertEquals(true, weighted != Analyzer.analyze(b, 4));
+        assertEquals(weighted, Analyzer.analyze(b, 4, frontier));
+        assertEquals(true, weighted.get(0).score() % Evaluation.SCALE != 0
+                     || weighted.get(1).score() % Evaluation.SCALE != 0);
+    }
+
+    @Test
+    public void playoutBoardTest() {
+        Random random = new Random(42);
+        Board b = new Board();
+        b.setBlock("c3");
+        PlayoutBoard p = new PlayoutBoard();
+        p.copy(b);
+        int[] moves = new int[PlayoutBoard.MAX_MOVES];
+        while (!b.gameOver()) {
+            assertEquals(false, p.gameOver());
+            int n = p.moves(moves);
+            if (n == 0) {
+                assertEquals(false, b.canMove(b.whoseMove()));
+                b.pass();
+                p.play(PlayoutBoard.PASS);
+            } else {
+                int move = moves[random.nextInt(n)];
+                assertEquals(true, b.legalMove(PlayoutBoard.toMove(move)));
+                b.makeMove(PlayoutBoard.toMove(move));
+                p.play(move);
+            }
+            for (int sq = 0; sq < PlayoutBoard.SIZE; sq += 1) {
+                assertEquals(b.get(sq).ordinal(), p.get(sq));
+            }
+            assertEquals(b.whoseMove().ordinal(), p.toMove());
+        }
+        assertEquals(true, p.gameOver());
+        assertEquals(b.redPieces(), p.count(PlayoutBoard.RED));
+    }
+
+    @Test
+    public void alphaBetaTest() {
+        Board b = new Board();
+        b.makeMove('a', '7', 'b', '6');
+        b.makeMove('g', '7', 'f', '6');
+        b.makeMove('b', '6', 'c', '5');
+        b.makeMove('f', '6', 'e', '5');
+        AlphaBetaAI plain =
+            new AlphaBetaAI(null, PieceColor.RED,
+                            EnumSet.noneOf(AlphaBetaAI.Feature.class),
+                            Analyzer.DEPTH, 0);
+        Move move = plain.findMove(new Board(b.snapshot()));
+        assertEquals(true, b.legalMove(move));
+        assertEquals(Analyzer.DEPTH, plain.depth());
+        assertEquals(Analyzer.analyze(b, 1).get(0).score(), plain.score());
+
+        AlphaBetaAI selective =
+            new AlphaBetaAI(null, PieceColor.RED,
+                            EnumSet.allOf(AlphaBetaAI.Feature.class), 5, 0);
+        plain = new AlphaBetaAI(null, PieceColor.RED,
+                                EnumSet.noneOf(AlphaBetaAI.Feature.class),
+                                5, 0);
+        assertEquals(true,
+                     b.legalMove(selective.findMove(new Board(b.snapshot()))));
+        plain.findMove(new Board(b.snapshot()));
+        assertEquals(true, selective.nodes() < plain.nodes());
+    }
+
+    @Test
+    public void gameRecordTest() throws IOException {
+        Random random = new Random(7);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameRecordWriter writer = new GameRecordWriter(bytes);
+        Board b = new Board();
+        b.setBlock("c3");
+        writer.startGame(b.snapshot());
+        while (!b.gameOver()) {
+            List<Move> moves = Board.getMoveArray(b, b.whoseMove());
+            Move m = moves.isEmpty() ? Move.pass()
+                : moves.get(random.nextInt(moves.size()));
+            writer.move(m);
+            b.makeMove(m);
+        }
+        writer.endGame("ai", "mcts", GameRecord.DRAW);
+        writer.startGame(new Board().snapshot());
+        writer.move(Move.move('a', '7', 'a', '5'));
+        writer.close();
+
+        GameRecordReader reader = new GameRecordReader(
+            new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(true, reader.nextGame());
+        Board replay = GameRecord.initialBoard(reader.blocks());
+        assertEquals(PieceColor.BLOCKED, replay.get('e', '5'));
+        for (Move m = reader.nextMove(); m != null; m = reader.nextMove()) {
+            replay.makeMove(m);
+        }
+        assertEquals(b.snapshot(), replay.snapshot());
+        assertEquals("ai", reader.red());
+        assertEquals("mcts", reader.blue());
+        assertEquals(GameRecord.DRAW, reader.result());
+        assertEquals(true, reader.nextGame());
+        assertEquals(0L, reader.blocks());
+        assertEquals("a7-a5", reader.nextMove().toString());
+        assertEquals(false, reader.nextGame());
+    }
+
+    @Test
+    public void setposRecordingTest() throws IOException {
+        File file = File.createTempFile("ataxx", ".atx");
+        file.deleteOnExit();
+        QueueSource input = new QueueSource();
+        for (String line : new String[] {
+                "record " + file.getPath(),
+                "setpos rr4b/7/7/7/7/7/b5r r 0", "manual blue",
+                "a7-a5", "g7-g5", "clear", "manual blue",
+                "setpos r5b/7/7/7/7/7/b5r r 0", "a7-a6", "a1-b2",
+                "quit" }) {
+            input.send(line);
+        }
+        Board board = new Board();
+        new Game(board, input, new QueueReporter()).process(false);
+
+        GameRecordReader reader =
+            new GameRecordReader(new FileInputStream(file));
+        assertEquals(true, reader.nextGame());
+        Board replay = GameRecord.initialBoard(reader.blocks());
+        for (Move m = reader.nextMove(); m != null; m = reader.nextMove()) {
+            replay.makeMove(m);
+        }
+        assertEquals(2, reader.numMoves());
+        assertEquals(board.snapshot(), replay.snapshot());
+        assertEquals(false, reader.nextGame());
+        reader.close();
+    }
+
+    @Test
+    public void ponderRandomsTest() throws IOException {
+        long[] draws = new long[2];
+        SessionHost host = new SessionHost(0);
+        for (int i = 0; i < 2; i += 1) {
+            Path file = Files.createTempFile("ataxx", ".ckpt");
+            QueueReporter output = new QueueReporter();
+            SessionHost.Session session = host.open(output);
+            for (String line : new String[] {
+                    "checkpoint " + file, "seed 5", "level 3",
+                    "ponder " + (i == 0 ? "off" : "on"), "auto blue ab",
+                    "start", "a7-b6" }) {
+                session.send(line);
+            }
+            assertEquals(true, output.getLine(1000).startsWith("Blue moves"));
+            session.send("b6-c5");
+            assertEquals(true, output.getLine(1000).startsWith("Blue moves"));
+            session.send("quit");
+            session.done().join();
+            Checkpoint.Saved saved = Checkpoint.read(file);
+            assertEquals(4, saved.moves().size());
+            draws[i] = saved.draws();
+            Files.delete(file);
+        }
+        host.close();
+        assertEquals(4, draws[0]);
+        assertEquals(draws[0], draws[1]);
+    }
+
+    @Test
+    public void refusedSetupTest() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".ckpt");
+        QueueSource input = new QueueSource();
+        for (String line : new String[] {
+                "checkpoint " + file, "manual blue", "clock 60",
+                "start", "g1-g2", "quit" }) {
+            input.send(line);
+        }
+        new Game(new Board(), input, new QueueReporter()).process(false);
+
+        List<String> errors = new ArrayList<>();
+        input = new QueueSource();
+        for (String line : new String[] {
+                "manual blue", "start", "a7-b6",
+                "setpos 7/7/7/3r3/7/7/b6 b 0", "clock 5", "time",
+                "restore " + file, "time", "quit" }) {
+            input.send(line);
+        }
+        Board board = new Board();
+        new Game(board, input, new Reporter() {
+            @Override
+            public void errMsg(String format, Object... args) {
+                errors.add(String.format(format, args));
+            }
+
+            @Override
+            public void outcomeMsg(String format, Object... args) {
+            }
+
+            @Override
+            public void moveMsg(String format, Object... args) {
+            }
+        }).process(false);
+        assertEquals(true,
+                     errors.contains("'setpos' command is not allowed now."));
+        assertEquals("r5b/1r5/7/7/7/7/b5r b 0", board.snapshot().toText());
+        assertEquals(true,
+                     errors.contains("'clock' command is not allowed now."));
+        assertEquals(true, errors.contains("No clock."));
+        assertEquals(true,
+                     errors.contains("'restore' command is not allowed now."));
+        assertEquals(2, Collections.frequency(errors, "No clock."));
+        Files.delete(file);
+    }
+
+    @Test
+    public void daemonStatusTest() throws Exception {
+        Path dir = Files.createTempDirectory("ataxx");
+        Path socket = dir.resolve("socket");
+        Daemon daemon = new Daemon(socket);
+        Thread server = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException excp) {
+                throw new UncheckedIOException(excp);
+            }
+        });
+        server.start();
+        assertEquals("0 sessions: 0 resident, 0 hibernating (0 bytes);"
+                     + " 0 hibernations, 0 resumptions",
+                     daemonStatus(socket));
+        SocketChannel player =
+            SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        player.write(ByteBuffer.wrap("manual red\n".getBytes()));
+        String status = daemonStatus(socket);
+        for (int i = 0; i < 100 && status.startsWith("0 "); i += 1) {
+            Thread.sleep(10);
+            status = daemonStatus(socket);
+        }
+        assertEquals(true, status.startsWith("1 sessions: 1 resident"));
+        player.close();
+        daemon.close();
+        server.join();
+        Files.delete(dir);
+    }
+
+    /** Return the status line of the daemon listening on SOCKET. */
+    private static String daemonStatus(Path socket) throws IOException {
+        try (SocketChannel channel =
+             SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            channel.write(ByteBuffer.wrap((Daemon.STATUS + "\n")
+                                          .getBytes()));
+            return new BufferedReader(Channels.newReader(channel, "UTF-8"))
+                .readLine();
+        }
+    }
+
+    @Test
+    public void resumedRecordingTest() throws IOException {
+        File file = File.createTempFile("ataxx", ".atx");
+        file.deleteOnExit();
+        QueueSource input = new QueueSource();
+        for (String line : new String[] {
+                "manual blue", "start", "g1-f2", "a1-b2", "quit" }) {
+            input.send(line);
+        }
+        Game game = new Game(new Board(), input, new QueueReporter());
+        game.process(false);
+        byte[] packed = game.pack();
+
+        input = new QueueSource();
+        for (String line : new String[] {
+                "record " + file.getPath(), "f2-e3", "b2-c3", "quit" }) {
+            input.send(line);
+        }
+        Board board = new Board();
+        new Game(board, input, new QueueReporter(), packed).process(false);
+        assertEquals(8, board.redPieces() + board.bluePieces());
+
+        GameRecordReader reader =
+            new GameRecordReader(new FileInputStream(file));
+        assertEquals(false, reader.nextGame());
+        reader.close();
+    }
+
+    @Test
+    public void gameRecordingTest() throws IOException {
+        File file = File.createTempFile("ataxx", ".atx");
+        file.deleteOnExit();
+        QueueSource input = new QueueSource();
+        for (String line : new String[] {
+                "record " + file.getPath(), "block b2", "manual blue",
+                "a7-b7", "start", "a1-a2", "g1-f1", "quit" }) {
+            input.send(line);
+        }
+        new Game(new Board(), input, new QueueReporter()).process(false);
+
+        GameRecordReader reader =
+            new GameRecordReader(new FileInputStream(file));
+        assertEquals(true, reader.nextGame());
+        Board replay = GameRecord.initialBoard(reader.blocks());
+        assertEquals(PieceColor.BLOCKED, replay.get('f', '6'));
+        int n;
+        for (n = 0; reader.nextMove() != null; n += 1) {
+            continue;
+        }
+        assertEquals(3, n);
+        assertEquals("manual", reader.red());
+        assertEquals("manual", reader.blue());
+        assertEquals(GameRecord.UNFINISHED, reader.result());
+        assertEquals(false, reader.nextGame());
+        reader.close();
+    }
+
+    @Test
+    public void positionArchiveTest() throws IOException {
+        Random random = new Random(11);
+        Path records = Files.createTempFile("ataxx", ".atx");
+        Path index = Files.createTempFile("ataxx", ".idx");
+        int games = 20, redWins, afterA7B6;
+        redWins = afterA7B6 = 0;
+        try (GameRecordWriter writer =
+                 new GameRecordWriter(Files.newOutputStream(records))) {
+            for (int g = 0; g < games; g += 1) {
+                Board b = new Board();
+                writer.startGame(b.snapshot());
+                for (int i = 0; i < 12 && !b.gameOver(); i += 1) {
+                    List<Move> moves = Board.getMoveArray(b, b.whoseMove());
+                    Move m = i == 0 && g % 2 == 0
+                        ? Move.move('a', '7', 'b', '6')
+                        : moves.get(random.nextInt(moves.size()));
+                    afterA7B6 += i == 0 && m.toString().equals("a7-b6")
+                        ? 1 : 0;
+                    writer.move(m);
+                    b.makeMove(m);
+                }
+                byte result = g % 3 == 0 ? GameRecord.RED_WINS
+                    : GameRecord.UNFINISHED;
+                redWins += g % 3 == 0 ? 1 : 0;
+                writer.endGame("ai", "ai", result);
+            }
+        }
+        assertEquals(true, PositionArchive.build(index, List.of(records), 50)
+                     > 50);
+        try (PositionArchive archive = new PositionArchive(index)) {
+            PositionArchive.Entry start =
+                archive.lookup(new Board().snapshot());
+            assertEquals(games, start.frequency());
+            assertEquals(redWins, start.redWins());
+            assertEquals(games - redWins, start.unfinished());
+            assertEquals("a7-b6", start.next(0).toString());
+            assertEquals(afterA7B6, start.nextCount(0));
+            int total = 0;
+            for (int i = 0; i < start.numNext(); i += 1) {
+                total += start.nextCount(i);
+            }
+            assertEquals(games, total);
+            Board b = new Board();
+            b.makeMove('a', '7', 'b', '6');
+            assertEquals(afterA7B6, archive.lookup(b.snapshot()).frequency());
+            b.setBlock("d4");
+            assertEquals(null, archive.lookup(b.snapshot()));
+        } finally {
+            Files.delete(records);
+            Files.delete(index);
+        }
+    }
+
+    @Test
+    public void selfPlayTest() throws IOException {
+        Path dir = Files.createTempDirectory("ataxx");
+        long n = SelfPlay.generate(dir, 4, 2, 2, 10, 3);
+        assertEquals(true, n > 0);
+        long total = 0;
+        for (int s = 0; s < (n + 9) / 10; s += 1) {
+            Path file = dir.resolve(String.format("shard-%05d.bin", s));
+            ByteBuffer shard = ByteBuffer.wrap(Files.readAllBytes(file));
+            assertEquals(TrainingData.MAGIC, shard.getInt(0));
+            int count = shard.getInt(8);
+            assertEquals(s < (n - 1) / 10 ? 10 : n - 10 * s, count);
+            assertEquals((count + 1) * TrainingData.RECORD, shard.limit());
+            for (int i = 1; i <= count; i += 1) {
+                int at = i * TrainingData.RECORD;
+                long mine = TrainingData.mine(shard, at),
+                    theirs = TrainingData.theirs(shard, at),
+                    blocks = TrainingData.blocks(shard, at);
+                assertEquals(0L, (mine & theirs) | (mine & blocks)
+                             | (theirs & blocks));
+                assertEquals(true, mine != 0 && theirs != 0);
+                assertEquals(true, Math.abs(TrainingData.result(shard, at))
+                             <= 1);
+            }
+            total += count;
+            Files.delete(file);
+        }
+        assertEquals(n, total);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void selfPlayDeterminismTest() throws IOException {
+        Path one = Files.createTempDirectory("ataxx"),
+            three = Files.createTempDirectory("ataxx");
+        long n = SelfPlay.generate(one, 9, 1, 2, 16, 7);
+        assertEquals(n, SelfPlay.generate(three, 9, 3, 2, 16, 7));
+        for (int s = 0; s < (n + 15) / 16; s += 1) {
+            String name = String.format("shard-%05d.bin", s);
+            assertEquals(true,
+                         Arrays.equals(Files.readAllBytes(one.resolve(name)),
+                                       Files.readAllBytes(three
+                                                          .resolve(name))));
+            Files.delete(one.resolve(name));
+            Files.delete(three.resolve(name));
+        }
+        Files.delete(one);
+        Files.delete(three);
+    }
+
+    @Test
+    public void tunerTest() throws IOException {
+        int[] features = new int[Evaluation.NUM_FEATURES];
+        BoardSnapshot start = new Board().snapshot();
+        ByteBuffer record = ByteBuffer.allocate(TrainingData.RECORD);
+        TrainingData.put(record, start, 0, 0, 0);
+        long red = TrainingData.mine(record, 0),
+            blue = TrainingData.theirs(record, 0);
+        Evaluation.features(red, blue, 0, features);
+        assertEquals("[0, 0, 0, 0, 0, 0, 1]", Arrays.toString(features));
+        Evaluation.features(red | 1L << 1, blue, 0, features);
+        assertEquals("[1, 5, 6, 0, 1, 0, 1]", Arrays.toString(features));
+        assertEquals(Evaluation.SCALE,
+                     Evaluation.MATERIAL.evaluate(red | 1L << 1, blue, 0,
+                                                  features));
+        Evaluation frontier =
+            new Evaluation(new double[] { 0, 0.25, 0, 0, 0, 0, 0 });
+        assertEquals(5 * Evaluation.SCALE / 4,
+                     frontier.evaluate(red | 1L << 1, blue, 0, features));
+
+        Path dir = Files.createTempDirectory("ataxx");
+        Path weights = dir.resolve("weights.txt");
+        long n = SelfPlay.generate(dir, 6, 2, 2, 1 << 16, 5);
+        Path shard = dir.resolve("shard-00000.bin");
+        try (Tuner tuner = new Tuner(List.of(shard), 2)) {
+            assertEquals(n, tuner.size());
+            double k = tuner.fitScale(Evaluation.MATERIAL);
+            Evaluation tuned = tuner.tune(Evaluation.MATERIAL, k, 30,
+                                          Tuner.RATE, null);
+            assertEquals(1.0, tuned.weight(0), 0.0);
+            assertEquals(true, tuner.loss(tuned, k)
+                         < tuner.loss(Evaluation.MATERIAL, k));
+            tuned.save(weights);
+            Evaluation loaded = Evaluation.load(weights);
+            for (int i = 0; i < Evaluation.NUM_FEATURES; i += 1) {
+                assertEquals(tuned.weight(i), loaded.weight(i), 1e-5);
+            }
+            AlphaBetaAI ai = new AlphaBetaAI(null, PieceColor.RED, loaded);
+            assertEquals(true, ai.findMove(new Board(start)) != null);
+        } finally {
+            Files.delete(weights);
+            Files.delete(shard);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void patternTest() {
+        Evaluation eval =
+            new Evaluation(new double[] { 1, 0.5, 0.25, -0.5, 1, 0.5, 2 });
+        PatternTable table = new PatternTable(eval);
+        PlayoutBoard material = new PlayoutBoard(),
+            patterns = new PlayoutBoard(), scanned = new PlayoutBoard();
+        material.usePatterns(PatternTable.MATERIAL);
+        patterns.usePatterns(table);
+        scanned.usePatterns(table);
+        Random random = new Random(7);
+        int[] moves = new int[PlayoutBoard.MAX_MOVES];
+        Board b = new Board();
+        b.setBlock("c3");
+        material.copy(b);
+        patterns.copy(b);
+        while (!b.gameOver()) {
+            int n = patterns.moves(moves);
+            int move = n == 0 ? PlayoutBoard.PASS : moves[random.nextInt(n)];
+            material.play(move);
+            patterns.play(move);
+            if (move == PlayoutBoard.PASS) {
+                b.pass();
+            } else {
+                b.makeMove(PlayoutBoard.toMove(move));
+            }
+            scanned.copy(b);
+            assertEquals(scanned.patternValue(), patterns.patternValue());
+            int pieces = b.numPieces(b.whoseMove())
+                - b.numPieces(b.whoseMove().opposite());
+            assertEquals(pieces * PatternTable.SCALE,
+                         material.patternValue());
+        }
+        AlphaBetaAI ai = new AlphaBetaAI(null, PieceColor.RED, table);
+        assertEquals(true, ai.findMove(new Board()) != null);
+    }
+
+    @Test
+    public void batchEvaluationTest() {
+        Evaluation eval =
+            new Evaluation(new double[] { 1, 0.5, 0.25, -0.5, 1, 0.5, 2 });
+        PatternTable table = new PatternTable(eval);
+        PositionBatch batch = new PositionBatch(1);
+        PlayoutBoard pos = new PlayoutBoard();
+        pos.usePatterns(table);
+        List<Integer> patternValues = new ArrayList<>();
+        Random random = new Random(11);
+        int[] moves = new int[PlayoutBoard.MAX_MOVES];
+        for (int g = 0; g < 4; g += 1) {
+            Board b = new Board();
+            b.setBlock((char) ('a' + g), '4');
+            pos.copy(b);
+            while (!pos.gameOver()) {
+                int n = pos.moves(moves);
+                pos.play(n == 0 ? PlayoutBoard.PASS
+                         : moves[random.nextInt(n)]);
+                byte me = pos.toMove();
+                batch.add(pos.mask(me), pos.mask(PlayoutBoard.opposite(me)),
+                          pos.mask(PlayoutBoard.BLOCKED));
+                patternValues.add(pos.patternValue());
+            }
+        }
+        int n = batch.size();
+        int[][] features = new int[Evaluation.NUM_FEATURES][n];
+        int[] one = new int[Evaluation.NUM_FEATURES], scores = new int[n];
+        BatchEvaluator.features(batch, features);
+        for (int i = 0; i < n; i += 1) {
+            Evaluation.features(batch.mine(i), batch.theirs(i),
+                                batch.blocks(i), one);
+            for (int f = 0; f < Evaluation.NUM_FEATURES; f += 1) {
+                assertEquals(one[f], features[f][i]);
+            }
+        }
+        new BatchEvaluator(eval).evaluate(batch, scores);
+        for (int i = 0; i < n; i += 1) {
+            assertEquals(eval.evaluate(batch.mine(i), batch.theirs(i),
+                                       batch.blocks(i), one), scores[i]);
+        }
+        BatchEvaluator.patterns(batch, table, scores);
+        for (int i = 0; i < n; i += 1) {
+            assertEquals((int) patternValues.get(i), scores[i]);
+        }
+    }
+
+    @Test
+    public void transpositionTableTest() {
+        PlayoutBoard pos = new PlayoutBoard();
+        Board b = new Board();
+        b.setBlock("b2");
+        pos.copy(b);
+        Random random = new Random(3);
+        int[] moves = new int[PlayoutBoard.MAX_MOVES];
+        while (!pos.gameOver()) {
+            assertEquals(Zobrist.key(b.snapshot()), pos.key());
+            int n = pos.moves(moves);
+            int move = n == 0 ? PlayoutBoard.PASS : moves[random.nextInt(n)];
+            pos.play(move);
+            if (move == PlayoutBoard.PASS) {
+                b.pass();
+            } else {
+                b.makeMove(PlayoutBoard.toMove(move));
+            }
+        }
+        assertEquals(Zobrist.key(b.snapshot()), pos.key());
+
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(1 << 16, table.capacity());
+        long key = 0x123456789abcdefL, other = key ^ 1L << 40 ^ 1L << 8;
+        int move = Board.index('a', '7') * PlayoutBoard.SIZE
+            + Board.index('b', '5');
+        assertEquals(0L, table.probe(key));
+        table.store(key, move, -17, 6, TranspositionTable.LOWER, 40);
+        table.store(other, PlayoutBoard.PASS, 998, 2,
+                    TranspositionTable.EXACT, 0);
+        long data = table.probe(key);
+        assertEquals(move, TranspositionTable.move(data));
+        assertEquals(-17, TranspositionTable.score(data));
+        assertEquals(6, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+        assertEquals(40, TranspositionTable.empties(data));
+        data = table.probe(other);
+        assertEquals(PlayoutBoard.PASS, TranspositionTable.move(data));
+        assertEquals(998, TranspositionTable.score(data));
+        assertEquals(0L, table.probe(key ^ 1));
+        table.clear();
+        assertEquals(0L, table.probe(key));
+
+        Board start = new Board();
+        start.makeMove('a', '7', 'b', '6');
+        AlphaBetaAI first = new AlphaBetaAI(null, PieceColor.BLUE,
+                                            EnumSet.noneOf(
+                                                AlphaBetaAI.Feature.class),
+                                            4, 0),
+            second = new AlphaBetaAI(null, PieceColor.BLUE,
+                                     EnumSet.noneOf(AlphaBetaAI.Feature.class),
+                                     4, 0);
+        first.useTable(table);
+        second.useTable(table);
+        Move m1 = first.findMove(new Board(start.snapshot()));
+        Move m2 = second.findMove(new Board(start.snapshot()));
+        assertEquals(m1, m2);
+        assertEquals(first.score(), second.score());
+        assertEquals(true, second.tableHits() > 0);
+        assertEquals(true, second.nodes() < first.nodes());
+    }
+
+    @Test
+    public void clockTest() {
+        long[] now = { 0 };
+        Clock clock = new Clock(10000, 500, () -> now[0]);
+        clock.start(PieceColor.RED);
+        now[0] += 3000 * 1000000L;
+        assertEquals(7000L, clock.remaining(PieceColor.RED));
+        clock.start(PieceColor.RED);
+        assertEquals(7000L, clock.remaining(PieceColor.RED));
+        clock.stop();
+        assertEquals(7500L, clock.remaining(PieceColor.RED));
+        assertEquals(null, clock.running());
+        clock.start(PieceColor.BLUE);
+        now[0] += 10600 * 1000000L;
+        assertEquals(true, clock.flagged(PieceColor.BLUE));
+        clock.stop();
+        assertEquals(-600L, clock.remaining(PieceColor.BLUE));
+        assertEquals("Red 0:07.5, Blue 0:00.0", clock.toString());
+        clock.reset();
+        assertEquals(10000L, clock.remaining(PieceColor.BLUE));
+    }
+
+    @Test
+    public void timeManagerTest() {
+        TimeManager opening = new TimeManager(60000, 0, 45),
+            ending = new TimeManager(60000, 0, 4),
+            increment = new TimeManager(60000, 1000, 45),
+            short1 = new TimeManager(100, 2000, 20);
+        assertEquals(true, opening.softLimit() > 0);
+        assertEquals(true, opening.softLimit() < opening.hardLimit());
+        assertEquals(true, opening.hardLimit() <= 60000 / 3);
+        assertEquals(true, ending.softLimit() > opening.softLimit());
+        assertEquals(opening.softLimit() + 750, increment.softLimit());
+        assertEquals(opening.softLimit(), opening.extended(0));
+        assertEquals(true, opening.extended(2) > opening.extended(1));
+        assertEquals(opening.hardLimit(), opening.extended(100));
+        assertEquals(true, short1.hardLimit() <= 100 - TimeManager.OVERHEAD);
+        assertEquals(0L, new TimeManager(30, 0, 20).hardLimit());
+
+        Board b = new Board();
+        b.makeMove('a', '7', 'b', '6');
+        AlphaBetaAI ai = new AlphaBetaAI(null, PieceColor.BLUE);
+        TimeManager time = new TimeManager(1000, 0, 44);
+        ai.useTime(time);
+        ai.findMove(new Board(b.snapshot()));
+        assertEquals(true, time.elapsed() <= time.hardLimit() + 20);
+        assertEquals(true, ai.depth() >= 1);
+    }
+
+    @Test
+    public void levelTest() {
+        Board b = new Board();
+        b.makeMove('a', '7', 'b', '6');
+        b.makeMove('a', '1', 'b', '2');
+        for (int level = 1; level <= AlphaBetaAI.LEVELS; level += 2) {
+            Move[] moves = new Move[2];
+            long[] nodes = new long[2];
+            for (int i = 0; i < 2; i += 1) {
+                AlphaBetaAI ai = new AlphaBetaAI(null, PieceColor.RED);
+                ai.useLevel(level);
+                moves[i] = ai.findMove(new Board(b.snapshot()));
+                nodes[i] = ai.nodes();
+            }
+            assertEquals(moves[0], moves[1]);
+            assertEquals(nodes[0], nodes[1]);
+        }
+        AlphaBetaAI weakest = new AlphaBetaAI(null, PieceColor.RED);
+        weakest.useLevel(1);
+        weakest.findMove(new Board(b.snapshot()));
+        assertEquals(true, weakest.nodes() <= 201);
+        assertEquals(1, weakest.depth());
+        AlphaBetaAI strong = new AlphaBetaAI(null, PieceColor.RED);
+        strong.useLevel(4);
+        strong.findMove(new Board(b.snapshot()));
+        assertEquals(true, strong.nodes() <= 15001);
+        assertEquals(true, strong.depth() <= 4);
+    }
+
+    @Test
+    public void engineProtocolTest() throws IOException {
+        StringWriter out = new StringWriter();
+        new EngineProtocol(new StringReader("ataxx-engine\n"
+                                            + "isready\n"
+                                            + "position startpos"
+                                            + " moves a7-b6\n"
+                                            + "go depth 3\n"
+                                            + "position bogus\n"
+                                            + "position startpos"
+                                            + " moves g7-g5\n"
+                                            + "go nodes 100\n"
+                                            + "frobnicate\n"
+                                            + "quit\n"),
+                           out, new TranspositionTable(1)).run();
+        String[] lines = out.toString().split("\\R");
+        List<String> bestMoves = new ArrayList<>();
+        for (String line : lines) {
+            if (line.startsWith("bestmove")) {
+                bestMoves.add(line);
+            }
+        }
+        assertEquals("engineok", lines[2]);
+        assertEquals("readyok", lines[3]);
+        assertEquals(2, bestMoves.size());
+        assertEquals(true, bestMoves.get(0).matches("bestmove a1-.*"));
+        assertEquals(true, bestMoves.get(1).matches("bestmove a1-.*"));
+        assertEquals(true, out.toString().contains(
+                         "info string bad position command"));
+        assertEquals(true, out.toString().contains(
+                         "info string illegal move: g7-g5"));
+        assertEquals(true, out.toString().contains(
+                         "info string unknown command: frobnicate"));
+    }
+
+    @Test
+    public void engineRestartTest() throws IOException {
+        StringBuilder in = new StringBuilder("ataxx-engine\n");
+        for (int i = 0; i < 40; i += 1) {
+            in.append("position startpos\ngo infinite\n"
+                      + "position startpos moves a7-b6\ngo infinite\n");
+        }
+        in.append("quit\n");
+        StringWriter out = new StringWriter();
+        new EngineProtocol(new StringReader(in.toString()), out,
+                           new TranspositionTable(1)).run();
+        List<String> bestMoves = new ArrayList<>();
+        for (String line : out.toString().split("\\R")) {
+            if (line.startsWith("bestmove")) {
+                bestMoves.add(line);
+            }
+        }
+        assertEquals(80, bestMoves.size());
+        for (int i = 0; i < bestMoves.size(); i += 1) {
+            assertEquals(bestMoves.get(i),
+                         i % 2 == 0,
+                         bestMoves.get(i).matches("bestmove (a7|g1)-.*"));
+        }
+    }
+
+    @Test
+    public void winningIterationTest() {
+        Board b = new Board(BoardSnapshot.parse("7/7/7/2bbb2/2b1b2/2bbb2/"
+                                                + "1r5 r 0"));
+        AlphaBetaAI ai = new AlphaBetaAI(null, PieceColor.RED);
+        List<Integer> depths = new ArrayList<>();
+        ai.listen((searcher) -> depths.add(searcher.depth()));
+        assertEquals(Move.parse("b1-d3"), ai.findMove(b));
+        assertEquals(true, ai.score() > AlphaBetaAI.WIN_SCORE / 2);
+        assertEquals(ai.depth(), (int) depths.get(depths.size() - 1));
+    }
+
+    @Test
+    public void suiteRunnerTest() {
+        List<SuiteRunner.Problem> problems = new ArrayList<>();
+        problems.add(SuiteRunner.parse("7/7/7/2bbb2/2b1b2/2bbb2/1r5 r 0"
+                                       + " bm b1-d3; id \"octopus\";",
+                                       "1"));
+        problems.add(SuiteRunner.parse("r5b/7/7/7/7/7/b5r r 0 am a7-c5;",
+                                       "2"));
+        problems.add(SuiteRunner.parse("7/7/7/2bbb2/2b1b2/2bbb2/1r5 r 0"
+                                       + " bm b1-b2", "3"));
+        assertEquals("octopus", problems.get(0).id());
+        assertEquals("2", problems.get(1).id());
+        assertEquals(true, problems.get(1).solvedBy(Move.parse("a7-b6")));
+        assertEquals(false, problems.get(1).solvedBy(Move.parse("a7-c5")));
+        List<SuiteRunner.Result> results =
+            SuiteRunner.run(problems, 2, 4, 5000, 0, 1);
+        assertEquals(3, results.size());
+        assertEquals(true, results.get(0).solved());
+        assertEquals(true, results.get(1).solved());
+        assertEquals(false, results.get(2).solved());
+        try {
+            SuiteRunner.parse("r5b/7/7/7/7/7/b5r r 0 bm a7-a4;", "4");
+            fail("parse of illegal move succeeded");
+        } catch (GameException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void checkpointTest() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".ckpt");
+        try {
+            QueueSource input = new QueueSource();
+            for (String line : new String[] {
+                    "checkpoint " + file, "seed 3", "manual blue",
+                    "clock 60 1", "start", "g1-g2", "a1-b2", "quit" }) {
+                input.send(line);
+            }
+            Board board = new Board();
+            new Game(board, input, new QueueReporter()).process(false);
+
+            Checkpoint.Saved saved = Checkpoint.read(file);
+            assertEquals("r5b/7/7/7/7/7/b5r r 0",
+                         saved.position().toText());
+            assertEquals(2, saved.moves().size());
+            assertEquals(Move.parse("a1-b2"), saved.moves().get(1));
+            assertEquals("manual", saved.kind(PieceColor.RED));
+            assertEquals("manual", saved.kind(PieceColor.BLUE));
+            assertEquals(3, saved.seed());
+            assertEquals(60000, saved.base());
+            assertEquals(1000, saved.increment());
+            assertEquals(true, saved.remaining(PieceColor.BLUE) > 60000);
+
+            long length = saved.length();
+            Files.write(file, new byte[] { 0, 1, 2 },
+                        StandardOpenOption.APPEND);
+            saved = Checkpoint.read(file);
+            assertEquals(2, saved.moves().size());
+            assertEquals(length, saved.length());
+
+            input = new QueueSource();
+            for (String line : new String[] {
+                    "restore " + file, "g2-f3", "quit" }) {
+                input.send(line);
+            }
+            Board restored = new Board();
+            new Game(restored, input, new QueueReporter()).process(false);
+            board.makeMove(Move.parse("g2-f3"));
+            assertEquals(board, restored);
+            assertEquals(3, Checkpoint.read(file).moves().size());
+
+            Files.write(file, new byte[] { 1, 2, 3 });
+            try {
+                Checkpoint.read(file);
+                fail("read of bad checkpoint succeeded");
+            } catch (IOException excp) {
+                /* Expected. */
+            }
+            Files.write(file, new byte[] {
+                    Checkpoint.MARK, Checkpoint.VERSION, (byte) 0x90, 'r' });
+            try {
+                Checkpoint.read(file);
+                fail("read of checkpoint with bad length succeeded");
+            } catch (IOException excp) {
+                /* Expected. */
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** Return the lines of the next board dump from OUTPUT, waiting
+     *  at most a second for each. */
+    private static List<String> dump(QueueReporter output) {
+        List<String> lines = new ArrayList<>();
+        do {
+            String line = output.getLine(1000);
+            assertEquals(true, line != null);
+            lines.add(line);
+        } while (lines.size() == 1 || !lines.get(lines.size() - 1)
+                 .startsWith("==="));
+        return lines;
+    }
+
+    @Test
+    public void hibernationTest() throws InterruptedException {
+        SessionHost host = new SessionHost(200);
+        try {
+            QueueReporter output = new QueueReporter();
+            SessionHost.Session session = host.open(output);
+            for (String line : new String[] {
+                    "seed 11", "clock 600", "block c3", "start", "g1-f2",
+                    "dump" }) {
+                session.send(line);
+            }
+            assertEquals(true, output.getLine(1000).startsWith("Blue moves"));
+            List<String> before = dump(output);
+            for (int i = 0; i < 100 && !session.hibernating(); i += 1) {
+                Thread.sleep(10);
+            }
+            assertEquals(true, session.hibernating());
+            assertEquals(1, host.hibernating());
+            assertEquals(true, host.packedBytes() < 100);
+            assertEquals(0, host.resumptions());
+
+            session.send("dump");
+            assertEquals(before, dump(output));
+            assertEquals(1, host.resumptions());
+            session.send("quit");
+            for (int i = 0; i < 100 && !session.ended(); i += 1) {
+                Thread.sleep(10);
+            }
+            assertEquals(true, session.ended());
+            assertEquals(0, host.sessions());
+        } finally {
+            host.close();
+        }
+    }
+
+    @Test
+    public void searchCacheTest() throws IOException {
+        TranspositionTable table = new TranspositionTable(1);
+        for (int i = 1; i <= 40; i += 1) {
+            table.store(i * 0x9e3779b97f4a7c15L, i, -i, i % 10,
+                        TranspositionTable.EXACT, i <= 20 ? 40 : 10);
+        }
+        Path file = Files.createTempFile("ataxx", ".cache");
+        try {
+            assertEquals(40, table.save(file, 0, 100));
+            TranspositionTable copy = new TranspositionTable(1);
+            assertEquals(40, copy.load(file));
+            for (int i = 1; i <= 40; i += 1) {
+                long key = i * 0x9e3779b97f4a7c15L;
+                assertEquals(table.probe(key), copy.probe(key));
+            }
+
+            assertEquals(10, table.save(file, 0, 10));
+            copy.clear();
+            assertEquals(10, copy.load(file));
+            int nines = 0;
+            for (int i = 1; i <= 40; i += 1) {
+                int value = i % 10 + (i <= 20 ? 4 : 0);
+                boolean saved = copy.probe(i * 0x9e3779b97f4a7c15L) != 0;
+                if (value == 9) {
+                    nines += saved ? 1 : 0;
+                } else {
+                    assertEquals(value > 9, saved);
+                }
+            }
+            assertEquals(2, nines);
+            assertEquals(0, table.save(file, 10, 10));
+
+            Files.write(file, new byte[] { 1, 2, 3 });
+            try {
+                copy.load(file);
+                fail("load of a bad file succeeded");
+            } catch (IOException excp) {
+                /* Expected. */
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void concurrentSaveTest() throws Exception {
+        TranspositionTable[] tables = {
+            new TranspositionTable(1), new TranspositionTable(1),
+        };
+        for (int i = 1; i <= 4000; i += 1) {
+            tables[i % 100 == 0 ? 0 : 1].store(i * 0x9e3779b97f4a7c15L, i,
+                                               -i, 1 + i % 10,
+                                               TranspositionTable.EXACT,
+                                               10);
+        }
+        Path dir = Files.createTempDirectory("ataxx"),
+            file = dir.resolve("cache");
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            int[] sizes = {
+                tables[0].save(file, 0, 10000),
+                tables[1].save(file, 0, 10000),
+            };
+            List<Future<?>> saves = new ArrayList<>();
+            for (TranspositionTable table : tables) {
+                saves.add(pool.submit(() -> {
+                    for (int i = 0; i < 20; i += 1) {
+                        table.save(file, 0, 10000);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> save : saves) {
+                save.get();
+            }
+            int n = new TranspositionTable(1).load(file);
+            assertEquals(true, n == sizes[0] || n == sizes[1]);
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            pool.shutdown();
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
     /** Run the JUnit tests in this package. Add xxxTest.class entries to
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
@@ -0,0 +1,75 @@
+package ataxx;
+
+import java.util.SplittableRandom;
+
+/** Zobrist hashing of positions: the key of a position is the exclusive
+ *  or of a fixed random number for each square's contents, one for the
+ *  side on move, and one for the number of jumps made.  Positions equal
+ *  as BoardSnapshots have equal keys, and unequal positions almost
+ *  always have different ones.  The random numbers come from a fixed
+ *  seed, so keys may be stored in files and compared across runs.
+ *  @author tapan.jasthi
+ */
+final class Zobrist {
+
+    /** Not instantiable. */
+    private Zobrist() {
+    }
+
+    /** Return the key of POSITION. */
+    static long key(BoardSnapshot position) {
+        long key = JUMPS[position.numJumps()];
+        if (position.whoseMove() == PieceColor.BLUE) {
+            key ^= BLUE_TO_MOVE;
+        }
+        for (int k = 0; k < NUM_SQUARES; k += 1) {
+            key ^= SQUARES[k][position.get(k).ordinal()];
+        }
+        return key;
+    }
+
+    /** Return the key of square K (numbered as by BoardSnapshot) holding
+     *  CONTENTS, so that keys may be updated as squares change. */
+    static long square(int k, PieceColor contents) {
+        return SQUARES[k][contents.ordinal()];
+    }
+
+    /** Return the key of Blue being on move, so that keys may be
+     *  updated as the side on move changes. */
+    static long blueToMove() {
+        return BLUE_TO_MOVE;
+    }
+
+    /** Return the key of N jumps having been made. */
+    static long jumps(int n) {
+        return JUMPS[n];
+    }
+
+    /** Number of squares on the board. */
+    private static final int NUM_SQUARES =
+        BoardSnapshot.SIDE * BoardSnapshot.SIDE;
+
+    /** Seed of the random numbers.  Changing it changes every key. */
+    private static final long SEED = 0x41544158584bL;
+
+    /** Random numbers for each square's contents (by ordinal). */
+    private static final long[][] SQUARES =
+        new long[NUM_SQUARES][PieceColor.values().length];
+    /** Random number for Blue on move. */
+    private static final long BLUE_TO_MOVE;
+    /** Random numbers for each number of jumps. */
+    private static final long[] JUMPS = new long[Board.JUMP_LIMIT + 1];
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[] square : SQUARES) {
+            for (int p = 0; p < square.length; p += 1) {
+                square[p] = random.nextLong();
+            }
+        }
+        BLUE_TO_MOVE = random.nextLong();
+        for (int j = 0; j < JUMPS.length; j += 1) {
+            JUMPS[j] = random.nextLong();
+        }
+    }
+}
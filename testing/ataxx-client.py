@@ -0,0 +1,48 @@
+# A thin client for a warm ataxx daemon (java ataxx.Main --daemon SOCKET).
+# It connects to the daemon's Unix-domain socket, starting a game session
+# there, and copies its standard input to the session and the session's
+# output to its standard output, so that
+#     python3 ataxx-client.py SOCKET
+# behaves as 'java ataxx.Main' does, without starting a JVM.
+# A first line of 'status' instead reports the daemon's sessions:
+#     echo status | python3 ataxx-client.py SOCKET
+
+import os, socket, sys
+from threading import Thread
+
+BUFFER_SIZE = 4096
+
+def forward_input(sock):
+    """Copy standard input to SOCK, closing its sending side at the end."""
+    try:
+        while True:
+            data = os.read(sys.stdin.fileno(), BUFFER_SIZE)
+            if not data:
+                break
+            sock.sendall(data)
+        sock.shutdown(socket.SHUT_WR)
+    except OSError:
+        pass
+
+def main():
+    if len(sys.argv) != 2:
+        print("Usage: python3 ataxx-client.py SOCKET", file=sys.stderr)
+        sys.exit(1)
+    sock = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+    try:
+        sock.connect(sys.argv[1])
+    except OSError as excp:
+        print("Error: cannot connect to {}: {}".format(sys.argv[1],
+                                                       excp.strerror),
+              file=sys.stderr)
+        sys.exit(1)
+    Thread(target=forward_input, args=(sock,), daemon=True).start()
+    while True:
+        data = sock.recv(BUFFER_SIZE)
+        if not data:
+            break
+        sys.stdout.buffer.write(data)
+        sys.stdout.buffer.flush()
+    sys.exit(0)
+
+main()
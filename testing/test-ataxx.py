@@ -5,7 +5,7 @@ from threading import Thread
 from queue import Queue, Empty, Full
 from getopt import getopt, GetoptError
 from io import StringIO
-from os.path import basename
+from os.path import basename, dirname, join
 
 EOF = object()
 
@@ -64,7 +64,12 @@ class program:
         if command is None:
             terminate_msgs.put((title, "FAIL", "No command found",
                                 script_start + self.k))
-        self.proc = Popen(re.split(r'\s+', command), universal_newlines=True,
+        if daemon and re.match(r'java\b.*\bataxx\.Main$', command):
+            args = [sys.executable, join(dirname(__file__), "ataxx-client.py"),
+                    daemon]
+        else:
+            args = re.split(r'\s+', command)
+        self.proc = Popen(args, universal_newlines=True,
                           stdin=PIPE, stdout=PIPE, stderr=STDOUT)
         self.input, _ = get_input_queue(title+"-in", self.proc.stdin)
         self.output, _ = get_output_queue(title+"-out", self.proc.stdout)
@@ -449,17 +454,21 @@ def run_test(text):
         return "ERROR", '/'.join(map(make_msg, msgs))
         
 try:
-    opts, args = getopt(sys.argv[1:], 'v', ['verbose'])
+    opts, args = getopt(sys.argv[1:], 'vd:', ['verbose', 'daemon='])
 except GetoptError:
-    print("Usage: python3 test-ataxx.py [ --verbose | -v ] SCRIPT ...",
+    print("Usage: python3 test-ataxx.py [ --verbose | -v ]"
+          " [ --daemon SOCKET | -d SOCKET ] SCRIPT ...",
           file=sys.stderr)
     sys.exit(1)
 
 
 verbose= False
+daemon = None
 for opt, val in opts:
     if opt == '-v' or opt == '--verbose':
         verbose = True
+    elif opt == '-d' or opt == '--daemon':
+        daemon = val
 
 test_count = len(args)
 err_count = 0